@@ -17,6 +17,7 @@ public abstract class CoordinateCharacter extends Character {
     List<IntPair> coordinates;
     boolean[][] values;
     int amountOfMerges = 0;
+    int componentId = -1;
     Map<Letter, CoordinateCharacter> mergedPieces;
 
     /**
@@ -85,6 +86,25 @@ public abstract class CoordinateCharacter extends Character {
         return coordinates;
     }
 
+    /**
+     * Gets the ID of the connected component this character was created from, which is unique within a single scan or
+     * training line and stays the same throughout recognition and mergence.
+     *
+     * @return The component ID, or -1 if it has not been assigned
+     */
+    public int getComponentId() {
+        return componentId;
+    }
+
+    /**
+     * Sets the ID of the connected component this character was created from.
+     *
+     * @param componentId The component ID
+     */
+    public void setComponentId(int componentId) {
+        this.componentId = componentId;
+    }
+
     /**
      * Gets the black (true) and white (false) pixels of the scanned character.
      *
@@ -127,14 +147,23 @@ public abstract class CoordinateCharacter extends Character {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.letter, this.x, this.y, this.width, this.height, this.coordinates, this.values, this.amountOfMerges);
+        int result = this.componentId;
+        result = 31 * result + this.letter;
+        result = 31 * result + this.x;
+        result = 31 * result + this.y;
+        result = 31 * result + this.width;
+        result = 31 * result + this.height;
+        result = 31 * result + System.identityHashCode(this.coordinates);
+        result = 31 * result + System.identityHashCode(this.values);
+        return 31 * result + this.amountOfMerges;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof CoordinateCharacter)) return false;
         var character = (CoordinateCharacter) obj;
-        return character.letter == this.letter
+        return character.componentId == this.componentId
+                && character.letter == this.letter
                 && character.x == this.x
                 && character.y == this.y
                 && character.width == this.width
@@ -5,7 +5,6 @@ import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -225,6 +224,7 @@ public class ImageLetter extends CoordinateCharacter {
         this.maxCenter = imageLetter.maxCenter;
         this.minCenter = imageLetter.minCenter;
         this.amountOfMerges = imageLetter.amountOfMerges;
+        this.componentId = imageLetter.componentId;
     }
 
     @Override
@@ -234,14 +234,22 @@ public class ImageLetter extends CoordinateCharacter {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.letter, this.x, this.y, this.width, this.height, this.averageWidth, this.averageHeight, this.ratio, this.data, this.maxCenter, this.minCenter);
+        int result = this.componentId;
+        result = 31 * result + this.letter;
+        result = 31 * result + this.modifier;
+        result = 31 * result + this.x;
+        result = 31 * result + this.y;
+        result = 31 * result + this.width;
+        return 31 * result + this.height;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof ImageLetter)) return false;
         var character = (ImageLetter) obj;
-        return character.letter == this.letter
+        return character.componentId == this.componentId
+                && character.letter == this.letter
+                && character.modifier == this.modifier
                 && character.x == this.x
                 && character.y == this.y
                 && character.width == this.width
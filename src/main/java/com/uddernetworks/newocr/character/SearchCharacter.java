@@ -178,14 +178,24 @@ public class SearchCharacter extends CoordinateCharacter {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.letter, this.x, this.y, this.width, this.height, this.segments, this.segmentPercentages, this.trainingMeta, this.centerOffset);
+        int result = this.componentId;
+        result = 31 * result + this.letter;
+        result = 31 * result + this.x;
+        result = 31 * result + this.y;
+        result = 31 * result + this.width;
+        result = 31 * result + this.height;
+        result = 31 * result + System.identityHashCode(this.segments);
+        result = 31 * result + System.identityHashCode(this.segmentPercentages);
+        result = 31 * result + System.identityHashCode(this.trainingMeta);
+        return 31 * result + Double.hashCode(this.centerOffset);
     }
 
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof SearchCharacter)) return false;
         var character = (SearchCharacter) obj;
-        return character.letter == this.letter
+        return character.componentId == this.componentId
+                && character.letter == this.letter
                 && character.x == this.x
                 && character.y == this.y
                 && character.width == this.width
@@ -1,8 +1,10 @@
 package com.uddernetworks.newocr.character;
 
-import java.util.LinkedList;
+import com.uddernetworks.newocr.utils.MeanAccumulator;
+
+import java.util.ArrayDeque;
 import java.util.Objects;
-import java.util.OptionalDouble;
+import java.util.stream.IntStream;
 
 /**
  * This is an object meant for storing the data for characters in the training stage.
@@ -13,6 +15,12 @@ import java.util.OptionalDouble;
  */
 public class TrainedCharacterData extends Character {
 
+    /**
+     * The maximum amount of recalculations that may be undone via {@link #undoLastRecalculations(int)}, which throws an
+     * {@link IllegalStateException} when undoing more without removing everything.
+     */
+    public static final int UNDO_LIMIT = 64;
+
     private double widthAverage;
     private double heightAverage;
     private double[] segmentPercentages;
@@ -20,9 +28,12 @@ public class TrainedCharacterData extends Character {
     private double maxCenter = -1;
     private double sizeRatio = -1; //        Width / Height
     private boolean empty = true;
-    private LinkedList<double[]> recalculatingList = new LinkedList<>();
-    private LinkedList<Double> recalculatingWidths = new LinkedList<>();
-    private LinkedList<Double> recalculatingHeights = new LinkedList<>();
+    private boolean finished;
+    private MeanAccumulator[] recalculatingSegments = IntStream.range(0, 8 + 9).mapToObj(i -> new MeanAccumulator()).toArray(MeanAccumulator[]::new);
+    private MeanAccumulator recalculatingWidths = new MeanAccumulator();
+    private MeanAccumulator recalculatingHeights = new MeanAccumulator();
+    private ArrayDeque<double[]> segmentHistory = new ArrayDeque<>();
+    private ArrayDeque<double[]> sizeHistory = new ArrayDeque<>();
 
     /**
      * Creates a {@link TrainedCharacterData} from a character letter with a modifier of 0.
@@ -117,9 +128,11 @@ public class TrainedCharacterData extends Character {
      */
     public void recalculateTo(double width, double height) {
         this.empty = false;
+        this.finished = false;
 
         recalculatingWidths.add(width);
         recalculatingHeights.add(height);
+        addHistory(sizeHistory, new double[]{width, height});
     }
 
     /**
@@ -130,49 +143,81 @@ public class TrainedCharacterData extends Character {
      */
     public void recalculateTo(SearchCharacter searchCharacter) {
         this.empty = false;
+        this.finished = false;
         double[] segmentPercentages = searchCharacter.getSegmentPercentages();
 
-        recalculatingList.add(segmentPercentages);
+        for (int i = 0; i < 8 + 9; i++) {
+            recalculatingSegments[i].add(segmentPercentages[i]);
+        }
+
+        addHistory(segmentHistory, segmentPercentages);
+
         if (searchCharacter.getWidth() != 0 && searchCharacter.getHeight() != 0) {
-            recalculatingWidths.add((double) searchCharacter.getWidth());
-            recalculatingHeights.add((double) searchCharacter.getHeight());
+            recalculateTo(searchCharacter.getWidth(), searchCharacter.getHeight());
         }
     }
 
     /**
-     * Removed the last x entries added by {@link TrainedCharacterData#recalculateTo(SearchCharacter)}.
+     * Removed the last x entries added by {@link TrainedCharacterData#recalculateTo(SearchCharacter)}. Only the last
+     * {@link #UNDO_LIMIT} (64) entries are remembered, so undoing more than that throws an
+     * {@link IllegalStateException} unless every entry is being removed. Training code undoing whole images or lines
+     * should check their amount of entries against {@link #UNDO_LIMIT} before, as nothing is undone if it throws.
      *
      * @param amount The amount of entries to remove
+     * @throws IllegalStateException If more than the last {@link #UNDO_LIMIT} entries are being removed, but not every
+     *                               entry
      */
     public void undoLastRecalculations(int amount) {
-        boolean removingList = amount < this.recalculatingList.size();
-        boolean removingHeights = amount < this.recalculatingHeights.size();
-        boolean removingWidths = amount < this.recalculatingWidths.size();
-
-        if (!removingList) this.recalculatingList.clear();
-        if (!removingHeights) this.recalculatingHeights.clear();
-        if (!removingWidths) this.recalculatingWidths.clear();
-
-        for (int i = 0; i < amount; i++) {
-            if (removingList) this.recalculatingList.removeLast();
-            if (removingHeights) this.recalculatingHeights.removeLast();
-            if (removingWidths) this.recalculatingWidths.removeLast();
+        boolean removingSegments = amount < this.recalculatingSegments[0].getCount();
+        boolean removingSizes = amount < this.recalculatingWidths.getCount();
+
+        if ((removingSegments && amount > this.segmentHistory.size()) || (removingSizes && amount > this.sizeHistory.size())) {
+            throw new IllegalStateException("Unable to undo " + amount + " recalculations, only the last " + UNDO_LIMIT + " may be undone");
         }
 
+        if (removingSegments) {
+            for (int i = 0; i < amount; i++) {
+                var segments = this.segmentHistory.removeLast();
+                for (int j = 0; j < 8 + 9; j++) {
+                    this.recalculatingSegments[j].remove(segments[j]);
+                }
+            }
+        } else {
+            for (var segment : this.recalculatingSegments) {
+                segment.reset();
+            }
+
+            this.segmentHistory.clear();
+        }
+
+        if (removingSizes) {
+            for (int i = 0; i < amount; i++) {
+                var size = this.sizeHistory.removeLast();
+                this.recalculatingWidths.remove(size[0]);
+                this.recalculatingHeights.remove(size[1]);
+            }
+        } else {
+            this.recalculatingWidths.reset();
+            this.recalculatingHeights.reset();
+            this.sizeHistory.clear();
+        }
+
+        this.finished = false;
         finishRecalculations();
     }
 
     /**
      * Calculates everything based on the data inserted by {@link #recalculateTo(double, double)} and
      * {@link #recalculateTo(SearchCharacter)} by averaging the width and heights provided, and averaging the
-     * percentages retrieved from {@link SearchCharacter}s.
+     * percentages retrieved from {@link SearchCharacter}s. The results are kept until more data is inserted, so
+     * invoking this again without any new data does nothing.
      */
     public void finishRecalculations() {
-        OptionalDouble widthAverageOptional = recalculatingWidths.stream().mapToDouble(t -> t).average();
-        this.widthAverage = widthAverageOptional.orElse(0D);
+        if (this.finished) return;
+        this.finished = true;
 
-        OptionalDouble heightAverageOptional = recalculatingHeights.stream().mapToDouble(t -> t).average();
-        this.heightAverage = heightAverageOptional.orElse(0D);
+        this.widthAverage = recalculatingWidths.getMean();
+        this.heightAverage = recalculatingHeights.getMean();
 
         this.sizeRatio = this.heightAverage != 0 ? this.widthAverage / this.heightAverage : 0;
 
@@ -183,8 +228,7 @@ public class TrainedCharacterData extends Character {
         this.segmentPercentages = new double[8 + 9];
 
         for (int i = 0; i < 8 + 9; i++) {
-            int finalI = i;
-            this.segmentPercentages[i] = recalculatingList.stream().mapToDouble(t -> t[finalI]).average().orElse(0D);
+            this.segmentPercentages[i] = recalculatingSegments[i].getMean();
         }
     }
 
@@ -210,6 +254,43 @@ public class TrainedCharacterData extends Character {
         }
     }
 
+    /**
+     * Adds all the data inserted into the given {@link TrainedCharacterData} to the current one, after the current
+     * one's data. This is used to combine characters trained separately, such as on different threads. Just like
+     * {@link #recalculateTo(SearchCharacter)}, {@link #finishRecalculations()} must be invoked afterwards.
+     *
+     * @param other The {@link TrainedCharacterData} with the same letter and modifier to merge in
+     */
+    public void merge(TrainedCharacterData other) {
+        this.empty &= other.empty;
+        this.finished = false;
+
+        for (int i = 0; i < 8 + 9; i++) {
+            this.recalculatingSegments[i].merge(other.recalculatingSegments[i]);
+        }
+
+        this.recalculatingWidths.merge(other.recalculatingWidths);
+        this.recalculatingHeights.merge(other.recalculatingHeights);
+        other.segmentHistory.forEach(segments -> addHistory(this.segmentHistory, segments));
+        other.sizeHistory.forEach(size -> addHistory(this.sizeHistory, size));
+
+        if (other.minCenter != -1 || other.maxCenter != -1) {
+            recalculateCenter(other.minCenter);
+            recalculateCenter(other.maxCenter);
+        }
+    }
+
+    /**
+     * Adds an entry to the given undo history, forgetting the oldest entry if it goes above {@link #UNDO_LIMIT}.
+     *
+     * @param history The history to add to
+     * @param entry   The entry to add
+     */
+    private static void addHistory(ArrayDeque<double[]> history, double[] entry) {
+        history.addLast(entry);
+        if (history.size() > UNDO_LIMIT) history.removeFirst();
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(this.letter, this.x, this.y, this.width, this.height, this.widthAverage, this.heightAverage, this.segmentPercentages, this.minCenter, this.maxCenter, this.sizeRatio, this.empty);
@@ -231,7 +312,7 @@ public class TrainedCharacterData extends Character {
                 && character.maxCenter == this.maxCenter
                 && character.sizeRatio == this.sizeRatio
                 && character.empty == this.empty
-                && character.recalculatingList == this.recalculatingList
+                && character.recalculatingSegments == this.recalculatingSegments
                 && character.recalculatingWidths == this.recalculatingWidths
                 && character.recalculatingHeights == this.recalculatingHeights;
     }
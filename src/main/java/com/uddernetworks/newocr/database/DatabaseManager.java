@@ -2,6 +2,7 @@ package com.uddernetworks.newocr.database;
 
 import com.uddernetworks.newocr.character.DatabaseCharacter;
 import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
 
 import javax.sql.DataSource;
 import java.util.List;
@@ -85,7 +86,7 @@ public interface DatabaseManager {
     void addLetterSegments(char letter, int modifier, double[] segments);
 
     /**
-     * Gets all the {@link DatabaseCharacter}s in the database
+     * Gets all the {@link DatabaseCharacter}s of the current {@link ModelSnapshot}.
      *
      * @return A Future of all the {@link DatabaseCharacter}s
      */
@@ -127,13 +128,22 @@ public interface DatabaseManager {
     void addCustomSpace(char letter, double ratio);
 
     /**
-     * Gets the custom between-character space associated with the character, to appear after the character.
+     * Gets the custom between-character space associated with the character, to appear after the character, from the
+     * current {@link ModelSnapshot}.
      *
      * @param letter The letter this space associates with
      * @return The custom between-character space width/height ratio, or 0 if no custom space is found
      */
     Future<Double> getCustomSpace(char letter);
 
+    /**
+     * Gets all custom between-character spaces added via {@link DatabaseManager#addCustomSpace(char, double)}, keyed by
+     * the character they appear after, from the current {@link ModelSnapshot}.
+     *
+     * @return The custom between-character space width/height ratios of all characters that have one
+     */
+    Future<Int2DoubleMap> getAllCustomSpaces();
+
     /**
      * Sets the font size ratio for the given character and modifier.
      *
@@ -144,7 +154,7 @@ public interface DatabaseManager {
     void setFontSize(char letter, int mod, double ratio);
 
     /**
-     * Gets the font size ratio from the given character and modifier.
+     * Gets the font size ratio from the given character and modifier, from the current {@link ModelSnapshot}.
      *
      * @param letter The letter to get
      * @param mod The modifier of the letter
@@ -191,10 +201,29 @@ public interface DatabaseManager {
     boolean isTrainedSync();
 
     /**
-     * Clears all data in the database, primarily used for before training.
+     * Clears all data in the database, primarily used for before training. The current {@link ModelSnapshot} stays
+     * published until {@link DatabaseManager#publishSnapshot()} is invoked, so scans may continue while retraining.
      */
     void clearData();
 
+    /**
+     * Gets the current {@link ModelSnapshot}. If none has been published yet, a trained database is published as if by
+     * {@link #publishSnapshot()}, while an untrained one is loaded without being published, so a model still being
+     * trained is never kept. A scan should get this once and use it throughout, so it is never affected by the database
+     * being retrained.
+     *
+     * @return A Future of the current {@link ModelSnapshot}
+     */
+    Future<ModelSnapshot> getSnapshot();
+
+    /**
+     * Loads a new {@link ModelSnapshot} from the database and atomically replaces the current one with it. This should
+     * be invoked once everything from training has been written. Scans using the previous snapshot are unaffected.
+     *
+     * @return The new {@link ModelSnapshot}
+     */
+    ModelSnapshot publishSnapshot();
+
     /**
      * Shuts down all executor threads when the program is ready to be terminated.
      */
@@ -0,0 +1,195 @@
+package com.uddernetworks.newocr.database;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+import com.uddernetworks.newocr.recognition.CandidateIndex;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
+import com.uddernetworks.newocr.utils.FingerprintUtils;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMaps;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMaps;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, versioned copy of everything a scan reads from a trained database: the character segments, the custom
+ * spaces, the font sizes and the averaged data used by merge rules. A {@link DatabaseManager} publishes a new {@link ModelSnapshot} once training has
+ * finished writing, so a scan that holds onto one keeps seeing a complete model even while the database is retrained.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class ModelSnapshot {
+
+    private final long version;
+    private final boolean trained;
+    private final List<DatabaseCharacter> characters;
+    private final Int2DoubleMap customSpaces;
+    private final Int2DoubleMap fontSizes;
+    private final Object2DoubleMap<String> averagedData;
+    private final long fingerprint;
+    private final CandidateIndex candidateIndex;
+
+    /**
+     * Creates a {@link ModelSnapshot} without any averaged data.
+     *
+     * @param version      The version of the snapshot, increasing with every snapshot of the same database
+     * @param trained      If the database was marked as trained
+     * @param characters   The {@link DatabaseCharacter}s, including the space
+     * @param customSpaces The custom space ratios, keyed by the character
+     * @param fontSizes    The font size ratios, keyed by the {@link GlyphRegistry} ID
+     */
+    public ModelSnapshot(long version, boolean trained, List<DatabaseCharacter> characters, Int2DoubleMap customSpaces, Int2DoubleMap fontSizes) {
+        this(version, trained, characters, customSpaces, fontSizes, Object2DoubleMaps.emptyMap());
+    }
+
+    /**
+     * Creates a {@link ModelSnapshot}.
+     *
+     * @param version      The version of the snapshot, increasing with every snapshot of the same database
+     * @param trained      If the database was marked as trained
+     * @param characters   The {@link DatabaseCharacter}s, including the space
+     * @param customSpaces The custom space ratios, keyed by the character
+     * @param fontSizes    The font size ratios, keyed by the {@link GlyphRegistry} ID
+     * @param averagedData The average of every set of averaged data, keyed by its name
+     */
+    public ModelSnapshot(long version, boolean trained, List<DatabaseCharacter> characters, Int2DoubleMap customSpaces, Int2DoubleMap fontSizes, Object2DoubleMap<String> averagedData) {
+        this.version = version;
+        this.trained = trained;
+        this.characters = List.copyOf(characters);
+        this.customSpaces = Int2DoubleMaps.unmodifiable(new Int2DoubleOpenHashMap(customSpaces));
+        this.fontSizes = Int2DoubleMaps.unmodifiable(new Int2DoubleOpenHashMap(fontSizes));
+        this.averagedData = Object2DoubleMaps.unmodifiable(new Object2DoubleOpenHashMap<>(averagedData));
+        this.fingerprint = computeFingerprint();
+        this.candidateIndex = CandidateIndex.of(this.characters);
+    }
+
+    /**
+     * Gets the version of the snapshot, which increases every time a snapshot of the same database is published.
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Gets if the database was marked as trained when the snapshot was taken.
+     *
+     * @return If the model is trained
+     */
+    public boolean isTrained() {
+        return this.trained;
+    }
+
+    /**
+     * Gets the {@link DatabaseCharacter}s of the model, including the space.
+     *
+     * @return An unmodifiable list of the {@link DatabaseCharacter}s
+     */
+    public List<DatabaseCharacter> getCharacters() {
+        return this.characters;
+    }
+
+    /**
+     * Gets the {@link CandidateIndex} of the {@link DatabaseCharacter}s, for matching characters against the model.
+     *
+     * @return The {@link CandidateIndex}
+     */
+    public CandidateIndex getCandidateIndex() {
+        return this.candidateIndex;
+    }
+
+    /**
+     * Gets the custom space ratios of the model, keyed by the character.
+     *
+     * @return An unmodifiable map of the custom spaces
+     */
+    public Int2DoubleMap getCustomSpaces() {
+        return this.customSpaces;
+    }
+
+    /**
+     * Gets the custom space ratio added after the given character.
+     *
+     * @param letter The character
+     * @return The custom space ratio, or 0 if there is none
+     */
+    public double getCustomSpace(char letter) {
+        return this.customSpaces.get(letter);
+    }
+
+    /**
+     * Gets the font size ratio of the given character.
+     *
+     * @param letter   The character
+     * @param modifier The modifier of the character
+     * @return The font size ratio, or 0 if there is none
+     */
+    public double getFontSize(char letter, int modifier) {
+        int id = GlyphRegistry.getId(letter, modifier);
+        return id == -1 ? 0 : this.fontSizes.get(id);
+    }
+
+    /**
+     * Gets the average of the averaged data with the given name, such as the distances merge rules use.
+     *
+     * @param name The name of the data
+     * @return The average, or 0 if there is no data with the name
+     * @see DatabaseManager#getAveragedData(String)
+     */
+    public double getAveragedData(String name) {
+        return this.averagedData.getDouble(name);
+    }
+
+    /**
+     * Gets a hash of all the data in the model. Two snapshots with the same data have the same fingerprint, regardless
+     * of their version.
+     *
+     * @return The fingerprint
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    private long computeFingerprint() {
+        long hash = FingerprintUtils.SEED;
+        for (var character : this.characters) {
+            hash = FingerprintUtils.mix(hash, character.getLetter());
+            hash = FingerprintUtils.mix(hash, character.getModifier());
+            hash = FingerprintUtils.mix(hash, character.getAvgWidth());
+            hash = FingerprintUtils.mix(hash, character.getAvgHeight());
+            hash = FingerprintUtils.mix(hash, character.getMinCenter());
+            hash = FingerprintUtils.mix(hash, character.getMaxCenter());
+            var data = character.getData();
+            if (data != null) for (double value : data) hash = FingerprintUtils.mix(hash, value);
+        }
+
+        hash = mixSorted(hash, this.customSpaces);
+        hash = mixSorted(hash, this.fontSizes);
+
+        var names = this.averagedData.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        for (var name : names) {
+            for (int i = 0; i < name.length(); i++) hash = FingerprintUtils.mix(hash, name.charAt(i));
+            hash = FingerprintUtils.mix(FingerprintUtils.mix(hash, name.length()), this.averagedData.getDouble(name));
+        }
+
+        hash = FingerprintUtils.mix(hash, names.length);
+        return FingerprintUtils.finish(hash);
+    }
+
+    private static long mixSorted(long hash, Int2DoubleMap map) {
+        var keys = map.keySet().toIntArray();
+        Arrays.sort(keys);
+        for (int key : keys) {
+            hash = FingerprintUtils.mix(FingerprintUtils.mix(hash, key), map.get(key));
+        }
+
+        return FingerprintUtils.mix(hash, keys.length);
+    }
+}
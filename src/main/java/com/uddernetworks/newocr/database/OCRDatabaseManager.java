@@ -1,9 +1,14 @@
 package com.uddernetworks.newocr.database;
 
 import com.uddernetworks.newocr.character.DatabaseCharacter;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
@@ -13,6 +18,7 @@ import java.io.InputStreamReader;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -32,16 +38,16 @@ public class OCRDatabaseManager implements DatabaseManager {
     private String getSpaceEntry;
     private String addAverageData;
     private String getAverageData;
+    private String getAllAverageData;
     private String addCustomSpace;
-    private String getCustomSpace;
+    private String getAllCustomSpaces;
     private String setBooleanProperty;
     private String getBooleanProperty;
     private String setFontSize;
-    private String getFontSize;
+    private String getAllFontSizes;
 
-    private final AtomicReference<List<DatabaseCharacter>> databaseCharacterCache = new AtomicReference<>();
-    private final AtomicReference<Map<Character, Double>> customSpaceCache = new AtomicReference<>(new HashMap<>());
-    private final AtomicReference<Map<Character, Double>> fontSizeCache = new AtomicReference<>(new HashMap<>());
+    private final AtomicReference<ModelSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong snapshotVersion = new AtomicLong();
 
     /**
      * Connects to the database with the given credentials, and executes the queries found in letters.sql and sectionData.sql
@@ -135,12 +141,13 @@ public class OCRDatabaseManager implements DatabaseManager {
         this.getSpaceEntry = getQuery("getSpaceEntry");
         this.addAverageData = getQuery("addAverageData");
         this.getAverageData = getQuery("getAverageData");
+        this.getAllAverageData = getQuery("getAllAverageData");
         this.addCustomSpace = getQuery("addCustomSpace");
-        this.getCustomSpace = getQuery("getCustomSpace");
+        this.getAllCustomSpaces = getQuery("getAllCustomSpaces");
         this.setBooleanProperty = getQuery("setBooleanProperty");
         this.getBooleanProperty = getQuery("getBooleanProperty");
         this.setFontSize = getQuery("setFontSize");
-        this.getFontSize = getQuery("getFontSize");
+        this.getAllFontSizes = getQuery("getAllFontSizes");
     }
 
     /**
@@ -232,73 +239,72 @@ public class OCRDatabaseManager implements DatabaseManager {
 
     @Override
     public Future<List<DatabaseCharacter>> getAllCharacterSegments() {
-        return executor.submit(() -> {
-            var cachedValue = databaseCharacterCache.get();
-
-            if (cachedValue != null && !cachedValue.isEmpty()) {
-                return cachedValue;
-            }
-
-            var databaseCharacters = new ArrayList<DatabaseCharacter>();
-
-            try (var connection = dataSource.getConnection(); var selectSegments = connection.prepareStatement(this.selectAllSegments)) {
-                var resultSet = selectSegments.executeQuery();
+        return executor.submit(() -> getSnapshotSync().getCharacters());
+    }
 
-                while (resultSet.next()) {
-                    var letter = resultSet.getString("letter").charAt(0);
-                    var modifier = resultSet.getInt("modifier");
-                    var sectionIndex = resultSet.getInt("sectionIndex");
-                    var data = resultSet.getDouble("data");
+    /**
+     * Loads all the {@link DatabaseCharacter}s in the database, including the space.
+     *
+     * @return The {@link DatabaseCharacter}s
+     */
+    private List<DatabaseCharacter> loadCharacterSegments() {
+        var databaseCharacters = new ArrayList<DatabaseCharacter>();
 
-                    var databaseCharacter = getDatabaseCharacter(databaseCharacters, letter, modifier, newDatabaseCharacter -> {
-                        try (var getLetterEntry = connection.prepareCall(this.getLetterEntry)) {
-                            getLetterEntry.setInt(1, letter);
-                            getLetterEntry.setInt(2, modifier);
+        try (var connection = dataSource.getConnection(); var selectSegments = connection.prepareStatement(this.selectAllSegments)) {
+            var resultSet = selectSegments.executeQuery();
 
-                            var resultSet1 = getLetterEntry.executeQuery();
+            while (resultSet.next()) {
+                var letter = resultSet.getString("letter").charAt(0);
+                var modifier = resultSet.getInt("modifier");
+                var sectionIndex = resultSet.getInt("sectionIndex");
+                var data = resultSet.getDouble("data");
 
-                            if (!resultSet1.next()) {
-                                return;
-                            }
+                var databaseCharacter = getDatabaseCharacter(databaseCharacters, letter, modifier, newDatabaseCharacter -> {
+                    try (var getLetterEntry = connection.prepareCall(this.getLetterEntry)) {
+                        getLetterEntry.setInt(1, letter);
+                        getLetterEntry.setInt(2, modifier);
 
-                            var avgWidth = resultSet1.getDouble("avgWidth");
-                            var avgHeight = resultSet1.getDouble("avgHeight");
-                            var minCenter = resultSet1.getDouble("minCenter");
-                            var maxCenter = resultSet1.getDouble("maxCenter");
+                        var resultSet1 = getLetterEntry.executeQuery();
 
-                            newDatabaseCharacter.setData(avgWidth, avgHeight, minCenter, maxCenter);
-                        } catch (SQLException e) {
-                            e.printStackTrace();
+                        if (!resultSet1.next()) {
+                            return;
                         }
-                    });
 
-                    databaseCharacter.addDataPoint(sectionIndex, data);
+                        var avgWidth = resultSet1.getDouble("avgWidth");
+                        var avgHeight = resultSet1.getDouble("avgHeight");
+                        var minCenter = resultSet1.getDouble("minCenter");
+                        var maxCenter = resultSet1.getDouble("maxCenter");
 
-                    if (!databaseCharacters.contains(databaseCharacter)) {
-                        databaseCharacters.add(databaseCharacter);
+                        newDatabaseCharacter.setData(avgWidth, avgHeight, minCenter, maxCenter);
+                    } catch (SQLException e) {
+                        e.printStackTrace();
                     }
+                });
+
+                databaseCharacter.addDataPoint(sectionIndex, data);
+
+                if (!databaseCharacters.contains(databaseCharacter)) {
+                    databaseCharacters.add(databaseCharacter);
                 }
+            }
 
-                try (var selectSpace = connection.prepareStatement(this.getSpaceEntry)) {
-                    var spaceResult = selectSpace.executeQuery();
+            try (var selectSpace = connection.prepareStatement(this.getSpaceEntry)) {
+                var spaceResult = selectSpace.executeQuery();
 
-                    if (spaceResult.next()) {
-                        var avgWidth = spaceResult.getDouble("avgWidth");
-                        var avgHeight = spaceResult.getDouble("avgHeight");
+                if (spaceResult.next()) {
+                    var avgWidth = spaceResult.getDouble("avgWidth");
+                    var avgHeight = spaceResult.getDouble("avgHeight");
 
-                        var spaceCharacter = new DatabaseCharacter(' ');
-                        spaceCharacter.setData(avgWidth, avgHeight, 0, 0);
-                        databaseCharacters.add(spaceCharacter);
-                    }
+                    var spaceCharacter = new DatabaseCharacter(' ');
+                    spaceCharacter.setData(avgWidth, avgHeight, 0, 0);
+                    databaseCharacters.add(spaceCharacter);
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
             }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
 
-            this.databaseCharacterCache.set(databaseCharacters);
-
-            return databaseCharacters;
-        });
+        return databaseCharacters;
     }
 
     @Override
@@ -337,6 +343,27 @@ public class OCRDatabaseManager implements DatabaseManager {
         });
     }
 
+    /**
+     * Loads the average of every set of averaged data in the database.
+     *
+     * @return The averaged data, keyed by its name
+     */
+    private Object2DoubleMap<String> loadAveragedData() {
+        var averagedData = new Object2DoubleOpenHashMap<String>();
+
+        try (var connection = dataSource.getConnection();
+             var getData = connection.prepareStatement(this.getAllAverageData)) {
+            var resultSet = getData.executeQuery();
+            while (resultSet.next()) {
+                averagedData.put(resultSet.getString(1), resultSet.getDouble(2));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return averagedData;
+    }
+
     @Override
     public void addCustomSpace(char letter, double ratio) {
         try (var connection = dataSource.getConnection();
@@ -351,19 +378,33 @@ public class OCRDatabaseManager implements DatabaseManager {
 
     @Override
     public Future<Double> getCustomSpace(char letter) {
-        return executor.submit(() -> customSpaceCache.get().computeIfAbsent(letter, ignored -> {
-            try (var connection = dataSource.getConnection();
-                 var getData = connection.prepareStatement(this.getCustomSpace)) {
-                getData.setInt(1, letter);
-                var resultSet = getData.executeQuery();
-                if (!resultSet.next()) return 0D;
+        return executor.submit(() -> getSnapshotSync().getCustomSpace(letter));
+    }
 
-                return resultSet.getDouble(1);
-            } catch (SQLException e) {
-                e.printStackTrace();
-                return 0D;
+    @Override
+    public Future<Int2DoubleMap> getAllCustomSpaces() {
+        return executor.submit(() -> getSnapshotSync().getCustomSpaces());
+    }
+
+    /**
+     * Loads all custom spaces in the database.
+     *
+     * @return The custom space ratios, keyed by the character
+     */
+    private Int2DoubleMap loadCustomSpaces() {
+        var customSpaces = new Int2DoubleOpenHashMap();
+
+        try (var connection = dataSource.getConnection();
+             var getData = connection.prepareStatement(this.getAllCustomSpaces)) {
+            var resultSet = getData.executeQuery();
+            while (resultSet.next()) {
+                customSpaces.put(resultSet.getInt(1), resultSet.getDouble(2));
             }
-        }));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return customSpaces;
     }
 
     @Override
@@ -381,20 +422,28 @@ public class OCRDatabaseManager implements DatabaseManager {
 
     @Override
     public Future<Double> getFontSize(char letter, int mod) {
-        return executor.submit(() -> fontSizeCache.get().computeIfAbsent(letter, ignored -> {
-            try (var connection = dataSource.getConnection();
-                 var getData = connection.prepareStatement(this.getFontSize)) {
-                getData.setInt(1, letter);
-                getData.setInt(2, mod);
-                var resultSet = getData.executeQuery();
-                if (!resultSet.next()) return 0D;
+        return executor.submit(() -> getSnapshotSync().getFontSize(letter, mod));
+    }
 
-                return resultSet.getDouble(1);
-            } catch (SQLException e) {
-                e.printStackTrace();
-                return 0D;
+    /**
+     * Loads all font size ratios in the database.
+     *
+     * @return The font size ratios, keyed by the {@link GlyphRegistry} ID
+     */
+    private Int2DoubleMap loadFontSizes() {
+        var fontSizes = new Int2DoubleOpenHashMap();
+
+        try (var connection = dataSource.getConnection();
+             var getData = connection.prepareStatement(this.getAllFontSizes)) {
+            var resultSet = getData.executeQuery();
+            while (resultSet.next()) {
+                fontSizes.put(GlyphRegistry.register((char) resultSet.getInt(1), resultSet.getInt(2)), resultSet.getDouble(3));
             }
-        }));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return fontSizes;
     }
 
     @Override
@@ -457,6 +506,47 @@ public class OCRDatabaseManager implements DatabaseManager {
         });
     }
 
+    @Override
+    public Future<ModelSnapshot> getSnapshot() {
+        return executor.submit(this::getSnapshotSync);
+    }
+
+    @Override
+    public ModelSnapshot publishSnapshot() {
+        synchronized (this.snapshot) {
+            var published = loadSnapshot();
+            this.snapshot.set(published);
+            return published;
+        }
+    }
+
+    /**
+     * Gets the current {@link ModelSnapshot} on the current thread. If none has been published yet, a model trained
+     * before is published, while anything else is loaded without being published, as it may still be being trained.
+     *
+     * @return The current {@link ModelSnapshot}
+     */
+    private ModelSnapshot getSnapshotSync() {
+        var current = this.snapshot.get();
+        if (current != null) return current;
+
+        if (!isTrainedSync()) return loadSnapshot();
+
+        synchronized (this.snapshot) {
+            current = this.snapshot.get();
+            return current != null ? current : publishSnapshot();
+        }
+    }
+
+    /**
+     * Loads a new {@link ModelSnapshot} from the data currently in the database, with the next version.
+     *
+     * @return The loaded {@link ModelSnapshot}
+     */
+    private ModelSnapshot loadSnapshot() {
+        return new ModelSnapshot(this.snapshotVersion.incrementAndGet(), isTrainedSync(), loadCharacterSegments(), loadCustomSpaces(), loadFontSizes(), loadAveragedData());
+    }
+
     @Override
     public void shutdown() {
         if (!this.executor.isShutdown()) {
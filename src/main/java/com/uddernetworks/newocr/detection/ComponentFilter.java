@@ -0,0 +1,27 @@
+package com.uddernetworks.newocr.detection;
+
+/**
+ * Decides which connected components found in an image are worth classifying, so noise may be dropped before any
+ * segmentation or matching is done on it.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+@FunctionalInterface
+public interface ComponentFilter {
+
+    /**
+     * A {@link ComponentFilter} accepting every component.
+     */
+    ComponentFilter NONE = (component, lineHeight) -> true;
+
+    /**
+     * Gets if the given component should be classified.
+     *
+     * @param component  The component
+     * @param lineHeight The height of the line the component is in, or 0 if it is in no line
+     * @return If the component should be kept
+     */
+    boolean accept(ConnectedComponent component, int lineHeight);
+}
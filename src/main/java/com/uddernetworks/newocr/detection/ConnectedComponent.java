@@ -0,0 +1,162 @@
+package com.uddernetworks.newocr.detection;
+
+import com.uddernetworks.newocr.character.SearchCharacter;
+import com.uddernetworks.newocr.utils.IntPair;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A group of touching black pixels found in a {@link SearchImage}, with its bounds and shape statistics. This is much
+ * cheaper than a {@link SearchCharacter}, so components may be filtered before any are turned into one.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class ConnectedComponent {
+
+    private final List<IntPair> coordinates;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private double meanRunLength = -1;
+
+    /**
+     * Creates a {@link ConnectedComponent} from the coordinates of its pixels.
+     *
+     * @param coordinates The coordinates of every pixel, which must not be empty
+     */
+    public ConnectedComponent(List<IntPair> coordinates) {
+        this.coordinates = coordinates;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+        for (var pair : coordinates) {
+            int key = pair.getKey(), value = pair.getValue();
+            if (key < minX) minX = key;
+            if (key > maxX) maxX = key;
+            if (value < minY) minY = value;
+            if (value > maxY) maxY = value;
+        }
+
+        this.x = minX;
+        this.y = minY;
+        this.width = maxX - minX + 1;
+        this.height = maxY - minY + 1;
+    }
+
+    /**
+     * Gets the coordinates of every pixel of the component.
+     *
+     * @return The coordinates
+     */
+    public List<IntPair> getCoordinates() {
+        return this.coordinates;
+    }
+
+    /**
+     * Gets the X position of the left of the component.
+     *
+     * @return The X position
+     */
+    public int getX() {
+        return this.x;
+    }
+
+    /**
+     * Gets the Y position of the top of the component.
+     *
+     * @return The Y position
+     */
+    public int getY() {
+        return this.y;
+    }
+
+    /**
+     * Gets the width of the component's bounds.
+     *
+     * @return The width
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Gets the height of the component's bounds.
+     *
+     * @return The height
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Gets the amount of pixels in the component.
+     *
+     * @return The area
+     */
+    public int getArea() {
+        return this.coordinates.size();
+    }
+
+    /**
+     * Gets the center Y position of the component.
+     *
+     * @return The center Y position
+     */
+    public double getCenterY() {
+        return this.y + ((double) this.height / 2);
+    }
+
+    /**
+     * Gets the fraction of the component's bounds filled with its pixels.
+     *
+     * @return The fill density between 0 exclusive and 1 inclusive
+     */
+    public double getFillDensity() {
+        return (double) getArea() / ((double) this.width * this.height);
+    }
+
+    /**
+     * Gets the ratio of the longer side of the component's bounds to the shorter side.
+     *
+     * @return The aspect ratio, being at least 1
+     */
+    public double getAspectRatio() {
+        return (double) Math.max(this.width, this.height) / Math.min(this.width, this.height);
+    }
+
+    /**
+     * Gets the average length of the horizontal runs of pixels in the component, which is about the stroke width for
+     * text. This is computed on first use.
+     *
+     * @return The mean horizontal run length
+     */
+    public double getMeanRunLength() {
+        if (this.meanRunLength != -1) return this.meanRunLength;
+
+        var pixels = new BitSet(this.width * this.height);
+        for (var pair : this.coordinates) {
+            pixels.set((pair.getValue() - this.y) * this.width + pair.getKey() - this.x);
+        }
+
+        // Every run starts at a pixel with no pixel to its left in the same row
+        int runs = 0;
+        for (int i = pixels.nextSetBit(0); i >= 0; i = pixels.nextSetBit(i + 1)) {
+            if (i % this.width == 0 || !pixels.get(i - 1)) runs++;
+        }
+
+        return this.meanRunLength = (double) getArea() / runs;
+    }
+
+    /**
+     * Creates a {@link SearchCharacter} of the component. It has not been segmented yet.
+     *
+     * @return The created {@link SearchCharacter}
+     */
+    public SearchCharacter toSearchCharacter() {
+        return new SearchCharacter(this.coordinates);
+    }
+}
@@ -0,0 +1,143 @@
+package com.uddernetworks.newocr.detection;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A {@link ComponentFilter} dropping components that can't be text, such as window borders, table rules, icons and
+ * images. Components are compared against the typical text height of the image, being the median height of its
+ * components, so this works before any line bounds are known and the dropped components may be left out of them.
+ * Instead, the rows covered by text sized components are taken as the lines of text, so long and thin characters in a
+ * line, such as runs of underscores, separators like {@code ====} and box-drawing lines, are kept.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class NonTextComponentFilter implements ComponentFilter {
+
+    /**
+     * How many times the text height the longer side of a component may be.
+     */
+    public static final double MAX_SIZE_RATIO = 4;
+
+    /**
+     * How many times the text height both sides of a component may be while being mostly filled.
+     */
+    public static final double MAX_SOLID_SIZE_RATIO = 1.5;
+
+    /**
+     * The fill density above which a component is mostly filled.
+     */
+    public static final double SOLID_FILL_DENSITY = 0.6;
+
+    /**
+     * The fraction of the text height a component's mean horizontal run length may be, if it's taller than the text.
+     */
+    public static final double MAX_STROKE_RATIO = 0.5;
+
+    /**
+     * The fraction of the text height below a text sized component that is still part of its line, leaving room for
+     * underscores below the letters.
+     */
+    public static final double UNDERLINE_RATIO = 0.5;
+
+    private final double textHeight;
+    private final BitSet textRows;
+
+    /**
+     * Creates a {@link NonTextComponentFilter} without any known lines of text, so every component longer than
+     * {@link #MAX_SIZE_RATIO} times the text height is dropped.
+     *
+     * @param textHeight The typical height of text in the image
+     */
+    public NonTextComponentFilter(double textHeight) {
+        this(textHeight, new BitSet());
+    }
+
+    /**
+     * Creates a {@link NonTextComponentFilter}.
+     *
+     * @param textHeight The typical height of text in the image
+     * @param textRows   The rows of the image in lines of text
+     */
+    public NonTextComponentFilter(double textHeight, BitSet textRows) {
+        this.textHeight = textHeight;
+        this.textRows = textRows;
+    }
+
+    /**
+     * Creates a {@link NonTextComponentFilter} with the median height of the given components as the text height, and
+     * the rows covered by components no longer than {@link #MAX_SIZE_RATIO} times it as the lines of text. Components
+     * with no side longer than 2 pixels are ignored, so speckles don't lower the text height.
+     *
+     * @param components The components of the image
+     * @return The created {@link NonTextComponentFilter}, or {@link ComponentFilter#NONE} if no component is large
+     * enough to get the text height from
+     */
+    public static ComponentFilter of(List<ConnectedComponent> components) {
+        var heights = components.stream()
+                .filter(component -> Math.max(component.getWidth(), component.getHeight()) > 2)
+                .mapToInt(ConnectedComponent::getHeight)
+                .sorted()
+                .toArray();
+
+        if (heights.length == 0) return ComponentFilter.NONE;
+        double textHeight = heights[heights.length / 2];
+
+        var textRows = new BitSet();
+        int underline = (int) Math.ceil(textHeight * UNDERLINE_RATIO);
+        for (var component : components) {
+            int longest = Math.max(component.getWidth(), component.getHeight());
+            if (longest <= 2 || longest > textHeight * MAX_SIZE_RATIO) continue;
+            textRows.set(component.getY(), component.getY() + component.getHeight() + underline);
+        }
+
+        return new NonTextComponentFilter(textHeight, textRows);
+    }
+
+    @Override
+    public boolean accept(ConnectedComponent component, int lineHeight) {
+        return !isNonText(component);
+    }
+
+    /**
+     * Gets if the given component is not text.
+     *
+     * @param component The component to check
+     * @return If the component is not text
+     */
+    public boolean isNonText(ConnectedComponent component) {
+        double longest = Math.max(component.getWidth(), component.getHeight());
+        double shortest = Math.min(component.getWidth(), component.getHeight());
+
+        // Borders, rules and anything else far larger than the text, unless it's as thin as a stroke and within a line
+        // of text, such as underscores or a separator
+        if (longest > this.textHeight * MAX_SIZE_RATIO && !(shortest <= this.textHeight * MAX_STROKE_RATIO && isInLine(component))) return true;
+
+        // Icons and images are larger than the text in both directions, and mostly filled
+        if (shortest > this.textHeight * MAX_SOLID_SIZE_RATIO && component.getFillDensity() > SOLID_FILL_DENSITY) return true;
+
+        // Text strokes are thin, while pictures have long runs of pixels
+        return component.getHeight() > this.textHeight && component.getMeanRunLength() > this.textHeight * MAX_STROKE_RATIO;
+    }
+
+    /**
+     * Gets if every row of the given component is within a line of text.
+     *
+     * @param component The component to check
+     * @return If the component is within a line of text
+     */
+    private boolean isInLine(ConnectedComponent component) {
+        return this.textRows.nextClearBit(component.getY()) >= component.getY() + component.getHeight();
+    }
+
+    /**
+     * Gets the typical height of text in the image.
+     *
+     * @return The text height
+     */
+    public double getTextHeight() {
+        return this.textHeight;
+    }
+}
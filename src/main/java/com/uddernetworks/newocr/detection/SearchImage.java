@@ -1,17 +1,23 @@
 package com.uddernetworks.newocr.detection;
 
 import com.uddernetworks.newocr.utils.IntPair;
+import com.uddernetworks.newocr.utils.OCRUtils;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 /**
  * Provides a way to easily get touching coordinates of black pixels.
  * This uses a boolean array, because they will always be either black
  * or white, and it's *much* faster than reading an image's color.
+ * <br>
+ * A {@link SearchImage} created from a grid owns it, and {@link SearchImage#hasValue(int, int)} clears the pixels it
+ * visits in the grid. A view from {@link SearchImage#getView(int, int, int, int)} instead reads the grid of its parent
+ * without copying it, and keeps the pixels it has visited in its own bitset, so it never changes its parent.
  *
  * @author Adam Yarris
  * @version 2.0.0
@@ -19,15 +25,56 @@ import java.util.List;
  */
 public class SearchImage {
 
-    private boolean[][] values;
+    private final boolean[][] values;
+    private final int offsetX;
+    private final int offsetY;
+    private final int width;
+    private final int height;
+    private final BitSet visited; // Only used by views, indexed by y * width + x
+    private int[] rowProfile;
 
     /**
-     * Creates a {@link SearchImage} from a boolean grid.
+     * Creates a {@link SearchImage} from a boolean grid, counting its row projection profile.
      *
      * @param values The boolean grid of the image
      */
     public SearchImage(boolean[][] values) {
+        this(values, OCRUtils.getRowProfile(values));
+    }
+
+    /**
+     * Creates a {@link SearchImage} from a boolean grid and its already counted row projection profile, such as the
+     * one returned by {@link OCRUtils#toGrid(BufferedImage, boolean[][])}.
+     *
+     * @param values     The boolean grid of the image
+     * @param rowProfile The amount of black pixels in each row of the grid
+     */
+    public SearchImage(boolean[][] values, int[] rowProfile) {
+        this.values = values;
+        this.offsetX = 0;
+        this.offsetY = 0;
+        this.width = values.length == 0 ? 0 : values[0].length;
+        this.height = values.length;
+        this.visited = null;
+        this.rowProfile = rowProfile;
+    }
+
+    /**
+     * Creates a view of the given grid.
+     *
+     * @param values  The boolean grid of the root image
+     * @param offsetX The X position in the grid the view starts at
+     * @param offsetY The Y position in the grid the view starts at
+     * @param width   The width of the view
+     * @param height  The height of the view
+     */
+    private SearchImage(boolean[][] values, int offsetX, int offsetY, int width, int height) {
         this.values = values;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.width = width;
+        this.height = height;
+        this.visited = new BitSet(width * height);
     }
 
     /**
@@ -101,17 +148,28 @@ public class SearchImage {
     }
 
     /**
-     * Gets the value of the given coordinates. If it's true, it will set the value to false and return true.
+     * Gets the value of the given coordinates. If it's true, it will set the value to false and return true. For a
+     * view, the pixel is instead marked as visited in the view, leaving the parent unchanged.
      *
      * @param x The X coordinate to check
      * @param y The Y coordinate to check
      * @return The value of the coordinate, or false if the position is inexistant
      */
     public boolean hasValue(int x, int y) {
-        if (x < 0 || y < 0 || y >= values.length || x >= values[y].length) return false;
-        boolean value = values[y][x];
-        values[y][x] = false;
-        return value;
+        if (this.visited == null) {
+            if (x < 0 || y < 0 || y >= values.length || x >= values[y].length) return false;
+            boolean value = values[y][x];
+            values[y][x] = false;
+            return value;
+        }
+
+        if (x < 0 || y < 0 || y >= this.height || x >= this.width) return false;
+        if (!values[y + this.offsetY][x + this.offsetX]) return false;
+
+        int index = y * this.width + x;
+        if (this.visited.get(index)) return false;
+        this.visited.set(index);
+        return true;
     }
 
     /**
@@ -123,16 +181,59 @@ public class SearchImage {
      * @return The value of the coordinates
      */
     public boolean getValue(int x, int y) {
-        return values[y][x];
+        if (this.visited == null) return values[y][x];
+        return values[y + this.offsetY][x + this.offsetX] && !this.visited.get(y * this.width + x);
     }
 
     /**
-     * Gets the raw values grid.
+     * Gets the raw values grid. For a view, this is a copy of the view's pixels that have not been visited.
      *
      * @return The raw values grid
      */
     public boolean[][] getValues() {
-        return values;
+        if (this.visited == null) return values;
+
+        var copy = new boolean[this.height][this.width];
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                copy[y][x] = getValue(x, y);
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Gets if this {@link SearchImage} is a view of another {@link SearchImage}'s grid, made by
+     * {@link SearchImage#getView(int, int, int, int)}.
+     *
+     * @return If this is a view
+     */
+    public boolean isView() {
+        return this.visited != null;
+    }
+
+    /**
+     * Gets the row projection profile, being the amount of black pixels in each row of the image. This is of the image
+     * as it was created, before any values were cleared by {@link SearchImage#hasValue(int, int)}. A view counts its
+     * own profile when this is first invoked.
+     *
+     * @return The amount of black pixels in each row, indexed by the Y coordinate
+     */
+    public int[] getRowProfile() {
+        if (rowProfile == null) {
+            var counted = new int[this.height];
+            for (int y = 0; y < this.height; y++) {
+                var row = values[y + this.offsetY];
+                for (int x = 0; x < this.width; x++) {
+                    if (row[x + this.offsetX]) counted[y]++;
+                }
+            }
+
+            rowProfile = counted;
+        }
+
+        return rowProfile;
     }
 
     /**
@@ -141,7 +242,7 @@ public class SearchImage {
      * @return The width of the image
      */
     public int getWidth() {
-        return this.values[0].length;
+        return this.width;
     }
 
     /**
@@ -150,11 +251,12 @@ public class SearchImage {
      * @return The height of the image
      */
     public int getHeight() {
-        return this.values.length;
+        return this.height;
     }
 
     /**
-     * Gets a {@link SearchImage} from the bounds of the current image.
+     * Gets a {@link SearchImage} from the bounds of the current image, copying its pixels into a new grid. See
+     * {@link SearchImage#getView(int, int, int, int)} to avoid the copy.
      *
      * @param x      The X position to start at
      * @param y      The Y position to start at
@@ -163,6 +265,8 @@ public class SearchImage {
      * @return The inner image from the coordinates given
      */
     public SearchImage getSubimage(int x, int y, int width, int height) {
+        if (this.visited != null) return new SearchImage(getView(x, y, width, height).getValues());
+
         var sub = new boolean[height][];
 
         for (int i = 0; i < height; i++) {
@@ -172,10 +276,38 @@ public class SearchImage {
         return new SearchImage(sub);
     }
 
+    /**
+     * Gets a view of the bounds of the current image, reading the same grid without copying it. The view has its own
+     * coordinates starting at 0, 0, and pixels visited by {@link SearchImage#hasValue(int, int)} in the view are only
+     * marked in the view, so this image is never changed by it. Pixels cleared in this image after the view is made
+     * are seen by the view, unless this image is a view itself.
+     *
+     * @param x      The X position to start at
+     * @param y      The Y position to start at
+     * @param width  The width of the view
+     * @param height The height of the view
+     * @return The view of the coordinates given
+     */
+    public SearchImage getView(int x, int y, int width, int height) {
+        if (this.visited == null) return new SearchImage(this.values, x, y, width, height);
+
+        // Pixels visited in this view are not shared with the new view, so they are copied into its own bitset
+        var view = new SearchImage(this.values, x + this.offsetX, y + this.offsetY, width, height);
+        for (int i = this.visited.nextSetBit(0); i >= 0; i = this.visited.nextSetBit(i + 1)) {
+            int visitedX = i % this.width - x;
+            int visitedY = i / this.width - y;
+            if (visitedX >= 0 && visitedY >= 0 && visitedX < width && visitedY < height) {
+                view.visited.set(visitedY * width + visitedX);
+            }
+        }
+
+        return view;
+    }
+
     @Override
     public String toString() {
         var ret = new StringBuilder();
-        for (var row : this.values) {
+        for (var row : getValues()) {
             for (var val : row) {
                 ret.append(val ? '\uff03' : '\uff0e');
             }
@@ -190,9 +322,9 @@ public class SearchImage {
         var black = Color.BLACK.getRGB();
         var white = Color.WHITE.getRGB();
 
-        for (int y = 0; y < this.values.length; y++) {
-            for (int x = 0; x < this.values[0].length; x++) {
-                image.setRGB(x, y, this.values[y][x] ? black : white);
+        for (int y = 0; y < getHeight(); y++) {
+            for (int x = 0; x < getWidth(); x++) {
+                image.setRGB(x, y, getValue(x, y) ? black : white);
             }
         }
 
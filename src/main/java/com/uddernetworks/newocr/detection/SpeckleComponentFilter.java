@@ -0,0 +1,85 @@
+package com.uddernetworks.newocr.detection;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
+import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
+
+/**
+ * A {@link ComponentFilter} dropping speckles, being components with fewer pixels than a minimum area, or whose larger
+ * side is smaller than a fraction of their line's height. The fraction is usually derived from the smallest trained
+ * dot, so real dots are always kept.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class SpeckleComponentFilter implements ComponentFilter {
+
+    private final int minArea;
+    private final double minSizeRatio;
+
+    /**
+     * Creates a {@link SpeckleComponentFilter}.
+     *
+     * @param minArea      The minimum amount of pixels of a component
+     * @param minSizeRatio The minimum size of the larger side of a component divided by its line's height
+     */
+    public SpeckleComponentFilter(int minArea, double minSizeRatio) {
+        this.minArea = minArea;
+        this.minSizeRatio = minSizeRatio;
+    }
+
+    /**
+     * Creates a {@link SpeckleComponentFilter} with its minimum size derived from the smallest character of the given
+     * {@link SimilarRule} in the {@link ModelSnapshot}, relative to the average trained line height.
+     *
+     * @param snapshot  The {@link ModelSnapshot} to get the trained sizes from
+     * @param dotRule   The {@link SimilarRule} of the smallest characters, usually the "dot" rule
+     * @param tolerance The fraction of the smallest character's size a component may be, where 0 disables the minimum
+     *                  size and 1 drops anything smaller than the average smallest character
+     * @param minArea   The minimum amount of pixels of a component
+     * @return The created {@link SpeckleComponentFilter}
+     */
+    public static SpeckleComponentFilter of(ModelSnapshot snapshot, SimilarRule dotRule, double tolerance, int minArea) {
+        // The trained height of the space is the average height of the training lines
+        var lineHeight = snapshot.getCharacters().stream()
+                .filter(character -> character.getLetter() == ' ')
+                .mapToDouble(DatabaseCharacter::getAvgHeight)
+                .findFirst()
+                .orElse(0);
+
+        var smallest = snapshot.getCharacters().stream()
+                .filter(character -> GlyphRegistry.getLetterEnum(GlyphRegistry.getId(character.getLetter(), character.getModifier())).map(dotRule::matchesLetter).orElse(false))
+                .mapToDouble(character -> Math.max(character.getAvgWidth(), character.getAvgHeight()))
+                .filter(size -> size > 0)
+                .min();
+
+        if (lineHeight <= 0 || smallest.isEmpty()) return new SpeckleComponentFilter(minArea, 0);
+        return new SpeckleComponentFilter(minArea, smallest.getAsDouble() / lineHeight * tolerance);
+    }
+
+    @Override
+    public boolean accept(ConnectedComponent component, int lineHeight) {
+        if (component.getArea() < this.minArea) return false;
+        return Math.max(component.getWidth(), component.getHeight()) >= this.minSizeRatio * lineHeight;
+    }
+
+    /**
+     * Gets the minimum amount of pixels of a component.
+     *
+     * @return The minimum area
+     */
+    public int getMinArea() {
+        return this.minArea;
+    }
+
+    /**
+     * Gets the minimum size of the larger side of a component divided by its line's height.
+     *
+     * @return The minimum size ratio
+     */
+    public double getMinSizeRatio() {
+        return this.minSizeRatio;
+    }
+}
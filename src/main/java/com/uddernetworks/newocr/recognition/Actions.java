@@ -4,6 +4,8 @@ import com.uddernetworks.newocr.character.DatabaseCharacter;
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.character.SearchCharacter;
 import com.uddernetworks.newocr.character.TrainedCharacterData;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.detection.ConnectedComponent;
 import com.uddernetworks.newocr.detection.SearchImage;
 import com.uddernetworks.newocr.train.OCROptions;
 import com.uddernetworks.newocr.utils.IntPair;
@@ -12,6 +14,7 @@ import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.function.Predicate;
 
 /**
  * A class to provide general actions for the OCR.
@@ -32,6 +35,34 @@ public interface Actions {
      */
     void getLetters(SearchImage searchImage, List<SearchCharacter> searchCharacters);
 
+    /**
+     * Gets the {@link SearchCharacter} characters found in the given {@link SearchImage}, the same as
+     * {@link #getLetters(SearchImage, List)} but only segmenting and adding the components accepted by the given filter.
+     *
+     * @param searchImage      The image to scan
+     * @param searchCharacters The list that will have all of the {@link SearchCharacter}s added to
+     * @param filter           Gets if a found component should be added
+     */
+    void getLetters(SearchImage searchImage, List<SearchCharacter> searchCharacters, Predicate<ConnectedComponent> filter);
+
+    /**
+     * Creates and segments a {@link SearchCharacter} of every component accepted by the given filter, in order.
+     *
+     * @param components       The components, usually from {@link #getComponents(SearchImage)}
+     * @param searchCharacters The list that will have all of the {@link SearchCharacter}s added to
+     * @param filter           Gets if a component should be added
+     */
+    void getLetters(List<ConnectedComponent> components, List<SearchCharacter> searchCharacters, Predicate<ConnectedComponent> filter);
+
+    /**
+     * Gets every {@link ConnectedComponent} in the given {@link SearchImage}, from the top left. Visited pixels are
+     * cleared from the image as they are with {@link #getLetters(SearchImage, List)}.
+     *
+     * @param searchImage The image to scan
+     * @return The components found
+     */
+    List<ConnectedComponent> getComponents(SearchImage searchImage);
+
     /**
      * Gets the {@link SearchCharacter}s found in training. This is different because it assumes that there are whole
      * lines to help group characters.
@@ -41,6 +72,17 @@ public interface Actions {
      */
     List<CharacterLine> getLettersDuringTraining(SearchImage searchImage);
 
+    /**
+     * Gets the {@link SearchCharacter}s found in training within a single line of the training image, found from
+     * {@link #getLineBoundsForTraining(SearchImage)}. The given {@link SearchImage} is not modified, so multiple lines
+     * of the same image may be processed concurrently.
+     *
+     * @param searchImage The training image to scan
+     * @param lineBounds  The top and bottom Y values of the line
+     * @return The line containing the characters found
+     */
+    CharacterLine getLettersDuringTraining(SearchImage searchImage, IntPair lineBounds);
+
     /**
      * Actually matches the {@link SearchCharacter} object to a real character from the database.
      *
@@ -59,6 +101,28 @@ public interface Actions {
      */
     Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, IntPair lineBounds);
 
+    /**
+     * Actually matches the {@link SearchCharacter} object to a real character from the given {@link ModelSnapshot}
+     * with line bounds for improved accuracy. Every other character is kept as {@link ImageLetter#getClosestMatches()},
+     * unless {@link OCROptions#getMaxClosestMatches()} limits them.
+     *
+     * @param searchCharacter The input {@link SearchCharacter} to match to
+     * @param lineBounds      The line bounds (Key/value is top/bottom Y values respectively) for improved accuracy
+     * @param snapshot        The {@link ModelSnapshot} to get the characters from
+     * @return The {@link ImageLetter} object with the {@link DatabaseCharacter} inside it containing the found character
+     */
+    Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, IntPair lineBounds, ModelSnapshot snapshot);
+
+    /**
+     * Matches every given {@link SearchCharacter} to a real character from the given {@link ModelSnapshot} at once,
+     * giving the same results as {@link #getCharacterFor(SearchCharacter, IntPair, ModelSnapshot)} for each of them.
+     *
+     * @param searchCharacters The input {@link SearchCharacter}s to match to, usually being all of a page
+     * @param snapshot         The {@link ModelSnapshot} to get the characters from
+     * @return The found character of each {@link SearchCharacter}, in the same order, being empty if none was found
+     */
+    List<Optional<ImageLetter>> getCharactersFor(List<SearchCharacter> searchCharacters, ModelSnapshot snapshot);
+
     /**
      * Actually matches the {@link SearchCharacter} object to a real character from the database.
      *
@@ -108,14 +172,33 @@ public interface Actions {
     OptionalDouble getFontSize(ImageLetter imageLetter);
 
     /**
-     * Gets the top and bottom line bounds found from the value 2D array. This is used for getting characters for
-     * training data.
+     * Gets the estimated font size for the given {@link ImageLetter} from the font sizes of the given
+     * {@link ModelSnapshot}.
+     *
+     * @param imageLetter The {@link ImageLetter} to get the font size of
+     * @param snapshot    The {@link ModelSnapshot} to get the font sizes from
+     * @return The font size in pixels
+     */
+    OptionalDouble getFontSize(ImageLetter imageLetter, ModelSnapshot snapshot);
+
+    /**
+     * Gets the top and bottom line bounds found from the row projection profile of the image, see
+     * {@link SearchImage#getRowProfile()}. This is used for getting characters for training data.
      *
      * @param image The image to get the line bounds from
      * @return A list of the absolute top and bottom line values
      */
     List<IntPair> getLineBoundsForTraining(SearchImage image);
 
+    /**
+     * Gets the top and bottom line bounds found from the given row projection profile, the same way as
+     * {@link #getLineBoundsForTraining(SearchImage)}.
+     *
+     * @param rowProfile The amount of black pixels in each row
+     * @return A list of the absolute top and bottom line values
+     */
+    List<IntPair> getLineBounds(int[] rowProfile);
+
     /**
      * Gets the {@link OCROptions} the {@link Actions} is using.
      *
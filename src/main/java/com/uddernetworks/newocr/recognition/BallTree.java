@@ -0,0 +1,219 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.utils.OCRUtils;
+
+/**
+ * An exact nearest neighbour index over packed points by their Euclidean distance. Every node is a ball around the
+ * centroid of its points that holds all of them, split in two around its two furthest apart points, so a whole node
+ * can be skipped once its ball is known to be further from the query than the closest points found so far. Trained
+ * characters come in groups of similar shapes, which balls fit far tighter than any split around a single point.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class BallTree {
+
+    /**
+     * The maximum amount of points in a leaf, which are compared one by one.
+     */
+    public static final int LEAF_SIZE = 8;
+
+    private final double[] points;
+    private final int dimensions;
+    private final int[] order;
+
+    // Every node is a range of the order, with the centroid and radius of its points
+    private final int[] nodeStart;
+    private final int[] nodeEnd;
+    private final int[] leftChild;
+    private final int[] rightChild;
+    private final double[] centroids;
+    private final double[] radii;
+    private int nodes;
+
+    /**
+     * Creates a {@link BallTree} of the given points.
+     *
+     * @param points     The coordinates of every point, one point after another
+     * @param dimensions The amount of coordinates of each point
+     */
+    public BallTree(double[] points, int dimensions) {
+        this.points = points;
+        this.dimensions = dimensions;
+
+        int size = dimensions == 0 ? 0 : points.length / dimensions;
+        this.order = new int[size];
+        for (int i = 0; i < size; i++) this.order[i] = i;
+
+        // A binary tree with at least one point in every leaf has fewer than twice as many nodes as points
+        int maxNodes = Math.max(1, 2 * size);
+        this.nodeStart = new int[maxNodes];
+        this.nodeEnd = new int[maxNodes];
+        this.leftChild = new int[maxNodes];
+        this.rightChild = new int[maxNodes];
+        this.centroids = new double[maxNodes * dimensions];
+        this.radii = new double[maxNodes];
+
+        if (size > 0) build(0, size);
+    }
+
+    /**
+     * Visits every point that may be within the bound of the query, skipping nodes further away. The bound may be
+     * lowered by the {@link Visitor} as closer points are found. Like the nodes, points are given to the
+     * {@link Visitor} if they are within the bound widened by a tiny fraction, so no point on the bound is skipped by
+     * rounding.
+     *
+     * @param query   The array containing the coordinates of the query
+     * @param offset  The index of the query's coordinates in the array
+     * @param bound   The squared distance above which points aren't needed
+     * @param visitor The {@link Visitor} given every point that may be within the bound
+     */
+    public void search(double[] query, int offset, double bound, Visitor visitor) {
+        if (this.nodes > 0 && isWithin(getMinDistance(0, query, offset, bound), bound)) search(0, query, offset, bound, visitor);
+    }
+
+    private double search(int node, double[] query, int offset, double bound, Visitor visitor) {
+        int left = this.leftChild[node];
+
+        if (left == -1) {
+            for (int i = this.nodeStart[node]; i < this.nodeEnd[node]; i++) {
+                int point = this.order[i];
+                double reach = bound * (1 + 1E-9);
+                double distance = OCRUtils.getDifferencesFrom(query, offset, this.points, point * this.dimensions, this.dimensions, 0, reach);
+                if (distance <= reach) bound = visitor.visit(point, distance);
+            }
+
+            return bound;
+        }
+
+        int right = this.rightChild[node];
+        double leftDistance = getMinDistance(left, query, offset, bound);
+        double rightDistance = getMinDistance(right, query, offset, bound);
+
+        // The closer ball is searched first, as it's the most likely to lower the bound
+        int first = leftDistance <= rightDistance ? left : right;
+        int second = first == left ? right : left;
+        double secondDistance = first == left ? rightDistance : leftDistance;
+
+        if (isWithin(Math.min(leftDistance, rightDistance), bound)) bound = search(first, query, offset, bound, visitor);
+        if (isWithin(secondDistance, bound)) bound = search(second, query, offset, bound, visitor);
+        return bound;
+    }
+
+    /**
+     * Gets the smallest distance any point of the given node may be from the query. The distance to the centroid is
+     * abandoned once the whole ball is known to be out of the bound, giving a distance that is still out of it.
+     *
+     * @param node   The node
+     * @param query  The array containing the coordinates of the query
+     * @param offset The index of the query's coordinates in the array
+     * @param bound  The squared distance above which points aren't needed
+     * @return The minimum distance, which may be negative if the query is in the node's ball
+     */
+    private double getMinDistance(int node, double[] query, int offset, double bound) {
+        double reach = Math.sqrt(bound * (1 + 1E-9)) + this.radii[node];
+        double centroidDistance = OCRUtils.getDifferencesFrom(query, offset, this.centroids, node * this.dimensions, this.dimensions, 0, reach * reach);
+        return Math.sqrt(centroidDistance) - this.radii[node];
+    }
+
+    /**
+     * Gets if points at least the given distance away may be within the squared bound. The bound is widened by a
+     * tiny fraction so rounding never skips a point exactly on it.
+     *
+     * @param minDistance The minimum distance of the points, which may be negative
+     * @param bound       The squared distance above which points aren't needed
+     * @return If the points may be within the bound
+     */
+    private static boolean isWithin(double minDistance, double bound) {
+        return minDistance <= 0 || minDistance * minDistance <= bound * (1 + 1E-9);
+    }
+
+    private int build(int start, int end) {
+        int node = this.nodes++;
+        this.nodeStart[node] = start;
+        this.nodeEnd[node] = end;
+        this.leftChild[node] = -1;
+        this.rightChild[node] = -1;
+
+        int dimensions = this.dimensions;
+        int centroid = node * dimensions;
+        for (int i = start; i < end; i++) {
+            int point = this.order[i] * dimensions;
+            for (int j = 0; j < dimensions; j++) this.centroids[centroid + j] += this.points[point + j];
+        }
+
+        for (int j = 0; j < dimensions; j++) this.centroids[centroid + j] /= end - start;
+
+        // The radius and the point furthest from the centroid
+        double radius = 0;
+        int furthest = this.order[start];
+        for (int i = start; i < end; i++) {
+            double distance = getDistance(this.centroids, centroid, this.order[i]);
+            if (distance > radius) {
+                radius = distance;
+                furthest = this.order[i];
+            }
+        }
+
+        this.radii[node] = Math.sqrt(radius);
+        if (end - start <= LEAF_SIZE) return node;
+
+        // The point furthest from that is the other side of the split
+        int opposite = furthest;
+        double oppositeDistance = -1;
+        for (int i = start; i < end; i++) {
+            double distance = getDistance(this.points, furthest * dimensions, this.order[i]);
+            if (distance > oppositeDistance) {
+                oppositeDistance = distance;
+                opposite = this.order[i];
+            }
+        }
+
+        // Points closer to the furthest point go left, the rest go right
+        int middle = start;
+        for (int i = start; i < end; i++) {
+            int point = this.order[i];
+            if (getDistance(this.points, furthest * dimensions, point) <= getDistance(this.points, opposite * dimensions, point)) {
+                this.order[i] = this.order[middle];
+                this.order[middle++] = point;
+            }
+        }
+
+        // Identical points can't be told apart, so they're split in half instead
+        if (middle == start || middle == end) middle = start + (end - start) / 2;
+
+        this.leftChild[node] = build(start, middle);
+        this.rightChild[node] = build(middle, end);
+        return node;
+    }
+
+    private double getDistance(double[] array, int offset, int point) {
+        return OCRUtils.getDifferencesFrom(array, offset, this.points, point * this.dimensions, this.dimensions, 0, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Gets the amount of points in the tree.
+     *
+     * @return The amount of points
+     */
+    public int size() {
+        return this.order.length;
+    }
+
+    /**
+     * Given every point found by {@link #search(double[], int, double, Visitor)} that may be within its bound.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Visits a point.
+         *
+         * @param point    The index of the point
+         * @param distance The squared distance of the point to the query
+         * @return The new bound of the search, being at most the current bound
+         */
+        double visit(int point, double distance);
+    }
+}
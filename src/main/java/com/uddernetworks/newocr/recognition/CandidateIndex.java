@@ -0,0 +1,332 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
+import com.uddernetworks.newocr.utils.OCRUtils;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The segment data of every trained character packed into one array, for finding the closest characters to a
+ * {@link com.uddernetworks.newocr.character.SearchCharacter} without comparing every segment of every character. The
+ * segments are stored in order of their variance across the trained characters, so the segments telling characters
+ * apart the most are compared first, and a character is abandoned once its partial difference is worse than the
+ * closest characters found so far. Whole pages of scanned characters are matched at once in cache sized tiles, and
+ * models of at least {@link #TREE_THRESHOLD} characters, such as large alphabets, are searched with a {@link BallTree}
+ * instead of comparing every character.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class CandidateIndex {
+
+    /**
+     * The amount of scanned characters in a tile of {@link #findClosest(double[][], double[], double[], CandidateMatches, int, int)}.
+     */
+    public static final int GLYPH_BLOCK = 64;
+
+    /**
+     * The amount of characters of the index in a tile of {@link #findClosest(double[][], double[], double[], CandidateMatches, int, int)}.
+     */
+    public static final int CANDIDATE_BLOCK = 32;
+
+    /**
+     * The amount of characters at which an index is searched with a {@link BallTree} instead of comparing
+     * every character, as below it the tree costs more than it skips.
+     */
+    public static final int TREE_THRESHOLD = 512;
+
+    private final DatabaseCharacter[] characters;
+    private final int[] glyphIds;
+    private final double[] ratios;
+    private final int[] dimensionOrder;
+    private final int dimensions;
+    private final double[] segments;
+    private final boolean useTree;
+    private BallTree tree;
+    private double treeRatioScale;
+
+    private CandidateIndex(DatabaseCharacter[] characters, int[] dimensionOrder, double[] segments, boolean useTree) {
+        this.characters = characters;
+        this.dimensionOrder = dimensionOrder;
+        this.dimensions = dimensionOrder.length;
+        this.segments = segments;
+        this.glyphIds = new int[characters.length];
+        this.ratios = new double[characters.length];
+        this.useTree = useTree;
+
+        for (int i = 0; i < characters.length; i++) {
+            var character = characters[i];
+            this.glyphIds[i] = GlyphRegistry.getId(character.getLetter(), character.getModifier());
+            this.ratios[i] = character.getAvgWidth() / character.getAvgHeight();
+        }
+    }
+
+    /**
+     * Creates a {@link CandidateIndex} of the given characters, with a {@link BallTree} if there are at least
+     * {@link #TREE_THRESHOLD} characters.
+     *
+     * @param characters The trained characters
+     * @return The created {@link CandidateIndex}
+     */
+    public static CandidateIndex of(List<DatabaseCharacter> characters) {
+        return of(characters, TREE_THRESHOLD);
+    }
+
+    /**
+     * Creates a {@link CandidateIndex} of the given characters. Characters without the same amount of segments as the
+     * first character with segments are left out, as they could never be matched.
+     *
+     * @param characters    The trained characters
+     * @param treeThreshold The amount of characters at which a {@link BallTree} is built
+     * @return The created {@link CandidateIndex}
+     */
+    public static CandidateIndex of(List<DatabaseCharacter> characters, int treeThreshold) {
+        var used = new ArrayList<DatabaseCharacter>(characters.size());
+        int dimensions = -1;
+
+        for (var character : characters) {
+            var data = character.getData();
+            if (data == null) continue;
+            if (dimensions == -1) dimensions = data.length;
+            if (data.length == dimensions) used.add(character);
+        }
+
+        if (dimensions == -1) dimensions = 0;
+
+        // The variance of every segment across all characters
+        var mean = new double[dimensions];
+        var variance = new double[dimensions];
+        for (var character : used) {
+            var data = character.getData();
+            for (int i = 0; i < dimensions; i++) mean[i] += data[i];
+        }
+
+        for (int i = 0; i < dimensions; i++) mean[i] /= Math.max(1, used.size());
+
+        for (var character : used) {
+            var data = character.getData();
+            for (int i = 0; i < dimensions; i++) {
+                double difference = data[i] - mean[i];
+                variance[i] += difference * difference;
+            }
+        }
+
+        var dimensionOrder = new int[dimensions];
+        for (int i = 0; i < dimensions; i++) dimensionOrder[i] = i;
+        IntArrays.mergeSort(dimensionOrder, (first, second) -> Double.compare(variance[second], variance[first]));
+
+        var segments = new double[used.size() * dimensions];
+        for (int i = 0; i < used.size(); i++) {
+            var data = used.get(i).getData();
+            for (int j = 0; j < dimensions; j++) segments[i * dimensions + j] = data[dimensionOrder[j]];
+        }
+
+        return new CandidateIndex(used.toArray(DatabaseCharacter[]::new), dimensionOrder, segments, used.size() >= treeThreshold);
+    }
+
+    /**
+     * Finds the closest characters to each of the given scanned characters. The difference of a character is its
+     * weighted squared width/height ratio difference plus its squared segment differences, and it's abandoned as soon
+     * as it's worse than the closest characters found so far for the scanned character.
+     *
+     * @param inputs       The segment percentages of every scanned character
+     * @param searchRatios The width/height ratio of every scanned character
+     * @param ratioWeights The weight of the width/height ratio difference of every character in the index
+     * @param limit        The maximum amount of characters to find for each scanned character
+     * @return The {@link CandidateMatches} of every scanned character
+     */
+    public CandidateMatches findClosest(double[][] inputs, double[] searchRatios, double[] ratioWeights, int limit) {
+        var matches = new CandidateMatches(inputs.length, Math.max(1, limit));
+        findClosest(inputs, searchRatios, ratioWeights, matches, 0, inputs.length);
+        return matches;
+    }
+
+    /**
+     * Finds the closest characters to a range of the given scanned characters, like
+     * {@link #findClosest(double[][], double[], double[], int)}. The distances are computed in tiles of
+     * {@link #GLYPH_BLOCK} scanned characters by {@link #CANDIDATE_BLOCK} characters of the index, so each block of the
+     * index is read from memory once per tile instead of once per scanned character. Indices with a
+     * {@link BallTree} search it for each scanned character instead. Disjoint ranges may be found concurrently
+     * with the same {@link CandidateMatches}.
+     *
+     * @param inputs       The segment percentages of every scanned character
+     * @param searchRatios The width/height ratio of every scanned character
+     * @param ratioWeights The weight of the width/height ratio difference of every character in the index
+     * @param matches      The {@link CandidateMatches} to add the found characters to
+     * @param from         The index of the first scanned character, inclusive
+     * @param to           The index of the last scanned character, exclusive
+     */
+    public void findClosest(double[][] inputs, double[] searchRatios, double[] ratioWeights, CandidateMatches matches, int from, int to) {
+        if (this.useTree) {
+            findClosestWithTree(inputs, searchRatios, ratioWeights, matches, from, to);
+            return;
+        }
+
+        int dimensions = this.dimensions;
+        var ordered = new double[GLYPH_BLOCK * dimensions];
+
+        for (int glyphStart = from; glyphStart < to; glyphStart += GLYPH_BLOCK) {
+            int glyphEnd = Math.min(to, glyphStart + GLYPH_BLOCK);
+
+            // The segments of the tile's scanned characters, reordered like the index
+            for (int glyph = glyphStart; glyph < glyphEnd; glyph++) {
+                var input = inputs[glyph];
+                if (input == null || input.length != dimensions) continue;
+
+                int offset = (glyph - glyphStart) * dimensions;
+                for (int i = 0; i < dimensions; i++) ordered[offset + i] = input[this.dimensionOrder[i]];
+            }
+
+            for (int candidateStart = 0; candidateStart < this.characters.length; candidateStart += CANDIDATE_BLOCK) {
+                int candidateEnd = Math.min(this.characters.length, candidateStart + CANDIDATE_BLOCK);
+
+                for (int glyph = glyphStart; glyph < glyphEnd; glyph++) {
+                    var input = inputs[glyph];
+                    if (input == null || input.length != dimensions) continue;
+
+                    int offset = (glyph - glyphStart) * dimensions;
+                    double searchRatio = searchRatios[glyph];
+                    double bound = matches.getBound(glyph);
+
+                    for (int candidate = candidateStart; candidate < candidateEnd; candidate++) {
+                        double ratioDifference = getRatioDifference(candidate, searchRatio, ratioWeights);
+                        double difference = OCRUtils.getDifferencesFrom(ordered, offset, this.segments, candidate * dimensions, dimensions, 0, bound - ratioDifference);
+                        if (difference > bound - ratioDifference) continue;
+
+                        matches.offer(glyph, candidate, difference + ratioDifference);
+                        bound = matches.getBound(glyph);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the closest characters to a range of the given scanned characters by searching the {@link BallTree}. Every
+     * point of the tree has the character's width/height ratio scaled by the smallest ratio weight as an extra
+     * coordinate, so the squared distance to a point is never more than the difference of its character, and the tree
+     * can skip characters by either their segments or their ratio. Characters the tree finds are then compared exactly
+     * like the brute force search, so both give the same matches.
+     */
+    private void findClosestWithTree(double[][] inputs, double[] searchRatios, double[] ratioWeights, CandidateMatches matches, int from, int to) {
+        int dimensions = this.dimensions;
+        double ratioScale = Math.sqrt(Arrays.stream(ratioWeights).min().orElse(0));
+        var tree = getTree(ratioScale);
+        var query = new double[dimensions + 1];
+
+        for (int glyph = from; glyph < to; glyph++) {
+            var input = inputs[glyph];
+            if (input == null || input.length != dimensions) continue;
+
+            for (int i = 0; i < dimensions; i++) query[i] = input[this.dimensionOrder[i]];
+            query[dimensions] = searchRatios[glyph] * ratioScale;
+
+            int matchGlyph = glyph;
+            double searchRatio = searchRatios[glyph];
+            tree.search(query, 0, matches.getBound(glyph), (candidate, distance) -> {
+                double bound = matches.getBound(matchGlyph);
+                double ratioDifference = getRatioDifference(candidate, searchRatio, ratioWeights);
+                double difference = OCRUtils.getDifferencesFrom(query, 0, this.segments, candidate * dimensions, dimensions, 0, bound - ratioDifference);
+                if (difference <= bound - ratioDifference) matches.offer(matchGlyph, candidate, difference + ratioDifference);
+                return matches.getBound(matchGlyph);
+            });
+        }
+    }
+
+    /**
+     * Gets the {@link BallTree} of the characters with their ratios scaled by the given amount, building it if
+     * the last tree used a different scale.
+     *
+     * @param ratioScale The amount the ratio coordinate is multiplied by
+     * @return The {@link BallTree}
+     */
+    private synchronized BallTree getTree(double ratioScale) {
+        if (this.tree != null && this.treeRatioScale == ratioScale) return this.tree;
+
+        int dimensions = this.dimensions;
+        var points = new double[this.characters.length * (dimensions + 1)];
+        for (int i = 0; i < this.characters.length; i++) {
+            System.arraycopy(this.segments, i * dimensions, points, i * (dimensions + 1), dimensions);
+            points[i * (dimensions + 1) + dimensions] = this.ratios[i] * ratioScale;
+        }
+
+        this.treeRatioScale = ratioScale;
+        return this.tree = new BallTree(points, dimensions + 1);
+    }
+
+    /**
+     * Gets the weighted squared width/height ratio difference of a character, which is added to its segment
+     * differences.
+     *
+     * @param candidate    The index of the character
+     * @param searchRatio  The width/height ratio of the scanned character
+     * @param ratioWeights The weight of the width/height ratio difference of every character in the index
+     * @return The weighted ratio difference
+     */
+    private double getRatioDifference(int candidate, double searchRatio, double[] ratioWeights) {
+        double ratioDiff = this.ratios[candidate] - searchRatio;
+        return ratioDiff * ratioDiff * ratioWeights[candidate];
+    }
+
+    /**
+     * Gets if the index is searched with a {@link BallTree}.
+     *
+     * @return If the index has a tree
+     */
+    public boolean hasTree() {
+        return this.useTree;
+    }
+
+    /**
+     * Gets the amount of characters in the index.
+     *
+     * @return The amount of characters
+     */
+    public int size() {
+        return this.characters.length;
+    }
+
+    /**
+     * Gets the character at the given index.
+     *
+     * @param index The index of the character
+     * @return The {@link DatabaseCharacter}
+     */
+    public DatabaseCharacter getCharacter(int index) {
+        return this.characters[index];
+    }
+
+    /**
+     * Gets the {@link GlyphRegistry} ID of the character at the given index.
+     *
+     * @param index The index of the character
+     * @return The ID of the character
+     */
+    public int getGlyphId(int index) {
+        return this.glyphIds[index];
+    }
+
+    /**
+     * Gets the average width/height ratio of the character at the given index.
+     *
+     * @param index The index of the character
+     * @return The width/height ratio
+     */
+    public double getRatio(int index) {
+        return this.ratios[index];
+    }
+
+    /**
+     * Gets the order segments are compared in, being the indices of the segments with the highest variance first.
+     *
+     * @return The segment indices in the order they are compared
+     */
+    public int[] getDimensionOrder() {
+        return this.dimensionOrder.clone();
+    }
+}
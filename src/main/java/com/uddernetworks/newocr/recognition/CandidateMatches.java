@@ -0,0 +1,116 @@
+package com.uddernetworks.newocr.recognition;
+
+/**
+ * The closest characters of a {@link CandidateIndex} found for each of a batch of scanned characters, closest first.
+ * Every scanned character has its own fixed range in flat arrays, so disjoint ranges of characters may be filled in
+ * concurrently.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class CandidateMatches {
+
+    private final int limit;
+    private final int[] counts;
+    private final int[] indices;
+    private final double[] differences;
+
+    /**
+     * Creates an empty {@link CandidateMatches}.
+     *
+     * @param size  The amount of scanned characters
+     * @param limit The maximum amount of matches of each scanned character
+     */
+    public CandidateMatches(int size, int limit) {
+        this.limit = limit;
+        this.counts = new int[size];
+        this.indices = new int[size * limit];
+        this.differences = new double[size * limit];
+    }
+
+    /**
+     * Adds a match for the given scanned character if it's closer than its `limit`th closest match. Matches with equal
+     * differences are ordered by their index, so the result doesn't depend on the order matches are added in.
+     *
+     * @param glyph      The index of the scanned character
+     * @param index      The index of the character in the {@link CandidateIndex}
+     * @param difference The difference of the character
+     */
+    void offer(int glyph, int index, double difference) {
+        int start = glyph * this.limit;
+        int found = this.counts[glyph];
+        if (found == this.limit && !isBefore(difference, index, this.differences[start + this.limit - 1], this.indices[start + this.limit - 1])) return;
+
+        int position = Math.min(found, this.limit - 1);
+        while (position > 0 && isBefore(difference, index, this.differences[start + position - 1], this.indices[start + position - 1])) {
+            this.differences[start + position] = this.differences[start + position - 1];
+            this.indices[start + position] = this.indices[start + position - 1];
+            position--;
+        }
+
+        this.differences[start + position] = difference;
+        this.indices[start + position] = index;
+        if (found < this.limit) this.counts[glyph]++;
+    }
+
+    private static boolean isBefore(double difference, int index, double otherDifference, int otherIndex) {
+        return difference < otherDifference || (difference == otherDifference && index < otherIndex);
+    }
+
+    /**
+     * Gets the difference a character must be at most to be one of the closest matches of the given scanned character.
+     *
+     * @param glyph The index of the scanned character
+     * @return The difference of the `limit`th closest match, or infinity if fewer matches have been found
+     */
+    double getBound(int glyph) {
+        return this.counts[glyph] < this.limit ? Double.POSITIVE_INFINITY : this.differences[glyph * this.limit + this.limit - 1];
+    }
+
+    /**
+     * Gets the amount of scanned characters.
+     *
+     * @return The amount of scanned characters
+     */
+    public int size() {
+        return this.counts.length;
+    }
+
+    /**
+     * Gets the amount of matches found for the given scanned character.
+     *
+     * @param glyph The index of the scanned character
+     * @return The amount of matches
+     */
+    public int getCount(int glyph) {
+        return this.counts[glyph];
+    }
+
+    /**
+     * Gets the {@link CandidateIndex} index of a match of the given scanned character.
+     *
+     * @param glyph The index of the scanned character
+     * @param match The index of the match, 0 being the closest
+     * @return The index of the matched character
+     */
+    public int getIndex(int glyph, int match) {
+        return this.indices[glyph * this.limit + match];
+    }
+
+    /**
+     * Gets the difference of a match of the given scanned character.
+     *
+     * @param glyph The index of the scanned character
+     * @param match The index of the match, 0 being the closest
+     * @return The difference of the match, the lower the better
+     */
+    public double getDifference(int glyph, int match) {
+        return this.differences[glyph * this.limit + match];
+    }
+
+    @Override
+    public String toString() {
+        return "CandidateMatches{size=" + size() + ", limit=" + this.limit + "}";
+    }
+}
@@ -0,0 +1,648 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.AbstractInt2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.AbstractObject2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A compact, read only {@link ScannedImage} storing every character in parallel primitive arrays instead of
+ * {@link ImageLetter} objects, meant for keeping many results in memory. Lines and characters are looked up in
+ * constant time by their index. The pixel values and closest matches of characters are only kept if requested when
+ * creating it, and the images are never kept.
+ * <p>
+ * Methods of {@link ScannedImage} returning {@link ImageLetter}s create new ones each time, only having the letter,
+ * modifier, position and size of the character, and the pixel values and closest matches if they were kept. Changes
+ * to them are not reflected in the {@link CompactScannedImage}. As it is read only and has no images, lines may not be
+ * added and both images are null, so {@link #toScannedImage(BufferedImage, BufferedImage)} should be used wherever a
+ * full {@link ScannedImage} is expected.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class CompactScannedImage implements ScannedImage {
+
+    private static final int MAGIC = 0x4E4F4352; // NOCR
+
+    private transient File originalFile;
+
+    private final char[] letters;
+    private final int[] modifiers;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] widths;
+    private final int[] heights;
+
+    private final int[] lineYs;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private int[] linePositions; // The index of each line's first character in the pretty string
+
+    // Only kept if requested
+    private int[] pixelOffsets;
+    private int[] pixelRows;
+    private int[] pixelColumns;
+    private BitSet pixels;
+
+    private int[] alternativeOffsets;
+    private char[] alternativeLetters;
+    private int[] alternativeModifiers;
+    private double[] alternativeScores;
+
+    private CompactScannedImage(File originalFile, int glyphCount, int lineCount) {
+        this(originalFile, new char[glyphCount], new int[glyphCount], new int[glyphCount], new int[glyphCount], new int[glyphCount], new int[glyphCount], new int[lineCount], new int[lineCount], new int[lineCount]);
+    }
+
+    private CompactScannedImage(File originalFile, char[] letters, int[] modifiers, int[] xs, int[] ys, int[] widths, int[] heights, int[] lineYs, int[] lineStarts, int[] lineEnds) {
+        this.originalFile = originalFile;
+        this.letters = letters;
+        this.modifiers = modifiers;
+        this.xs = xs;
+        this.ys = ys;
+        this.widths = widths;
+        this.heights = heights;
+        this.lineYs = lineYs;
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+    }
+
+    /**
+     * Creates a {@link CompactScannedImage} of the given {@link ScannedImage} without pixel values or closest matches.
+     *
+     * @param scannedImage The {@link ScannedImage} to copy
+     * @return The created {@link CompactScannedImage}
+     */
+    public static CompactScannedImage of(ScannedImage scannedImage) {
+        return of(scannedImage, false, false);
+    }
+
+    /**
+     * Creates a {@link CompactScannedImage} of the given {@link ScannedImage}.
+     *
+     * @param scannedImage     The {@link ScannedImage} to copy
+     * @param keepPixels       If the pixel values of every character should be kept
+     * @param keepAlternatives If the closest matches of every character should be kept
+     * @return The created {@link CompactScannedImage}
+     */
+    public static CompactScannedImage of(ScannedImage scannedImage, boolean keepPixels, boolean keepAlternatives) {
+        return of(scannedImage.getOriginalFile(), scannedImage.getGrid(), keepPixels, keepAlternatives);
+    }
+
+    /**
+     * Copies a single line of {@link ImageLetter}s into new ones, the same as a {@link CompactScannedImage} created with
+     * the same options would give them.
+     *
+     * @param line             The line to copy
+     * @param keepPixels       If the pixel values of every character should be kept
+     * @param keepAlternatives If the closest matches of every character should be kept
+     * @return The copied line
+     */
+    public static List<ImageLetter> copyLine(List<ImageLetter> line, boolean keepPixels, boolean keepAlternatives) {
+        var grid = new Int2ObjectLinkedOpenHashMap<List<ImageLetter>>(1);
+        grid.put(0, line);
+        return of(null, grid, keepPixels, keepAlternatives).createLine(0);
+    }
+
+    private static CompactScannedImage of(File originalFile, Int2ObjectMap<List<ImageLetter>> grid, boolean keepPixels, boolean keepAlternatives) {
+        int glyphCount = grid.values().stream().mapToInt(List::size).sum();
+        var compact = new CompactScannedImage(originalFile, glyphCount, grid.size());
+
+        if (keepPixels) {
+            compact.pixelOffsets = new int[glyphCount + 1];
+            compact.pixelRows = new int[glyphCount];
+            compact.pixelColumns = new int[glyphCount];
+            compact.pixels = new BitSet();
+        }
+
+        var alternativeLetters = new StringBuilder();
+        var alternativeModifiers = new IntArrayList();
+        var alternativeScores = new DoubleArrayList();
+        if (keepAlternatives) compact.alternativeOffsets = new int[glyphCount + 1];
+
+        int glyph = 0;
+        int lineIndex = 0;
+        for (var entry : grid.int2ObjectEntrySet()) {
+            compact.lineYs[lineIndex] = entry.getIntKey();
+            compact.lineStarts[lineIndex] = glyph;
+
+            for (var imageLetter : entry.getValue()) {
+                compact.letters[glyph] = imageLetter.getLetter();
+                compact.modifiers[glyph] = imageLetter.getModifier();
+                compact.xs[glyph] = imageLetter.getX();
+                compact.ys[glyph] = imageLetter.getY();
+                compact.widths[glyph] = imageLetter.getWidth();
+                compact.heights[glyph] = imageLetter.getHeight();
+
+                if (keepPixels) {
+                    var values = imageLetter.getValues();
+                    int offset = compact.pixelOffsets[glyph];
+                    if (values != null && values.length > 0) {
+                        compact.pixelRows[glyph] = values.length;
+                        compact.pixelColumns[glyph] = values[0].length;
+                        for (var row : values) {
+                            for (int i = 0; i < row.length; i++) {
+                                if (row[i]) compact.pixels.set(offset + i);
+                            }
+
+                            offset += row.length;
+                        }
+                    }
+
+                    compact.pixelOffsets[glyph + 1] = offset;
+                }
+
+                if (keepAlternatives) {
+                    var closestMatches = imageLetter.getClosestMatches();
+                    int amount = closestMatches == null ? 0 : closestMatches.size();
+                    for (int i = 0; i < amount; i++) {
+                        var match = closestMatches.get(i);
+                        alternativeLetters.append(match.getKey().getLetter());
+                        alternativeModifiers.add(match.getKey().getModifier());
+                        alternativeScores.add(match.getDoubleValue());
+                    }
+
+                    compact.alternativeOffsets[glyph + 1] = compact.alternativeOffsets[glyph] + amount;
+                }
+
+                glyph++;
+            }
+
+            compact.lineEnds[lineIndex++] = glyph;
+        }
+
+        if (keepAlternatives) {
+            compact.alternativeLetters = alternativeLetters.toString().toCharArray();
+            compact.alternativeModifiers = alternativeModifiers.toIntArray();
+            compact.alternativeScores = alternativeScores.toDoubleArray();
+        }
+
+        compact.updateLinePositions();
+        return compact;
+    }
+
+    /**
+     * Creates a copy of the current {@link CompactScannedImage}, sharing all character data as it is never modified.
+     * Only {@link #stripLeadingSpaces()} modifies a {@link CompactScannedImage}, which won't affect the copy.
+     *
+     * @param originalFile The original {@link File} of the copy
+     * @return The copy
+     */
+    public CompactScannedImage copy(File originalFile) {
+        var copy = new CompactScannedImage(originalFile, this.letters, this.modifiers, this.xs, this.ys, this.widths, this.heights, this.lineYs, this.lineStarts.clone(), this.lineEnds);
+        copy.pixelOffsets = this.pixelOffsets;
+        copy.pixelRows = this.pixelRows;
+        copy.pixelColumns = this.pixelColumns;
+        copy.pixels = this.pixels;
+        copy.alternativeOffsets = this.alternativeOffsets;
+        copy.alternativeLetters = this.alternativeLetters;
+        copy.alternativeModifiers = this.alternativeModifiers;
+        copy.alternativeScores = this.alternativeScores;
+        copy.linePositions = this.linePositions.clone();
+        return copy;
+    }
+
+    /**
+     * Creates a {@link DefaultScannedImage} of new {@link ImageLetter}s of all characters with the given images, which
+     * may be modified like the result of any other scan.
+     *
+     * @param binarizedImage The binarized image
+     * @param originalImage  The original image
+     * @return The created {@link DefaultScannedImage}
+     */
+    public DefaultScannedImage toScannedImage(BufferedImage binarizedImage, BufferedImage originalImage) {
+        var scannedImage = new DefaultScannedImage(this.originalFile, binarizedImage, originalImage);
+        for (int i = 0; i < this.lineStarts.length; i++) {
+            scannedImage.addLine(this.lineYs[i], createLine(i));
+        }
+
+        return scannedImage;
+    }
+
+    /**
+     * Writes the {@link CompactScannedImage} in a binary format readable by {@link #read(DataInput, File)}.
+     *
+     * @param output The {@link DataOutput} to write to
+     * @throws IOException If an I/O error occurs
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(this.letters.length);
+        output.writeInt(this.lineYs.length);
+
+        for (int i = 0; i < this.letters.length; i++) {
+            output.writeChar(this.letters[i]);
+            output.writeInt(this.modifiers[i]);
+            output.writeInt(this.xs[i]);
+            output.writeInt(this.ys[i]);
+            output.writeInt(this.widths[i]);
+            output.writeInt(this.heights[i]);
+        }
+
+        for (int i = 0; i < this.lineYs.length; i++) {
+            output.writeInt(this.lineYs[i]);
+            output.writeInt(this.lineStarts[i]);
+            output.writeInt(this.lineEnds[i]);
+        }
+
+        output.writeBoolean(hasPixels());
+        if (hasPixels()) {
+            writeInts(output, this.pixelOffsets);
+            writeInts(output, this.pixelRows);
+            writeInts(output, this.pixelColumns);
+            var words = this.pixels.toLongArray();
+            output.writeInt(words.length);
+            for (long word : words) output.writeLong(word);
+        }
+
+        output.writeBoolean(hasAlternatives());
+        if (hasAlternatives()) {
+            writeInts(output, this.alternativeOffsets);
+            output.writeInt(this.alternativeLetters.length);
+            for (int i = 0; i < this.alternativeLetters.length; i++) {
+                output.writeChar(this.alternativeLetters[i]);
+                output.writeInt(this.alternativeModifiers[i]);
+                output.writeDouble(this.alternativeScores[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a {@link CompactScannedImage} written by {@link #write(DataOutput)}.
+     *
+     * @param input        The {@link DataInput} to read from
+     * @param originalFile The original {@link File} of the image
+     * @return The read {@link CompactScannedImage}
+     * @throws IOException If an I/O error occurs or the data is not a {@link CompactScannedImage}
+     */
+    public static CompactScannedImage read(DataInput input, File originalFile) throws IOException {
+        if (input.readInt() != MAGIC) throw new IOException("Data is not a CompactScannedImage");
+
+        var compact = new CompactScannedImage(originalFile, input.readInt(), input.readInt());
+
+        for (int i = 0; i < compact.letters.length; i++) {
+            compact.letters[i] = input.readChar();
+            compact.modifiers[i] = input.readInt();
+            compact.xs[i] = input.readInt();
+            compact.ys[i] = input.readInt();
+            compact.widths[i] = input.readInt();
+            compact.heights[i] = input.readInt();
+        }
+
+        for (int i = 0; i < compact.lineYs.length; i++) {
+            compact.lineYs[i] = input.readInt();
+            compact.lineStarts[i] = input.readInt();
+            compact.lineEnds[i] = input.readInt();
+        }
+
+        if (input.readBoolean()) {
+            compact.pixelOffsets = readInts(input);
+            compact.pixelRows = readInts(input);
+            compact.pixelColumns = readInts(input);
+            var words = new long[input.readInt()];
+            for (int i = 0; i < words.length; i++) words[i] = input.readLong();
+            compact.pixels = BitSet.valueOf(words);
+        }
+
+        if (input.readBoolean()) {
+            compact.alternativeOffsets = readInts(input);
+            int amount = input.readInt();
+            compact.alternativeLetters = new char[amount];
+            compact.alternativeModifiers = new int[amount];
+            compact.alternativeScores = new double[amount];
+            for (int i = 0; i < amount; i++) {
+                compact.alternativeLetters[i] = input.readChar();
+                compact.alternativeModifiers[i] = input.readInt();
+                compact.alternativeScores[i] = input.readDouble();
+            }
+        }
+
+        compact.updateLinePositions();
+        return compact;
+    }
+
+    private static void writeInts(DataOutput output, int[] values) throws IOException {
+        output.writeInt(values.length);
+        for (int value : values) output.writeInt(value);
+    }
+
+    private static int[] readInts(DataInput input) throws IOException {
+        var values = new int[input.readInt()];
+        for (int i = 0; i < values.length; i++) values[i] = input.readInt();
+        return values;
+    }
+
+    private void updateLinePositions() {
+        this.linePositions = new int[this.lineStarts.length];
+        int position = 0;
+        for (int i = 0; i < this.lineStarts.length; i++) {
+            this.linePositions[i] = position;
+            position += getLineLength(i) + 1; // Including the newline
+        }
+    }
+
+    /**
+     * Gets the amount of characters in a line.
+     *
+     * @param lineIndex The index of the line
+     * @return The amount of characters
+     */
+    public int getLineLength(int lineIndex) {
+        return this.lineEnds[lineIndex] - this.lineStarts[lineIndex];
+    }
+
+    /**
+     * Gets the exact Y position of a line.
+     *
+     * @param lineIndex The index of the line
+     * @return The Y position of the line
+     */
+    public int getLineY(int lineIndex) {
+        return this.lineYs[lineIndex];
+    }
+
+    /**
+     * Gets the index of a character used by the other getters, such as {@link #getLetter(int)}.
+     *
+     * @param lineIndex The index of the line
+     * @param offset    The index of the character in the line
+     * @return The index of the character
+     * @throws IndexOutOfBoundsException If there is no character at the given position
+     */
+    public int getGlyphIndex(int lineIndex, int offset) {
+        if (offset < 0 || offset >= getLineLength(lineIndex)) throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for line " + lineIndex);
+        return this.lineStarts[lineIndex] + offset;
+    }
+
+    /**
+     * Gets the letter of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The letter
+     */
+    public char getLetter(int glyph) {
+        return this.letters[glyph];
+    }
+
+    /**
+     * Gets the modifier of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The modifier
+     */
+    public int getModifier(int glyph) {
+        return this.modifiers[glyph];
+    }
+
+    /**
+     * Gets the X position of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The X position
+     */
+    public int getX(int glyph) {
+        return this.xs[glyph];
+    }
+
+    /**
+     * Gets the Y position of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The Y position
+     */
+    public int getY(int glyph) {
+        return this.ys[glyph];
+    }
+
+    /**
+     * Gets the width of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The width
+     */
+    public int getWidth(int glyph) {
+        return this.widths[glyph];
+    }
+
+    /**
+     * Gets the height of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The height
+     */
+    public int getHeight(int glyph) {
+        return this.heights[glyph];
+    }
+
+    /**
+     * Gets if the pixel values of characters were kept.
+     *
+     * @return If pixel values were kept
+     */
+    public boolean hasPixels() {
+        return this.pixels != null;
+    }
+
+    /**
+     * Gets the pixel values of a character, if they were kept.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return A copy of the pixel values, or null if they were not kept or the character had none
+     */
+    public boolean[][] getValues(int glyph) {
+        if (!hasPixels() || this.pixelRows[glyph] == 0) return null;
+        var values = new boolean[this.pixelRows[glyph]][this.pixelColumns[glyph]];
+        int offset = this.pixelOffsets[glyph];
+        for (var row : values) {
+            for (int i = 0; i < row.length; i++) row[i] = this.pixels.get(offset++);
+        }
+
+        return values;
+    }
+
+    /**
+     * Gets if the closest matches of characters were kept.
+     *
+     * @return If closest matches were kept
+     */
+    public boolean hasAlternatives() {
+        return this.alternativeOffsets != null;
+    }
+
+    /**
+     * Gets the closest matches of a character other than itself, ordered from the closest, if they were kept. The
+     * {@link ImageLetter}s are in the position of the character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The closest matches and their differences, being empty if they were not kept
+     */
+    public List<Object2DoubleMap.Entry<ImageLetter>> getAlternatives(int glyph) {
+        if (!hasAlternatives()) return new ArrayList<>();
+        var alternatives = new ArrayList<Object2DoubleMap.Entry<ImageLetter>>(this.alternativeOffsets[glyph + 1] - this.alternativeOffsets[glyph]);
+        for (int i = this.alternativeOffsets[glyph]; i < this.alternativeOffsets[glyph + 1]; i++) {
+            var imageLetter = new ImageLetter(this.alternativeLetters[i], this.alternativeModifiers[i], this.xs[glyph], this.ys[glyph], this.widths[glyph], this.heights[glyph], this.widths[glyph], this.heights[glyph], getRatio(glyph));
+            alternatives.add(new AbstractObject2DoubleMap.BasicEntry<>(imageLetter, this.alternativeScores[i]));
+        }
+
+        return alternatives;
+    }
+
+    /**
+     * Creates an {@link ImageLetter} of a character.
+     *
+     * @param glyph The index of the character from {@link #getGlyphIndex(int, int)}
+     * @return The created {@link ImageLetter}
+     */
+    public ImageLetter getImageLetter(int glyph) {
+        var imageLetter = new ImageLetter(this.letters[glyph], this.modifiers[glyph], this.xs[glyph], this.ys[glyph], this.widths[glyph], this.heights[glyph], this.widths[glyph], this.heights[glyph], getRatio(glyph));
+        imageLetter.setValues(getValues(glyph));
+        if (hasAlternatives()) imageLetter.setClosestMatches(getAlternatives(glyph));
+        return imageLetter;
+    }
+
+    private double getRatio(int glyph) {
+        return this.heights[glyph] == 0 ? 0 : (double) this.widths[glyph] / this.heights[glyph];
+    }
+
+    private List<ImageLetter> createLine(int lineIndex) {
+        var line = new ArrayList<ImageLetter>(getLineLength(lineIndex));
+        for (int i = this.lineStarts[lineIndex]; i < this.lineEnds[lineIndex]; i++) {
+            line.add(getImageLetter(i));
+        }
+
+        return line;
+    }
+
+    @Override
+    public String getPrettyString() {
+        var stringBuilder = new StringBuilder(this.letters.length + this.lineStarts.length);
+        for (int i = 0; i < this.lineStarts.length; i++) {
+            if (i > 0) stringBuilder.append('\n');
+            stringBuilder.append(this.letters, this.lineStarts[i], getLineLength(i));
+        }
+
+        return stringBuilder.toString();
+    }
+
+    @Override
+    public ScannedImage stripLeadingSpaces() {
+        int commonSpaces = Integer.MAX_VALUE;
+        for (int line = 0; line < this.lineStarts.length; line++) {
+            int spaces = 0;
+            while (spaces < getLineLength(line) && this.letters[this.lineStarts[line] + spaces] == ' ') spaces++;
+            commonSpaces = Math.min(commonSpaces, spaces);
+        }
+
+        if (commonSpaces > 0 && commonSpaces != Integer.MAX_VALUE) {
+            for (int line = 0; line < this.lineStarts.length; line++) {
+                this.lineStarts[line] += commonSpaces;
+            }
+
+            updateLinePositions();
+        }
+
+        return this;
+    }
+
+    @Override
+    public Optional<ImageLetter> letterAt(int index) {
+        if (index < 0 || this.linePositions.length == 0) return Optional.empty();
+
+        int line = Arrays.binarySearch(this.linePositions, index);
+        if (line < 0) line = -line - 2;
+
+        // Newlines take up an index, but are not returned
+        int offset = index - this.linePositions[line];
+        if (offset >= getLineLength(line)) return Optional.empty();
+
+        return Optional.of(getImageLetter(this.lineStarts[line] + offset));
+    }
+
+    @Override
+    public Optional<List<ImageLetter>> getGridLineAtIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= this.lineStarts.length) return Optional.empty();
+        return Optional.of(createLine(index));
+    }
+
+    @Override
+    public int getLineCount() {
+        return this.lineStarts.length;
+    }
+
+    /**
+     * Creates a grid of new {@link ImageLetter}s of all characters. Unlike {@link DefaultScannedImage}, modifying the
+     * grid does not modify the {@link CompactScannedImage}.
+     *
+     * @return A new grid of values
+     */
+    @Override
+    public Int2ObjectMap<List<ImageLetter>> getGrid() {
+        var grid = new Int2ObjectLinkedOpenHashMap<List<ImageLetter>>(this.lineStarts.length);
+        for (int i = 0; i < this.lineStarts.length; i++) {
+            grid.put(this.lineYs[i], createLine(i));
+        }
+
+        return grid;
+    }
+
+    /**
+     * A {@link CompactScannedImage} may not be modified, so {@link #toScannedImage(BufferedImage, BufferedImage)}
+     * should be used for adding lines.
+     *
+     * @throws UnsupportedOperationException Always
+     */
+    @Override
+    public void addLine(int y, List<ImageLetter> databaseCharacterList) {
+        throw new UnsupportedOperationException("A CompactScannedImage may not be modified");
+    }
+
+    @Override
+    public List<ImageLetter> getLine(int y) {
+        return y < 0 || y >= this.lineStarts.length ? null : createLine(y);
+    }
+
+    @Override
+    public Int2ObjectMap.Entry<List<ImageLetter>> getLineEntry(int y) {
+        return y < 0 || y >= this.lineStarts.length ? null : new AbstractInt2ObjectMap.BasicEntry<>(this.lineYs[y], createLine(y));
+    }
+
+    /**
+     * Gets the binarized image, which is never kept.
+     *
+     * @return null
+     */
+    @Override
+    public BufferedImage getBinarizedImage() {
+        return null;
+    }
+
+    /**
+     * Gets the original image, which is never kept.
+     *
+     * @return null
+     */
+    @Override
+    public BufferedImage getOriginalImage() {
+        return null;
+    }
+
+    @Override
+    public File getOriginalFile() {
+        return this.originalFile;
+    }
+}
@@ -5,20 +5,26 @@ import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.character.SearchCharacter;
 import com.uddernetworks.newocr.character.TrainedCharacterData;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.detection.ConnectedComponent;
 import com.uddernetworks.newocr.detection.SearchImage;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
 import com.uddernetworks.newocr.recognition.similarity.Letter;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 import com.uddernetworks.newocr.train.OCROptions;
 import com.uddernetworks.newocr.utils.IntPair;
 import com.uddernetworks.newocr.utils.OCRUtils;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.AbstractObject2DoubleMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
-import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Provides general OCR actions.
@@ -61,6 +67,29 @@ public class OCRActions implements Actions {
 
     @Override
     public void getLetters(SearchImage searchImage, List<SearchCharacter> searchCharacters) {
+        getLetters(searchImage, searchCharacters, component -> true);
+    }
+
+    @Override
+    public void getLetters(SearchImage searchImage, List<SearchCharacter> searchCharacters, Predicate<ConnectedComponent> filter) {
+        getLetters(getComponents(searchImage), searchCharacters, filter);
+    }
+
+    @Override
+    public void getLetters(List<ConnectedComponent> components, List<SearchCharacter> searchCharacters, Predicate<ConnectedComponent> filter) {
+        for (var component : components) {
+            if (!filter.test(component)) continue;
+
+            var foundCharacter = component.toSearchCharacter();
+            foundCharacter.setComponentId(searchCharacters.size());
+            this.options.getSegmentationMethod().accept(foundCharacter);
+            searchCharacters.add(foundCharacter);
+        }
+    }
+
+    @Override
+    public List<ConnectedComponent> getComponents(SearchImage searchImage) {
+        var components = new ArrayList<ConnectedComponent>();
         var coordinates = new ArrayList<IntPair>();
 
         var width = searchImage.getWidth();
@@ -71,20 +100,28 @@ public class OCRActions implements Actions {
                 searchImage.scanFrom(x, y, coordinates);
 
                 if (!coordinates.isEmpty()) {
-                    var foundCharacter = new SearchCharacter(new ArrayList<>(coordinates));
-                    foundCharacter.applySections();
-                    foundCharacter.analyzeSlices();
-                    searchCharacters.add(foundCharacter);
+                    components.add(new ConnectedComponent(new ArrayList<>(coordinates)));
                     coordinates.clear();
                 }
             }
         }
+
+        return components;
     }
 
     @Override
     public List<CharacterLine> getLettersDuringTraining(SearchImage searchImage) {
         var ret = new ArrayList<CharacterLine>();
 
+        for (var lineBounds : getLineBoundsForTraining(searchImage)) {
+            ret.add(getLettersDuringTraining(searchImage, lineBounds));
+        }
+
+        return ret;
+    }
+
+    @Override
+    public CharacterLine getLettersDuringTraining(SearchImage searchImage, IntPair lineBounds) {
         var charMetaMap = Map.of(
                 ';', "semicolonDistance",
                 ':', "colonDistance",
@@ -98,94 +135,90 @@ public class OCRActions implements Actions {
                 Set.of('i', 'j', ':', ';', '='), 1 // The base is the second character (Bottom part)
         );
 
-        var lineBounds = getLineBoundsForTraining(searchImage);
-        for (var coords : lineBounds) {
-            var fromY = coords.getKey();
-            var toY = coords.getValue();
+        var fromY = lineBounds.getKey();
+        var toY = lineBounds.getValue();
 
-            var sub = searchImage.getSubimage(0, fromY, searchImage.getWidth(), toY - fromY);
+        // The view doesn't copy or change the image's pixels, so lines may be found concurrently
+        var sub = searchImage.getView(0, fromY, searchImage.getWidth(), toY - fromY);
 
-            var width = sub.getWidth();
-            var height = sub.getHeight();
+        var width = sub.getWidth();
+        var height = sub.getHeight();
 
-            var coordinates = new ArrayList<IntPair>();
-            var found = new ArrayList<SearchCharacter>();
+        var coordinates = new ArrayList<IntPair>();
+        var found = new ArrayList<SearchCharacter>();
 
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    sub.scanFrom(x, y, coordinates);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                sub.scanFrom(x, y, coordinates);
 
-                    if (!coordinates.isEmpty()) {
-                        var foundCharacter = new SearchCharacter(new ArrayList<>(coordinates), 0, fromY);
-                        foundCharacter.applySections();
-                        foundCharacter.analyzeSlices();
-                        found.add(foundCharacter);
-                        coordinates.clear();
-                    }
+                if (!coordinates.isEmpty()) {
+                    var foundCharacter = new SearchCharacter(new ArrayList<>(coordinates), 0, fromY);
+                    foundCharacter.setComponentId(found.size());
+                    this.options.getSegmentationMethod().accept(foundCharacter);
+                    found.add(foundCharacter);
+                    coordinates.clear();
                 }
             }
+        }
 
-            // Get the characters with horizontal overlap
-            var ignored = new HashSet<CoordinateCharacter>();
+        // Get the characters with horizontal overlap
+        var ignored = new HashSet<CoordinateCharacter>();
 
-            Collections.sort(found);
+        Collections.sort(found);
 
-            // These values represent the indices of characters that require multiple parts
-            var multipleParts = Arrays.asList(0, 7, 29, 31, 34, 37, 80, 82);
+        // These values represent the indices of characters that require multiple parts
+        var multipleParts = Arrays.asList(0, 7, 29, 31, 34, 37, 80, 82);
 
-            for (int i1 = 0; i1 < found.size(); i1++) {
-                var part1 = found.get(i1);
+        for (int i1 = 0; i1 < found.size(); i1++) {
+            var part1 = found.get(i1);
 
-                if (ignored.contains(part1)) continue;
-                if (!multipleParts.contains(i1)) continue;
+            if (ignored.contains(part1)) continue;
+            if (!multipleParts.contains(i1)) continue;
 
-                var increment = new AtomicInteger(0);
-                var list = found.stream()
-                        .filter(part1::isOverlappingX)
-                        .sorted(Comparator.comparingInt(CoordinateCharacter::getY))
-                        .collect(Collectors.toList());
+            var increment = new AtomicInteger(0);
+            var list = found.stream()
+                    .filter(part1::isOverlappingX)
+                    .sorted(Comparator.comparingInt(CoordinateCharacter::getY))
+                    .collect(Collectors.toList());
 
-                var currentChar = OCRTrain.TRAIN_STRING.charAt(i1);
+            var currentChar = OCRTrain.TRAIN_STRING.charAt(i1);
 
-                if (currentChar == '%') {
-                    list.sort(Comparator.comparingDouble(character -> (double) character.getWidth() * (double) character.getHeight()));
-                }
+            if (currentChar == '%') {
+                list.sort(Comparator.comparingDouble(character -> (double) character.getWidth() * (double) character.getHeight()));
+            }
 
-                // If this is 1, it gets the second character
-                var index = configurableBases.entrySet()
-                        .stream()
-                        .filter(entry -> entry.getKey().contains(currentChar))
-                        .map(Map.Entry::getValue)
-                        .findFirst()
-                        .orElse(0);
+            // If this is 1, it gets the second character
+            var index = configurableBases.entrySet()
+                    .stream()
+                    .filter(entry -> entry.getKey().contains(currentChar))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(0);
 
-                var base = list.get(Math.min(index, list.size() - 1));
+            var base = list.get(Math.min(index, list.size() - 1));
 
-                list.forEach(part2 -> {
-                    if (!base.equals(part2)) { // If part2 is NOT the base
-                        if (currentChar == '!' || currentChar == '?') { // ! ?
-                            double diff = (double) (part2.getY() - (base.getY() + base.getHeight()));
-                            var distance = diff / (double) base.getHeight();
+            list.forEach(part2 -> {
+                if (!base.equals(part2)) { // If part2 is NOT the base
+                    if (currentChar == '!' || currentChar == '?') { // ! ?
+                        double diff = (double) (part2.getY() - (base.getY() + base.getHeight()));
+                        var distance = diff / (double) base.getHeight();
 
-                            base.setTrainingMeta(currentChar == '?' ? "distanceQuestion" : "distanceExclamation", distance);
-                        } else if (currentChar == 'i' || currentChar == 'j' || currentChar == ':' || currentChar == ';' || currentChar == '=') { // i j   base below
-                            double diff = (double) (base.getY() - (part2.getY() + part2.getHeight()));
-                            var distance = diff / (double) base.getHeight();
+                        base.setTrainingMeta(currentChar == '?' ? "distanceQuestion" : "distanceExclamation", distance);
+                    } else if (currentChar == 'i' || currentChar == 'j' || currentChar == ':' || currentChar == ';' || currentChar == '=') { // i j   base below
+                        double diff = (double) (base.getY() - (part2.getY() + part2.getHeight()));
+                        var distance = diff / (double) base.getHeight();
 
-                            base.setTrainingMeta(charMetaMap.getOrDefault(currentChar, "distanceAbove"), distance);
-                        }
+                        base.setTrainingMeta(charMetaMap.getOrDefault(currentChar, "distanceAbove"), distance);
                     }
+                }
 
-                    var i = increment.getAndIncrement();
-                    part2.setModifier(i);
-                    ignored.add(part2);
-                });
-            }
-
-            ret.add(new TrainLine(found, fromY, toY));
+                var i = increment.getAndIncrement();
+                part2.setModifier(i);
+                ignored.add(part2);
+            });
         }
 
-        return ret;
+        return new TrainLine(found, fromY, toY);
     }
 
     @Override
@@ -196,26 +229,67 @@ public class OCRActions implements Actions {
     @Override
     public Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, IntPair lineBounds) {
         try {
-            var diffs = new Object2DoubleOpenHashMap<ImageLetter>(); // The lower value the better
+            return getCharacterFor(searchCharacter, lineBounds, databaseManager.getSnapshot().get());
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
 
-            var data = new ArrayList<>(databaseManager.getAllCharacterSegments().get());
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, IntPair lineBounds, ModelSnapshot snapshot) {
+        return getCharactersFor(List.of(searchCharacter), snapshot).get(0);
+    }
 
+    @Override
+    public List<Optional<ImageLetter>> getCharactersFor(List<SearchCharacter> searchCharacters, ModelSnapshot snapshot) {
+        var index = snapshot.getCandidateIndex();
+        int size = searchCharacters.size();
 
-            data.forEach(character -> OCRUtils.getDifferencesFrom(searchCharacter.getSegmentPercentages(), character.getData()).ifPresent(charDifference -> {
-                // Gets the difference of the database character and searchCharacter (Lower is better)
-                var imageLetter = new ImageLetter(character.getLetter(), character.getModifier(), searchCharacter.getX(), searchCharacter.getY(), searchCharacter.getWidth(), searchCharacter.getHeight(), character.getAvgWidth(), character.getAvgHeight(), ((double) searchCharacter.getWidth()) / ((double) searchCharacter.getHeight()), searchCharacter.getCoordinates());
+        var ratioWeights = new double[index.size()];
+        for (int i = 0; i < ratioWeights.length; i++) {
+            ratioWeights[i] = this.similarityManager == null ? this.options.getSizeRatioWeight() : this.options.getSizeRatioWeight(index.getGlyphId(i));
+        }
+
+        var inputs = new double[size][];
+        var searchRatios = new double[size];
+        for (int i = 0; i < size; i++) {
+            var searchCharacter = searchCharacters.get(i);
+            inputs[i] = searchCharacter.getSegmentPercentages();
+            searchRatios[i] = (double) searchCharacter.getWidth() / searchCharacter.getHeight();
+        }
+
+        int maxClosestMatches = this.options.getMaxClosestMatches();
+        int limit = maxClosestMatches <= 0 ? index.size() : Math.min(index.size(), maxClosestMatches + 1);
+        var matches = new CandidateMatches(size, Math.max(1, limit));
+
+        // Tiles of characters are independent, so they may be matched concurrently
+        int blocks = (size + CandidateIndex.GLYPH_BLOCK - 1) / CandidateIndex.GLYPH_BLOCK;
+        var blockStream = IntStream.range(0, blocks);
+        if (this.options.isParallelScanning()) blockStream = blockStream.parallel();
+        blockStream.forEach(block -> index.findClosest(inputs, searchRatios, ratioWeights, matches, block * CandidateIndex.GLYPH_BLOCK, Math.min(size, (block + 1) * CandidateIndex.GLYPH_BLOCK)));
+
+        var found = new ArrayList<Optional<ImageLetter>>(size);
+        for (int i = 0; i < size; i++) {
+            var searchCharacter = searchCharacters.get(i);
+            int count = matches.getCount(i);
+            var candidates = new ImageLetter[count];
+            var differences = new double[count];
+
+            for (int j = 0; j < count; j++) {
+                var character = index.getCharacter(matches.getIndex(i, j));
+                var imageLetter = createCandidate(searchCharacter, character.getLetter(), character.getModifier(), character.getAvgWidth(), character.getAvgHeight());
                 imageLetter.setMaxCenter(character.getMaxCenter());
                 imageLetter.setMinCenter(character.getMinCenter());
-                diffs.put(imageLetter, charDifference);
-            }));
-
-            return getCharacterFor(searchCharacter, diffs, lineBounds);
+                candidates[j] = imageLetter;
+                differences[j] = matches.getDifference(i, j);
+            }
 
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+            found.add(getOrderedCharacterFor(searchCharacter, candidates, differences, count));
         }
 
-        return Optional.empty();
+        return found;
     }
 
     @Override
@@ -225,17 +299,21 @@ public class OCRActions implements Actions {
 
     @Override
     public Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, List<TrainedCharacterData> data, IntPair lineBounds) {
-        Object2DoubleMap<ImageLetter> diffs = new Object2DoubleOpenHashMap<>(); // The lower value the better
+        var candidates = new ImageLetter[data.size()];
+        var differences = new double[data.size()]; // The lower value the better
+        int count = 0;
 
-        data.forEach(character -> {
+        for (var character : data) {
             character.finishRecalculations();
-            OCRUtils.getDifferencesFrom(searchCharacter.getSegmentPercentages(), character.getSegmentPercentages()).ifPresent(charDifference -> {
-                // Gets the difference of the database character and searchCharacter (Lower is better)
-                diffs.put(new ImageLetter(character.getLetter(), character.getModifier(), searchCharacter.getX(), searchCharacter.getY(), searchCharacter.getWidth(), searchCharacter.getHeight(), character.getWidthAverage(), character.getHeightAverage(), ((double) searchCharacter.getWidth()) / ((double) searchCharacter.getHeight()), searchCharacter.getCoordinates()), charDifference);
-            });
-        });
+            var difference = OCRUtils.getDifferencesFrom(searchCharacter.getSegmentPercentages(), character.getSegmentPercentages());
+            if (difference.isEmpty()) continue;
 
-        return getCharacterFor(searchCharacter, diffs, lineBounds);
+            // Gets the difference of the database character and searchCharacter (Lower is better)
+            candidates[count] = createCandidate(searchCharacter, character.getLetter(), character.getModifier(), character.getWidthAverage(), character.getHeightAverage());
+            differences[count++] = difference.getAsDouble();
+        }
+
+        return getCharacterFor(searchCharacter, candidates, differences, count);
     }
 
     @Override
@@ -245,23 +323,92 @@ public class OCRActions implements Actions {
 
     @Override
     public Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, Object2DoubleMap<ImageLetter> diffs, IntPair lineBounds) {
+        var candidates = new ImageLetter[diffs.size()];
+        var differences = new double[diffs.size()];
+        int count = 0;
+
+        for (var entry : diffs.object2DoubleEntrySet()) {
+            candidates[count] = entry.getKey();
+            differences[count++] = entry.getDoubleValue();
+        }
+
+        return getCharacterFor(searchCharacter, candidates, differences, count);
+    }
+
+    /**
+     * Creates an {@link ImageLetter} of a potential match for the given {@link SearchCharacter}, being in the same
+     * position and component as it.
+     *
+     * @param searchCharacter The {@link SearchCharacter} being matched
+     * @param letter          The letter of the potential match
+     * @param modifier        The modifier of the potential match
+     * @param averageWidth    The trained average width of the potential match
+     * @param averageHeight   The trained average height of the potential match
+     * @return The created {@link ImageLetter}
+     */
+    private ImageLetter createCandidate(SearchCharacter searchCharacter, char letter, int modifier, double averageWidth, double averageHeight) {
+        var imageLetter = new ImageLetter(letter, modifier, searchCharacter.getX(), searchCharacter.getY(), searchCharacter.getWidth(), searchCharacter.getHeight(), averageWidth, averageHeight, ((double) searchCharacter.getWidth()) / ((double) searchCharacter.getHeight()), searchCharacter.getCoordinates());
+        imageLetter.setComponentId(searchCharacter.getComponentId());
+        return imageLetter;
+    }
+
+    /**
+     * Picks the best match out of the given candidates after adding the width/height ratio difference to their segment
+     * differences, keeping the rest as {@link ImageLetter#getClosestMatches()} in order of how close they are.
+     *
+     * @param searchCharacter The {@link SearchCharacter} being matched
+     * @param candidates      The potential matches, only the first `count` being used
+     * @param differences     The segment differences of each candidate, which will be modified
+     * @param count           The amount of candidates
+     * @return The best match
+     */
+    private Optional<ImageLetter> getCharacterFor(SearchCharacter searchCharacter, ImageLetter[] candidates, double[] differences, int count) {
+        if (count == 0) return Optional.empty();
+
         double searchRatio = (double) searchCharacter.getWidth() / searchCharacter.getHeight();
-        var orderedDifferences = diffs.object2DoubleEntrySet().stream()
-                .peek(entry -> {
-                    var imageLetter = entry.getKey();
+        var order = new int[count];
 
-                    double ratio = imageLetter.getAverageWidth() / imageLetter.getAverageHeight();
-                    double ratioDiff = Math.pow(ratio - searchRatio, 2);
-                    ratioDiff *= this.similarityManager == null ? this.options.getSizeRatioWeight() : this.options.getSizeRatioWeight(Letter.getLetter(imageLetter));
+        for (int i = 0; i < count; i++) {
+            var imageLetter = candidates[i];
 
-                    entry.setValue(ratioDiff + entry.getDoubleValue());
-                })
-                .sorted(Comparator.comparingDouble(Object2DoubleMap.Entry::getDoubleValue))
-                .collect(Collectors.toList());
+            double ratio = imageLetter.getAverageWidth() / imageLetter.getAverageHeight();
+            double ratioDiff = Math.pow(ratio - searchRatio, 2);
+            ratioDiff *= this.similarityManager == null ? this.options.getSizeRatioWeight() : this.options.getSizeRatioWeight(GlyphRegistry.getId(imageLetter.getLetter(), imageLetter.getModifier()));
 
-        if (orderedDifferences.isEmpty()) return Optional.empty();
+            differences[i] += ratioDiff;
+            order[i] = i;
+        }
 
-        var imageLetter = orderedDifferences.remove(0).getKey();
+        IntArrays.mergeSort(order, (first, second) -> Double.compare(differences[first], differences[second]));
+
+        var orderedCandidates = new ImageLetter[count];
+        var orderedDifferences = new double[count];
+        for (int i = 0; i < count; i++) {
+            orderedCandidates[i] = candidates[order[i]];
+            orderedDifferences[i] = differences[order[i]];
+        }
+
+        return getOrderedCharacterFor(searchCharacter, orderedCandidates, orderedDifferences, count);
+    }
+
+    /**
+     * Picks the first of the given candidates, keeping the rest as {@link ImageLetter#getClosestMatches()}.
+     *
+     * @param searchCharacter The {@link SearchCharacter} being matched
+     * @param candidates      The potential matches ordered by their differences, only the first `count` being used
+     * @param differences     The full differences of each candidate, lowest first
+     * @param count           The amount of candidates
+     * @return The best match
+     */
+    private Optional<ImageLetter> getOrderedCharacterFor(SearchCharacter searchCharacter, ImageLetter[] candidates, double[] differences, int count) {
+        if (count == 0) return Optional.empty();
+
+        var orderedDifferences = new ArrayList<Object2DoubleMap.Entry<ImageLetter>>(count - 1);
+        for (int i = 1; i < count; i++) {
+            orderedDifferences.add(new AbstractObject2DoubleMap.BasicEntry<>(candidates[i], differences[i]));
+        }
+
+        var imageLetter = candidates[0];
         imageLetter.setClosestMatches(orderedDifferences);
         imageLetter.setValues(searchCharacter.getValues());
 
@@ -270,19 +417,25 @@ public class OCRActions implements Actions {
 
     @Override
     public OptionalDouble getFontSize(ImageLetter imageLetter) {
+        try {
+            return getFontSize(imageLetter, this.databaseManager.getSnapshot().get());
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return OptionalDouble.empty();
+        }
+    }
+
+    @Override
+    public OptionalDouble getFontSize(ImageLetter imageLetter, ModelSnapshot snapshot) {
         var charactersToSize = imageLetter.getMergedPieces().orElse(Map.of(Letter.getLetter(imageLetter), imageLetter));
         var sizesGot = new DoubleArrayList();
         charactersToSize.forEach((letter, character) -> {
-            try {
-                var characterSizeRatio = this.databaseManager.getFontSize(character.getLetter(), character.getModifier()).get();
+            var characterSizeRatio = snapshot.getFontSize(character.getLetter(), character.getModifier());
 
-                double realCharacterSize = character.getHeight();
-                var fontSize = characterSizeRatio * realCharacterSize;
+            double realCharacterSize = character.getHeight();
+            var fontSize = characterSizeRatio * realCharacterSize;
 
-                sizesGot.add(fontSize);
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-            }
+            sizesGot.add(fontSize);
         });
 
         return sizesGot.stream().mapToDouble(Double::valueOf).average();
@@ -290,15 +443,19 @@ public class OCRActions implements Actions {
 
     @Override
     public List<IntPair> getLineBoundsForTraining(SearchImage image) {
+        return getLineBounds(image.getRowProfile());
+    }
+
+    @Override
+    public List<IntPair> getLineBounds(int[] rowProfile) {
         // Pair<topY, bottomY>
         List<IntPair> lines = new ArrayList<>();
-        var values = image.getValues();
 
         int height = 0;
 
-        for (int y = 0; y < values.length; y++) {
+        for (int y = 0; y < rowProfile.length; y++) {
             // If there's something on the line, add to their height of it.
-            if (OCRUtils.isRowPopulated(values, y)) {
+            if (rowProfile[y] > 0) {
                 height++;
             } else if (height > 0) { // If the row has nothing on it and the line is populated, add it to the values
                 int heightUntil = 0;
@@ -308,12 +465,12 @@ public class OCRActions implements Actions {
                 // if the dot on an 'i' (And other similar characters) is <= is above the rest of the character the same
                 // amount as its height (Making it a proper 'i' in Verdana and other fonts)
                 for (int i = 0; i < height; i++) {
-                    if (y + i >= values.length) {
+                    if (y + i >= rowProfile.length) {
                         finalSpace = 0;
                         break;
                     }
 
-                    if (OCRUtils.isRowPopulated(values, y + i)) {
+                    if (rowProfile[y + i] > 0) {
                         if (finalSpace == -1) {
                             finalSpace = heightUntil;
                         }
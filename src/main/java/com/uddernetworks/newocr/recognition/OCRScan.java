@@ -3,7 +3,11 @@ package com.uddernetworks.newocr.recognition;
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.character.SearchCharacter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.detection.ComponentFilter;
+import com.uddernetworks.newocr.detection.NonTextComponentFilter;
 import com.uddernetworks.newocr.detection.SearchImage;
+import com.uddernetworks.newocr.detection.SpeckleComponentFilter;
 import com.uddernetworks.newocr.recognition.mergence.DefaultMergenceManager;
 import com.uddernetworks.newocr.recognition.mergence.MergenceManager;
 import com.uddernetworks.newocr.recognition.similarity.DefaultSimilarityManager;
@@ -12,7 +16,9 @@ import com.uddernetworks.newocr.train.OCROptions;
 import com.uddernetworks.newocr.train.UntrainedDatabaseException;
 import com.uddernetworks.newocr.utils.IntPair;
 import com.uddernetworks.newocr.utils.OCRUtils;
-import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntHeapPriorityQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,9 +26,11 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The base class for actually scanning an image.
@@ -37,6 +45,9 @@ public class OCRScan implements Scan {
 
     // This is the same as OCRTrain.TRAIN_STRING but without duplicates used in training
     public static final String RAW_STRING = "!\"#$%&'()*+,-./0123456789:;<=>?@ABCDEFGHIJKLMNOPQRSTUVWXYZ[\\]^_`abcdefghijklmnopqrstuvwxyz{|}~W W";
+
+    // The amount of vertical strips the line height is measured in when downscaling
+    private static final int DOWNSCALE_STRIPS = 8;
     private DatabaseManager databaseManager;
     private Actions actions;
     private SimilarityManager similarityManager;
@@ -54,14 +65,15 @@ public class OCRScan implements Scan {
     }
 
     /**
-     * Creates a new {@link OCRScan} with a default {@link MergenceManager}.
+     * Creates a new {@link OCRScan} with a default {@link MergenceManager}, merging in parallel if
+     * {@link OCROptions#isParallelScanning()} is enabled.
      *
      * @param databaseManager   The {@link DatabaseManager} to use
      * @param options           The {@link OCROptions} to use
      * @param similarityManager The {@link SimilarityManager} to use
      */
     public OCRScan(DatabaseManager databaseManager, OCROptions options, SimilarityManager similarityManager) {
-        this(databaseManager, options, similarityManager, new DefaultMergenceManager(databaseManager, similarityManager).loadDefaults());
+        this(databaseManager, options, similarityManager, new DefaultMergenceManager(databaseManager, similarityManager).setParallel(options.isParallelScanning()).loadDefaults());
     }
 
     /**
@@ -95,138 +107,334 @@ public class OCRScan implements Scan {
 
     @Override
     public ScannedImage scanImage(File file) {
+        return scanImage(file, line -> {});
+    }
 
-        if (!this.databaseManager.isTrainedSync()) throw new UntrainedDatabaseException(this.databaseManager);
+    @Override
+    public ScannedImage scanImage(File file, Consumer<ScannedLine> lineConsumer) {
 
-        var start = System.currentTimeMillis();
+        // The whole scan uses the same snapshot of the model, even if the database is retrained part way through
+        var snapshot = getSnapshot();
+        if (!snapshot.isTrained()) throw new UntrainedDatabaseException(this.databaseManager);
 
-        // Preparing image
         var inputOptional = this.options.getImageReadMethod().apply(file);
         if (inputOptional.isEmpty()) throw new RuntimeException("Input file not found!");
-        var input = inputOptional.get();
+        return scanImage(file, inputOptional.get(), snapshot, lineConsumer);
+    }
+
+    /**
+     * Scans an image that has already been read like {@link #scanImage(File, Consumer)}, with the given
+     * {@link ModelSnapshot} instead of the current one of the database. This allows anything derived from the image or
+     * model before the scan, such as a cache key, to be derived from exactly what is scanned.
+     *
+     * @param file         The file the image was read from
+     * @param input        The image, as read by the {@link OCROptions#getImageReadMethod()}
+     * @param snapshot     The {@link ModelSnapshot} to scan with
+     * @param lineConsumer The consumer accepting each finished line
+     * @return A {@link DefaultScannedImage} containing all scanned character data
+     * @throws UntrainedDatabaseException If the {@link ModelSnapshot} is not trained
+     */
+    public ScannedImage scanImage(File file, BufferedImage input, ModelSnapshot snapshot, Consumer<ScannedLine> lineConsumer) {
+        if (!snapshot.isTrained()) throw new UntrainedDatabaseException(this.databaseManager);
+
+        var start = System.currentTimeMillis();
+
+        // Preparing image
         var originalInput = copyBufferedImage(input);
+
+        // Oversized text is scaled down first, and its letters are scaled back up once scanned
+        var scale = getDownscale(input);
+        input = binarize(input, scale);
+
         var values = OCRUtils.createGrid(input);
         var searchCharacters = new ArrayList<SearchCharacter>();
 
-        input = OCRUtils.filter(input).orElseThrow();
+        var rowProfile = OCRUtils.toGrid(input, values);
+
+        var searchImage = new SearchImage(values, rowProfile);
+
+        // Components that can't be text, such as borders and images, are dropped and left out of the line bounds
+        var components = this.actions.getComponents(searchImage);
+        var textRowProfile = rowProfile;
+        if (this.options.isNonTextRejection()) {
+            var nonTextFilter = NonTextComponentFilter.of(components);
+            var profile = rowProfile.clone();
+            components.removeIf(component -> {
+                if (nonTextFilter.accept(component, 0)) return false;
+                for (var coordinate : component.getCoordinates()) profile[coordinate.getValue()]--;
+                return true;
+            });
 
-        OCRUtils.toGrid(input, values);
+            textRowProfile = profile;
+        }
+
+        var lineBounds = this.actions.getLineBounds(textRowProfile);
 
-        var searchImage = new SearchImage(values);
+        ScannedImage scannedImage = new DefaultScannedImage(file, input, originalInput);
+        var spacingModel = getSpacingModel(snapshot);
 
+        // Every character is assigned to the first line from the top with its center in the line's bounds
+        var orderedBounds = getOrderedBounds(lineBounds);
 
-        // Moved from below
-        // Key = Entry<MinCenter, MaxCenter>  centers are ABSOLUTE
-        Map<IntPair, List<ImageLetter>> lines = new LinkedHashMap<>();
+        // Speckles are dropped relative to the height of the line they are in, before they are segmented
+        var componentFilter = getComponentFilter(snapshot);
+        var rowLineHeights = getRowLineHeights(orderedBounds.stream().map(AbstractMap.SimpleEntry::getKey).collect(Collectors.toList()), searchImage.getHeight());
+        this.actions.getLetters(components, searchCharacters, component -> {
+            int row = (int) component.getCenterY();
+            return componentFilter.accept(component, row < rowLineHeights.length ? rowLineHeights[row] : 0);
+        });
 
-        this.actions.getLineBoundsForTraining(searchImage).forEach(pair -> lines.put(pair, new LinkedList<>()));
-        this.actions.getLetters(searchImage, searchCharacters);
+        var lineCharacters = assignLines(searchCharacters, orderedBounds.stream().map(AbstractMap.SimpleEntry::getKey).collect(Collectors.toList()));
 
-        // Gets all needed character data from the database based on the currently used font sizes
+        // Lines are classified one at a time from the top and merged as they come, so each line is spaced and given to
+        // the consumer once nothing below it can be merged into it, while the rest of the page is still classified
+        var lineIndex = new AtomicInteger();
+        var merger = this.mergenceManager.beginMergence(this.similarityManager, snapshot, (line, y) -> {
+            // Inserts all the spaces in the line, being based on the tallest character's height as the font size. The
+            // line is sorted by X again once the spaces are inserted.
+            if (spacingModel.isPresent()) {
+                line = spacingModel.get().space(line, line.stream().mapToInt(ImageLetter::getHeight).max().orElseThrow(), this::spaceRound);
+            }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                databaseManager.getAllCharacterSegments().get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+            if (scale < 1) {
+                for (var letter : line) scaleLetter(letter, scale);
+                y = (int) Math.round(y / scale);
             }
+
+            scannedImage.addLine(y, line);
+            lineConsumer.accept(new ScannedLine(lineIndex.getAndIncrement(), y, line));
         });
 
-        // Gets the closest matching character (According to the database values) using OCRActions#getCharacterFor(SearchCharacter),
-        // then it orders them by their X values, and then sorts the ImageLetters so certain ones go first, allowing the
-        // characters to go to the correct lines
+        for (int i = 0; i < orderedBounds.size(); i++) {
+            var characters = lineCharacters.get(i);
+            if (characters.isEmpty()) continue;
 
-        var sortedLines = new Int2ObjectLinkedOpenHashMap<List<ImageLetter>>();
+            var databaseCharacters = new ArrayList<ImageLetter>(characters.size());
+            classify(characters, snapshot).forEach(imageLetter -> imageLetter.ifPresent(databaseCharacters::add));
+            if (databaseCharacters.isEmpty()) continue;
 
-        // New method: First orders SearchCharacters
-        lines.keySet()
-                .stream()
-                .map(entry -> new AbstractMap.SimpleEntry<>(entry, (int) Math.round(((double) entry.getValue() - (double) entry.getKey()) / 2D + entry.getKey())))
-                .sorted(Comparator.comparingInt(AbstractMap.SimpleEntry::getValue))
-                .forEach(nestedEntry -> {
-                    var linesEntry = nestedEntry.getKey();
-                    int y = nestedEntry.getValue();
+            databaseCharacters.sort(Comparator.comparingInt(ImageLetter::getX));
+            merger.accept(orderedBounds.get(i).getValue(), databaseCharacters);
+        }
 
-                    var databaseCharacters = lines.get(linesEntry);
+        merger.finish();
 
-                    searchCharacters.removeIf(searchCharacter -> {
-                        var center = searchCharacter.getY() + ((double) searchCharacter.getHeight() / 2);
-                        if (!OCRUtils.isWithin(linesEntry.getKey(), linesEntry.getValue(), center)) return false;
-                        searchCharacter.setCenterOffset(center - searchCharacter.getY());
-                        this.actions.getCharacterFor(searchCharacter, linesEntry).ifPresent(databaseCharacters::add);
-                        return true;
-                    });
+        LOGGER.debug("Finished in " + (System.currentTimeMillis() - start) + "ms");
+        return scannedImage;
+    }
 
-                    if (databaseCharacters.isEmpty()) {
-                        return;
-                    }
+    /**
+     * Orders the given line bounds by their center Y, which is used as the Y of the line. Bounds with the same center
+     * are merged into a single line holding all of them, as they would otherwise end up as the same line of the
+     * {@link ScannedImage}.
+     *
+     * @param lineBounds The line bounds (Key/value is top/bottom Y values respectively)
+     * @return The merged line bounds with their center Y, ordered by their center Y
+     */
+    private List<AbstractMap.SimpleEntry<IntPair, Integer>> getOrderedBounds(List<IntPair> lineBounds) {
+        var byCenter = new TreeMap<Integer, IntPair>();
+        for (var bounds : lineBounds) {
+            int center = (int) Math.round(((double) bounds.getValue() - (double) bounds.getKey()) / 2D + bounds.getKey());
+            byCenter.merge(center, bounds, (first, second) -> new IntPair(Math.min(first.getKey(), second.getKey()), Math.max(first.getValue(), second.getValue())));
+        }
 
-                    databaseCharacters.sort(Comparator.comparingInt(ImageLetter::getX));
-                    sortedLines.put(y, databaseCharacters);
-                });
+        return byCenter.entrySet().stream()
+                .map(entry -> new AbstractMap.SimpleEntry<>(entry.getValue(), entry.getKey()))
+                .collect(Collectors.toList());
+    }
 
-        System.out.println("sortedLines = " + sortedLines);
-        this.mergenceManager.beginMergence(sortedLines, this.similarityManager);
+    /**
+     * Gets the height of the first line in the given order containing each row of the image.
+     *
+     * @param lineBounds The line bounds (Key/value is top/bottom Y values respectively), in order of priority
+     * @param height     The height of the image
+     * @return The line height of every row, or 0 for rows in no line
+     */
+    private int[] getRowLineHeights(List<IntPair> lineBounds, int height) {
+        var rowLineHeights = new int[height];
+
+        // Goes from the lowest priority so the first line containing a row is the one left
+        for (int i = lineBounds.size() - 1; i >= 0; i--) {
+            var bounds = lineBounds.get(i);
+            int lineHeight = bounds.getValue() - bounds.getKey();
+            for (int y = Math.max(0, bounds.getKey()); y <= Math.min(height - 1, bounds.getValue()); y++) {
+                rowLineHeights[y] = lineHeight;
+            }
+        }
 
-        // Inserts all the spaces in the line. This is based on the first character of the line's height, and will be
-        // derived from that font size.
-        sortedLines.values().forEach(line -> line.stream().mapToInt(ImageLetter::getHeight).max().ifPresent(max -> line.addAll(getSpacesFor(line, max))));
+        return rowLineHeights;
+    }
 
-        // Sorts the lines again based on X values, to move spaces from the back to their proper locations in the line.
+    /**
+     * Binarizes the given image the same way it is before being scanned, scaling it down if its text is oversized,
+     * giving the same image as the {@link ScannedImage#getBinarizedImage()} of its scan.
+     *
+     * @param input The unfiltered input image, which is not modified
+     * @return The binarized image
+     */
+    public BufferedImage binarize(BufferedImage input) {
+        return binarize(input, getDownscale(input));
+    }
 
-        ScannedImage scannedImage = new DefaultScannedImage(file, input, originalInput);
+    private BufferedImage binarize(BufferedImage input, double scale) {
+        if (scale < 1) input = OCRUtils.scaleDown(input, scale);
+        return OCRUtils.filter(input).orElseThrow();
+    }
 
-        sortedLines.keySet().stream().sorted().forEach(y -> {
-            List<ImageLetter> line = sortedLines.get(y.intValue());
-            scannedImage.addLine(y, line.stream().sorted(Comparator.comparingInt(ImageLetter::getX)).collect(Collectors.toList()));
-        });
+    /**
+     * Gets the scale to scan the given image at, so the median height of its lines is at most
+     * {@link OCROptions#getDownscaleHeight()}. The line heights are taken from the row profiles of vertical strips of
+     * the image, so a border or image only hides the lines in its own strips.
+     *
+     * @param input The unfiltered input image
+     * @return The scale, being 1 if the image should not be scaled
+     */
+    private double getDownscale(BufferedImage input) {
+        int targetHeight = this.options.getDownscaleHeight();
+        if (targetHeight <= 0) return 1;
+
+        var heights = new IntArrayList();
+        for (var profile : OCRUtils.getStripRowProfiles(input, DOWNSCALE_STRIPS)) {
+            for (var bounds : this.actions.getLineBounds(profile)) {
+                int height = bounds.getValue() - bounds.getKey();
+                if (height >= 3) heights.add(height);
+            }
+        }
 
-        LOGGER.debug("Finished in " + (System.currentTimeMillis() - start) + "ms");
-        return scannedImage;
+        if (heights.isEmpty()) return 1;
+        var sorted = heights.toIntArray();
+        IntArrays.quickSort(sorted);
+        return Math.min(1, (double) targetHeight / sorted[sorted.length / 2]);
     }
 
-    @Override
-    public List<ImageLetter> getSpacesFor(List<ImageLetter> line, int fontSize) {
-        var ret = new ArrayList<ImageLetter>();
+    /**
+     * Maps the bounds of the given letter scanned at the given scale back to the original image.
+     *
+     * @param letter The letter
+     * @param scale  The scale the letter was scanned at
+     */
+    private static void scaleLetter(ImageLetter letter, double scale) {
+        letter.setX((int) Math.round(letter.getX() / scale));
+        letter.setY((int) Math.round(letter.getY() / scale));
+        letter.setWidth((int) Math.round(letter.getWidth() / scale));
+        letter.setHeight((int) Math.round(letter.getHeight() / scale));
+    }
 
-        try {
-            var data = databaseManager.getAllCharacterSegments().get();
+    /**
+     * Gets the {@link ComponentFilter} to drop speckles with, from the {@link OCROptions} and the smallest dot in the
+     * given {@link ModelSnapshot}.
+     *
+     * @param snapshot The {@link ModelSnapshot} being scanned with
+     * @return The {@link ComponentFilter}
+     */
+    private ComponentFilter getComponentFilter(ModelSnapshot snapshot) {
+        var tolerance = this.options.getSpeckleTolerance();
+        var minArea = this.options.getMinComponentArea();
+        if (tolerance <= 0 && minArea <= 0) return ComponentFilter.NONE;
+
+        return this.similarityManager.getRule("dot")
+                .map(dotRule -> (ComponentFilter) SpeckleComponentFilter.of(snapshot, dotRule, tolerance, minArea))
+                .orElseGet(() -> new SpeckleComponentFilter(minArea, 0));
+    }
+
+    /**
+     * Assigns every {@link SearchCharacter} to the first line in the given order whose bounds contain its center, by
+     * sweeping the characters ordered by their centers against the lines ordered by their tops. Characters in no line
+     * are not assigned.
+     *
+     * @param searchCharacters The {@link SearchCharacter}s to assign
+     * @param lineBounds       The line bounds (Key/value is top/bottom Y values respectively), in order of priority
+     * @return The {@link SearchCharacter}s of each line in the same order as the given bounds, each in the order they
+     * were given in
+     */
+    static List<List<SearchCharacter>> assignLines(List<SearchCharacter> searchCharacters, List<IntPair> lineBounds) {
+        int count = searchCharacters.size();
+        var centers = new double[count];
+        for (int i = 0; i < count; i++) {
+            var searchCharacter = searchCharacters.get(i);
+            centers[i] = searchCharacter.getY() + ((double) searchCharacter.getHeight() / 2);
+        }
+
+        var byCenter = IntStream.range(0, count).toArray();
+        IntArrays.mergeSort(byCenter, (first, second) -> Double.compare(centers[first], centers[second]));
+
+        var byTop = IntStream.range(0, lineBounds.size()).toArray();
+        IntArrays.mergeSort(byTop, (first, second) -> Integer.compare(lineBounds.get(first).getKey(), lineBounds.get(second).getKey()));
 
-            // Gets the space DatabaseCharacter used for the current font size from the database
-            var spaceOptional = data.stream().filter(databaseCharacter -> databaseCharacter.getLetter() == ' ').findFirst();
+        var lines = new ArrayList<List<SearchCharacter>>(lineBounds.size());
+        for (int i = 0; i < lineBounds.size(); i++) lines.add(new ArrayList<>());
 
-            if (spaceOptional.isEmpty()) {
-                LOGGER.error("No space found for current font size: " + fontSize);
-                return line;
+        // Holds the lines that have started above the current center, with the highest priority first. As the centers
+        // only increase, a line ending above the current center may be dropped for good once it reaches the front.
+        var started = new IntHeapPriorityQueue();
+        var lineOf = new int[count];
+        int nextLine = 0;
+
+        for (int index : byCenter) {
+            double center = centers[index];
+            while (nextLine < byTop.length && lineBounds.get(byTop[nextLine]).getKey() <= center) {
+                started.enqueue(byTop[nextLine++]);
             }
 
-            var space = spaceOptional.get();
-            var spaceRatio = space.getAvgWidth() / space.getAvgHeight();
+            while (!started.isEmpty() && lineBounds.get(started.firstInt()).getValue() < center) {
+                started.dequeueInt();
+            }
 
-            ImageLetter prev = null;
+            lineOf[index] = started.isEmpty() ? -1 : started.firstInt();
+        }
 
-            for (var searchCharacter : line) {
-                var spaceRatioOverride = prev == null ? 0 : databaseManager.getCustomSpace(prev.getLetter()).get();
-                int leftX = prev == null ? 0 : prev.getX() + prev.getWidth() + 1;
-                int rightX = searchCharacter.getX();
+        for (int i = 0; i < count; i++) {
+            if (lineOf[i] != -1) lines.get(lineOf[i]).add(searchCharacters.get(i));
+        }
 
-                var gap = rightX - leftX; // The space between the current character and the last character
-                var usedWidth = spaceRatio * fontSize; // The width of the space for this specific fot size
-                usedWidth += spaceRatioOverride * fontSize;
+        return lines;
+    }
 
-                int spaces = '!' == searchCharacter.getLetter() ? (int) Math.floor(gap / usedWidth) : spaceRound(gap / usedWidth);
+    /**
+     * Gets the closest matching character (According to the given {@link ModelSnapshot}) of every given
+     * {@link SearchCharacter}.
+     *
+     * @param searchCharacters The {@link SearchCharacter}s of a line
+     * @param snapshot         The {@link ModelSnapshot} to match against
+     * @return The matched {@link ImageLetter}s, in the same order as the {@link SearchCharacter}s
+     */
+    private List<Optional<ImageLetter>> classify(List<SearchCharacter> searchCharacters, ModelSnapshot snapshot) {
+        for (var searchCharacter : searchCharacters) {
+            var center = searchCharacter.getY() + ((double) searchCharacter.getHeight() / 2);
+            searchCharacter.setCenterOffset(center - searchCharacter.getY());
+        }
 
-                for (int i = 0; i < spaces; i++) {
-                    ret.add(new ImageLetter(' ', 0, (int) (leftX + (usedWidth * i)), searchCharacter.getY(), (int) usedWidth, fontSize, usedWidth, fontSize, spaceRatio));
-                }
+        return this.actions.getCharactersFor(searchCharacters, snapshot);
+    }
 
-                prev = searchCharacter;
-            }
-        } catch (ExecutionException | InterruptedException e) {
-            e.printStackTrace();
+    @Override
+    public List<ImageLetter> getSpacesFor(List<ImageLetter> line, int fontSize) {
+        return getSpacingModel(getSnapshot()).map(spacingModel -> spacingModel.space(line, fontSize, this::spaceRound).createSpaces()).orElseGet(ArrayList::new);
+    }
+
+    /**
+     * Gets the current {@link ModelSnapshot} of the database.
+     *
+     * @return The current {@link ModelSnapshot}
+     */
+    private ModelSnapshot getSnapshot() {
+        try {
+            return this.databaseManager.getSnapshot().get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Unable to get the trained model", e);
         }
+    }
 
-        return ret;
+    /**
+     * Gets the {@link SpacingModel} of the given {@link ModelSnapshot}.
+     *
+     * @param snapshot The {@link ModelSnapshot} to get the spacing of
+     * @return The {@link SpacingModel}, or empty if no space has been trained
+     */
+    private Optional<SpacingModel> getSpacingModel(ModelSnapshot snapshot) {
+        var spacingModel = SpacingModel.of(snapshot);
+        if (spacingModel.isEmpty()) LOGGER.error("No space found in the trained data");
+        return spacingModel;
     }
 
     @Override
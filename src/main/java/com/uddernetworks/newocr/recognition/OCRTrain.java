@@ -3,25 +3,27 @@ package com.uddernetworks.newocr.recognition;
 import com.uddernetworks.newocr.character.SearchCharacter;
 import com.uddernetworks.newocr.character.TrainedCharacterData;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.detection.SearchImage;
-import com.uddernetworks.newocr.recognition.similarity.Letter;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
+import com.uddernetworks.newocr.train.GlyphLineRenderer;
 import com.uddernetworks.newocr.train.OCROptions;
 import com.uddernetworks.newocr.train.TrainGeneratorOptions;
+import com.uddernetworks.newocr.train.TrainingCorpus;
+import com.uddernetworks.newocr.utils.IntPair;
+import com.uddernetworks.newocr.utils.MeanAccumulator;
 import com.uddernetworks.newocr.utils.OCRUtils;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 /**
  * The base class for actually training an image/font.
@@ -95,171 +97,270 @@ public class OCRTrain implements Train {
 
     @Override
     public void trainImage(File file, TrainGeneratorOptions generatorOptions) {
-
-        if (this.databaseManager.isTrainedSync()) {
-            databaseManager.clearData();
-            this.databaseManager.setTrained(false);
-        }
-
-        var trainingFontSize = generatorOptions != null;
-
-        this.databaseManager.setProperty("trainingFontSize", trainingFontSize);
-
-        List<TrainedCharacterData> trainedCharacterDataList = new ArrayList<>();
+        prepareDatabase(generatorOptions != null);
 
         // Preparing image
         var inputOptional = this.options.getImageReadMethod().apply(file);
         if (inputOptional.isEmpty()) throw new RuntimeException("Input file not found!");
-        var input = inputOptional.get();
-        var values = OCRUtils.createGrid(input);
-
-        input = OCRUtils.filter(input).orElseThrow();
-
-        OCRUtils.toGrid(input, values);
-
-        var searchImage = new SearchImage(values);
-
-        TrainedCharacterData spaceTrainedCharacter = new TrainedCharacterData(' ');
-        trainedCharacterDataList.add(spaceTrainedCharacter);
-
-        // Stores the height/distance ratio for apostrophe parts
-        var apostropheRatios = new DoubleArrayList();
-
-        var fontSizes = new HashMap<Letter, DoubleArrayList>();
-
-        var customSpaces = new HashMap<Character, DoubleArrayList>();
-
-        var metaMapping = Stream.of("distanceAbove", "distancei", "distancej", "colonDistance", "semicolonDistance", "equalsDistance", "distanceQuestion", "distanceExclamation")
-                .collect(Collectors.toMap(name -> name, name -> new DoubleArrayList()));
-
-        var currentFontSize = trainingFontSize ? generatorOptions.getMaxFontSize() : 0;
 
-        // Goes through each line found
-        for (var line : this.actions.getLettersDuringTraining(searchImage)) {
+        writeAccumulator(trainImage(inputOptional.get(), generatorOptions));
+    }
 
-            // Gets all characters found at the line bounds from the searchCharacters (Collected from the double for loops)
-            SearchCharacter nextMeasuringSpace = null;
+    @Override
+    public void trainFont(TrainGeneratorOptions generatorOptions) {
+        prepareDatabase(true);
+        writeAccumulator(trainFontSizes(generatorOptions));
+    }
 
-            if (!line.getLetters().isEmpty()) {
-                var letterIndex = 0;
-                var beforeSpaceX = 0;
-                SearchCharacter firstQuote = null;
+    @Override
+    public void trainCorpus(TrainingCorpus corpus) {
+        var entries = corpus.getEntries();
+        prepareDatabase(entries.stream().allMatch(entry -> entry.getGeneratorOptions() != null));
+
+        // Every image is read/rendered and trained on its own thread, and only the combined data is written
+        var accumulator = entries.parallelStream().collect(TrainingAccumulator::new, (imageAccumulator, entry) -> {
+            if (entry.isRendering()) {
+                imageAccumulator.merge(trainFontSizes(entry.getGeneratorOptions()));
+                return;
+            }
 
-                for (SearchCharacter searchCharacter : line.getLetters()) {
-                    // Gets the next character it knows it will be
-                    char current = searchCharacter.getLetter() == ' ' ? ' ' : TRAIN_STRING.charAt(letterIndex++);
-                    var modifier = searchCharacter.getModifier();
-                    var revertIndex = false;
+            var input = entry.getImage(this.options.getImageReadMethod()).orElseThrow(() -> new RuntimeException("Input file not found!"));
+            imageAccumulator.merge(trainImage(input, entry.getGeneratorOptions()));
+        }, TrainingAccumulator::merge);
 
-                    // If the index is on the quote
-                    if (letterIndex == 3) {
-                        searchCharacter.setLetter('"');
-                        if (firstQuote == null) {
-                            firstQuote = searchCharacter;
+        writeAccumulator(accumulator);
+    }
 
-                            // Make sure to subtract 1 from the letterIndex at the end, so it can process the " again
-                            revertIndex = true;
-                        } else {
-                            var distance = searchCharacter.getX() - firstQuote.getX() - firstQuote.getWidth();
-                            var ratio = (double) firstQuote.getHeight() / (double) distance;
-                            apostropheRatios.add(ratio);
+    /**
+     * Clears any existing training data from the database, and stores if font sizes are being trained.
+     *
+     * @param trainingFontSize If font sizes are being trained
+     */
+    private void prepareDatabase(boolean trainingFontSize) {
+        // The database is marked as untrained first, so the cleared data is never published as a trained model
+        if (this.databaseManager.isTrainedSync()) {
+            this.databaseManager.setTrained(false);
+            this.databaseManager.clearData();
+        }
 
-                            modifier = 1;
-                        }
+        this.databaseManager.setProperty("trainingFontSize", trainingFontSize);
+    }
 
-                        // If the current character is the FIRST `W`, sets beforeSpaceX to the current far right coordinate
-                        // of the space (X + width), and go up another character (Skipping the space in TRAIN_STRING)
-                    } else if (letterIndex == TRAIN_STRING.length() - 2) {
-                        searchCharacter.setLetter('W');
-                        beforeSpaceX = searchCharacter.getX() + searchCharacter.getWidth();
-                        letterIndex++;
-                        continue;
+    /**
+     * Trains a single training image into a new {@link TrainingAccumulator}, without writing anything to the database.
+     *
+     * @param input            The training image
+     * @param generatorOptions The options the image was generated with, or `null` if font sizes are not known
+     * @return The {@link TrainingAccumulator} containing the image's data
+     */
+    private TrainingAccumulator trainImage(BufferedImage input, TrainGeneratorOptions generatorOptions) {
+        var values = OCRUtils.createGrid(input);
 
-                        // If it's the last character, add the space based on beforeSpaceX and the current X, (Getting the
-                        // width of the space) and reset the line
-                    } else if (letterIndex == TRAIN_STRING.length()) {
-                        searchCharacter.setLetter('W');
-                        spaceTrainedCharacter.recalculateTo(searchCharacter.getX() - beforeSpaceX, line.bottomY() - line.topY());
-                        letterIndex = 0;
-                        continue;
-                    } else {
-                        searchCharacter.setLetter(current);
-                    }
+        input = OCRUtils.filter(input).orElseThrow();
 
-                    if (nextMeasuringSpace != null) {
-                        double width = searchCharacter.getX() - (nextMeasuringSpace.getX() + nextMeasuringSpace.getWidth());
-                        double ratio = width / (double) nextMeasuringSpace.getHeight();
-                        customSpaces.computeIfAbsent(nextMeasuringSpace.getLetter(), x -> new DoubleArrayList()).add(ratio);
-                        nextMeasuringSpace = null;
-                    }
+        var rowProfile = OCRUtils.toGrid(input, values);
 
-                    if (this.options.getSpecialSpaces().contains(current)) {
-                        nextMeasuringSpace = searchCharacter;
-                    }
+        var searchImage = new SearchImage(values, rowProfile);
 
-                    metaMapping.forEach((meta, list) -> searchCharacter.getTrainingMeta(meta).ifPresent(list::add));
+        var trainingFontSize = generatorOptions != null;
+        var maxFontSize = trainingFontSize ? generatorOptions.getMaxFontSize() : 0;
+        var scale = trainingFontSize ? generatorOptions.getScale() : 1;
 
-                    searchCharacter.setModifier(modifier);
-                    var trainedSearchCharacter = getTrainedCharacter(trainedCharacterDataList, current, modifier);
+        // Each line is a separate font size, so every line may be trained on its own and combined afterwards
+        var lineBounds = this.actions.getLineBoundsForTraining(searchImage);
+        var lineIndices = IntStream.range(0, lineBounds.size());
+        if (this.options.isParallelTraining()) lineIndices = lineIndices.parallel();
 
-                    // Adds the current segment values of the current searchCharacter to the trainedSearchCharacter
-                    trainedSearchCharacter.recalculateTo(searchCharacter);
+        return lineIndices.collect(TrainingAccumulator::new,
+                (lineAccumulator, index) -> trainLine(this.actions.getLettersDuringTraining(searchImage, lineBounds.get(index)), (maxFontSize - index) * scale, lineAccumulator),
+                TrainingAccumulator::merge);
+    }
 
-                    // Get the font size divided by the width/height of the character
-                    double result = (double) currentFontSize / searchCharacter.getHeight();
-                    fontSizes.computeIfAbsent(Letter.getLetter(current, modifier), x -> new DoubleArrayList()).add(result);
+    /**
+     * Trains every font size of the given options into a new {@link TrainingAccumulator}, rendering each size's line
+     * with a {@link GlyphLineRenderer} instead of finding it in a training image. Each line is the same as in an image
+     * from {@link com.uddernetworks.newocr.train.ComputerTrainGenerator}, though all sizes are trained rather than
+     * only those fitting in the image, and sizes are trained concurrently when training in parallel.
+     *
+     * @param generatorOptions The options of the font to train
+     * @return The {@link TrainingAccumulator} containing the font's data
+     */
+    private TrainingAccumulator trainFontSizes(TrainGeneratorOptions generatorOptions) {
+        var renderers = ThreadLocal.withInitial(GlyphLineRenderer::new);
+        var maxFontSize = generatorOptions.getMaxFontSize();
+        var scale = generatorOptions.getScale();
 
-                    double halfOfLineHeight = ((double) line.bottomY() - (double) line.topY()) / 2;
-                    double middleOfLineToTopChar = (double) searchCharacter.getY() - (double) line.topY();
-                    double topOfLetterToCenter = halfOfLineHeight - middleOfLineToTopChar;
+        var lineIndices = IntStream.range(0, generatorOptions.getMaxFontSize() - generatorOptions.getMinFontSize());
+        if (this.options.isParallelTraining()) lineIndices = lineIndices.parallel();
 
-                    // Sets the current center to be calculated, along with any meta it may have
-                    trainedSearchCharacter.recalculateCenter(topOfLetterToCenter); // This NOW gets offset from top of
+        return lineIndices.collect(TrainingAccumulator::new, (lineAccumulator, index) -> {
+            var searchImage = renderers.get().render(generatorOptions, maxFontSize - index);
 
-                    if (revertIndex) letterIndex--;
-
-                    // Resets the current letter
-                    if (letterIndex >= TRAIN_STRING.length()) {
-                        letterIndex = 0;
-                    }
-                }
-            }
+            // The line's pieces, such as the dots above characters, are all in the same bounds
+            var lineBounds = this.actions.getLineBoundsForTraining(searchImage);
+            if (lineBounds.isEmpty()) return;
+            var bounds = new IntPair(lineBounds.get(0).getKey(), lineBounds.get(lineBounds.size() - 1).getValue());
 
-            currentFontSize--;
-        }
+            trainLine(this.actions.getLettersDuringTraining(searchImage, bounds), (maxFontSize - index) * scale, lineAccumulator);
+        }, TrainingAccumulator::merge);
+    }
 
+    /**
+     * Writes all the data in the given {@link TrainingAccumulator} to the database, marks it as trained and publishes
+     * the new {@link ModelSnapshot}.
+     *
+     * @param accumulator The {@link TrainingAccumulator} to write
+     */
+    private void writeAccumulator(TrainingAccumulator accumulator) {
         LOGGER.debug("Writing data to database...");
         long start = System.currentTimeMillis();
 
+        var writes = new ArrayList<CompletableFuture<Void>>();
+
         // Add the apostropheRatios data into the database
-        CompletableFuture.runAsync(() -> metaMapping.forEach(databaseManager::addAveragedData))
-                .thenRunAsync(() -> databaseManager.addAveragedData("apostropheRatio", apostropheRatios))
-                .thenRunAsync(() -> fontSizes.forEach(((letter, ratios) -> databaseManager.setFontSize(letter.getLetter(), letter.getMod(), DoubleStream.of(ratios.toDoubleArray()).average().orElse(0D)))))
-                .thenRunAsync(() -> customSpaces.forEach((character, ratios) -> databaseManager.addCustomSpace(character, ratios.stream().mapToDouble(Double::doubleValue).average().orElse(0))));
+        writes.add(CompletableFuture.runAsync(() -> accumulator.getMeta().forEach((name, mean) -> addAveragedData(name, mean)))
+                .thenRunAsync(() -> addAveragedData("apostropheRatio", accumulator.getApostropheRatios()))
+                .thenRunAsync(() -> accumulator.getFontSizes().forEach(((glyphId, ratios) -> databaseManager.setFontSize(GlyphRegistry.getLetter(glyphId), GlyphRegistry.getModifier(glyphId), ratios.getMean()))))
+                .thenRunAsync(() -> accumulator.getCustomSpaces().forEach((character, ratios) -> databaseManager.addCustomSpace(character, ratios.getMean()))));
 
         // Inserts all character data into the database after recalculating the
-        trainedCharacterDataList.forEach(databaseTrainedCharacter -> {
+        accumulator.getTrainedCharacters().forEach(databaseTrainedCharacter -> {
             try {
                 databaseTrainedCharacter.finishRecalculations();
 
                 char letter = databaseTrainedCharacter.getLetter();
 
-                CompletableFuture.runAsync(() -> databaseManager.createLetterEntry(letter, databaseTrainedCharacter.getModifier(), databaseTrainedCharacter.getWidthAverage(), databaseTrainedCharacter.getHeightAverage(), databaseTrainedCharacter.getMinCenter(), databaseTrainedCharacter.getMaxCenter(), letter == ' '))
+                writes.add(CompletableFuture.runAsync(() -> databaseManager.createLetterEntry(letter, databaseTrainedCharacter.getModifier(), databaseTrainedCharacter.getWidthAverage(), databaseTrainedCharacter.getHeightAverage(), databaseTrainedCharacter.getMinCenter(), databaseTrainedCharacter.getMaxCenter(), letter == ' '))
                         .thenRunAsync(() -> {
                             if (letter != ' ') {
                                 databaseManager.addLetterSegments(letter, databaseTrainedCharacter.getModifier(), databaseTrainedCharacter.getSegmentPercentages());
                             }
-                        });
+                        }));
             } catch (Exception e) {
                 e.printStackTrace();
             }
         });
 
+        // Everything must be written before the new model is published, so no scan sees a partially trained model
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).join();
+
         this.databaseManager.setTrained(true);
+        this.databaseManager.publishSnapshot();
 
         LOGGER.debug("Finished writing to database in " + (System.currentTimeMillis() - start) + "ms");
     }
 
+    /**
+     * Trains a single line of the training image, laid out as {@link #TRAIN_STRING}, into the given
+     * {@link TrainingAccumulator}. Lines are independent of each other, so this may be invoked concurrently with
+     * different {@link TrainingAccumulator}s.
+     *
+     * @param line        The line of characters to train
+     * @param fontSize    The font size of the line
+     * @param accumulator The {@link TrainingAccumulator} to add the line's data to
+     */
+    private void trainLine(CharacterLine line, double fontSize, TrainingAccumulator accumulator) {
+        // Gets all characters found at the line bounds from the searchCharacters (Collected from the double for loops)
+        SearchCharacter nextMeasuringSpace = null;
+
+        if (line.getLetters().isEmpty()) return;
+
+        var letterIndex = 0;
+        var beforeSpaceX = 0;
+        SearchCharacter firstQuote = null;
+
+        for (SearchCharacter searchCharacter : line.getLetters()) {
+            // Gets the next character it knows it will be
+            char current = searchCharacter.getLetter() == ' ' ? ' ' : TRAIN_STRING.charAt(letterIndex++);
+            var modifier = searchCharacter.getModifier();
+            var revertIndex = false;
+
+            // If the index is on the quote
+            if (letterIndex == 3) {
+                searchCharacter.setLetter('"');
+                if (firstQuote == null) {
+                    firstQuote = searchCharacter;
+
+                    // Make sure to subtract 1 from the letterIndex at the end, so it can process the " again
+                    revertIndex = true;
+                } else {
+                    var distance = searchCharacter.getX() - firstQuote.getX() - firstQuote.getWidth();
+                    var ratio = (double) firstQuote.getHeight() / (double) distance;
+                    accumulator.addApostropheRatio(ratio);
+
+                    modifier = 1;
+                }
+
+                // If the current character is the FIRST `W`, sets beforeSpaceX to the current far right coordinate
+                // of the space (X + width), and go up another character (Skipping the space in TRAIN_STRING)
+            } else if (letterIndex == TRAIN_STRING.length() - 2) {
+                searchCharacter.setLetter('W');
+                beforeSpaceX = searchCharacter.getX() + searchCharacter.getWidth();
+                letterIndex++;
+                continue;
+
+                // If it's the last character, add the space based on beforeSpaceX and the current X, (Getting the
+                // width of the space) and reset the line
+            } else if (letterIndex == TRAIN_STRING.length()) {
+                searchCharacter.setLetter('W');
+                accumulator.getSpace().recalculateTo(searchCharacter.getX() - beforeSpaceX, line.bottomY() - line.topY());
+                letterIndex = 0;
+                continue;
+            } else {
+                searchCharacter.setLetter(current);
+            }
+
+            if (nextMeasuringSpace != null) {
+                double width = searchCharacter.getX() - (nextMeasuringSpace.getX() + nextMeasuringSpace.getWidth());
+                double ratio = width / (double) nextMeasuringSpace.getHeight();
+                accumulator.addCustomSpace(nextMeasuringSpace.getLetter(), ratio);
+                nextMeasuringSpace = null;
+            }
+
+            if (this.options.getSpecialSpaces().contains(current)) {
+                nextMeasuringSpace = searchCharacter;
+            }
+
+            TrainingAccumulator.META_NAMES.forEach(meta -> searchCharacter.getTrainingMeta(meta).ifPresent(value -> accumulator.addMeta(meta, value)));
+
+            searchCharacter.setModifier(modifier);
+            var trainedSearchCharacter = accumulator.getTrainedCharacter(current, modifier);
+
+            // Adds the current segment values of the current searchCharacter to the trainedSearchCharacter
+            trainedSearchCharacter.recalculateTo(searchCharacter);
+
+            // Get the font size divided by the width/height of the character
+            double result = fontSize / searchCharacter.getHeight();
+            accumulator.addFontSize(current, modifier, result);
+
+            double halfOfLineHeight = ((double) line.bottomY() - (double) line.topY()) / 2;
+            double middleOfLineToTopChar = (double) searchCharacter.getY() - (double) line.topY();
+            double topOfLetterToCenter = halfOfLineHeight - middleOfLineToTopChar;
+
+            // Sets the current center to be calculated, along with any meta it may have
+            trainedSearchCharacter.recalculateCenter(topOfLetterToCenter); // This NOW gets offset from top of
+
+            if (revertIndex) letterIndex--;
+
+            // Resets the current letter
+            if (letterIndex >= TRAIN_STRING.length()) {
+                letterIndex = 0;
+            }
+        }
+    }
+
+    /**
+     * Adds the average of the given {@link MeanAccumulator} to the database as averaged data, if anything has been
+     * added to it.
+     *
+     * @param name The name of the data
+     * @param mean The {@link MeanAccumulator} to add
+     */
+    private void addAveragedData(String name, MeanAccumulator mean) {
+        if (mean.isEmpty()) return;
+        this.databaseManager.addAveragedData(name, new double[]{mean.getMean()});
+    }
+
     @Override
     public TrainedCharacterData getTrainedCharacter(List<TrainedCharacterData> trainedCharacterDataList, char current, int finalModifier) {
         return trainedCharacterDataList
@@ -5,6 +5,7 @@ import com.uddernetworks.newocr.train.UntrainedDatabaseException;
 
 import java.io.File;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * The main class that handles character scanning of an image.
@@ -24,6 +25,20 @@ public interface Scan {
      */
     ScannedImage scanImage(File file);
 
+    /**
+     * Scans the input image like {@link Scan#scanImage(File)}, but also gives each line to the given consumer as soon
+     * as it is finished, in order from the top of the image. As the pieces of a character may be in neighbouring lines,
+     * a line is only finished once the lines right below it have been classified and merged, so the first lines are
+     * given to the consumer while the rest of the image is still being classified. The consumer is invoked on the
+     * scanning thread.
+     *
+     * @param file         The input image to be scanned
+     * @param lineConsumer The consumer accepting each finished line
+     * @return A {@link DefaultScannedImage} containing all scanned character data
+     * @throws UntrainedDatabaseException If the database was not trained yet
+     */
+    ScannedImage scanImage(File file, Consumer<ScannedLine> lineConsumer);
+
     /**
      * Gets and inserts all the spaces of the current line based on the font size given (The first character of the line
      * by default). This method adds the spaces to the end of the line currently, so a resort is needed.
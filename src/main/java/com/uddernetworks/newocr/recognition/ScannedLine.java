@@ -0,0 +1,76 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+
+import java.util.List;
+
+/**
+ * A single finished line of a scanned image, given to the line consumer of
+ * {@link Scan#scanImage(java.io.File, java.util.function.Consumer)} as soon as its characters have been merged and
+ * spaced.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class ScannedLine {
+
+    private final int index;
+    private final int y;
+    private final List<ImageLetter> letters;
+
+    /**
+     * Creates a {@link ScannedLine}.
+     *
+     * @param index   The index of the line, from the top of the image
+     * @param y       The exact Y position of the line
+     * @param letters The {@link ImageLetter}s of the line, ordered by X
+     */
+    public ScannedLine(int index, int y, List<ImageLetter> letters) {
+        this.index = index;
+        this.y = y;
+        this.letters = letters;
+    }
+
+    /**
+     * Gets the index of the line, from the top of the image. This is the same as the line's index in the
+     * {@link ScannedImage} returned once the scan has finished.
+     *
+     * @return The index of the line
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Gets the exact Y position of the line.
+     *
+     * @return The Y position of the line
+     */
+    public int getY() {
+        return this.y;
+    }
+
+    /**
+     * Gets the {@link ImageLetter}s of the line, ordered by X and including spaces. For a {@link DefaultScannedImage}
+     * this is the same list as in the image returned once the scan has finished, however a {@link CompactScannedImage}
+     * (Such as from a {@link com.uddernetworks.newocr.recognition.cache.CachingScan}) creates new letters every time
+     * they are gotten, so the list only holds copies of its letters.
+     *
+     * @return The {@link ImageLetter}s of the line
+     */
+    public List<ImageLetter> getLetters() {
+        return this.letters;
+    }
+
+    /**
+     * Gets the string of the line.
+     *
+     * @return The string of the line
+     */
+    public String getPrettyString() {
+        var stringBuilder = new StringBuilder(this.letters.size());
+        this.letters.forEach(imageLetter -> stringBuilder.append(imageLetter.getLetter()));
+        return stringBuilder.toString();
+    }
+}
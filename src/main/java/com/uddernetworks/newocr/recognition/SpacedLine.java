@@ -0,0 +1,134 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A line of {@link ImageLetter}s and the amount of spaces before each of them. The space {@link ImageLetter}s are only
+ * created, and the line sorted by X, the first time the line is read or modified as a {@link List}, so lines that are
+ * only kept or inspected via {@link #getLetters()} and {@link #getSpaceRuns()} never allocate them.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class SpacedLine extends AbstractList<ImageLetter> implements RandomAccess {
+
+    private final List<ImageLetter> letters;
+    private final int[] spaceRuns;
+    private final SpacingModel spacingModel;
+    private final int fontSize;
+    private final int spaceCount;
+    private List<ImageLetter> materialized;
+
+    /**
+     * Creates a {@link SpacedLine}.
+     *
+     * @param letters      The non-space letters of the line, ordered by X
+     * @param spaceRuns    The amount of spaces before each letter
+     * @param spacingModel The {@link SpacingModel} to create the spaces with
+     * @param fontSize     The font size of the line
+     */
+    public SpacedLine(List<ImageLetter> letters, int[] spaceRuns, SpacingModel spacingModel, int fontSize) {
+        this.letters = letters;
+        this.spaceRuns = spaceRuns;
+        this.spacingModel = spacingModel;
+        this.fontSize = fontSize;
+
+        int spaceCount = 0;
+        for (int run : spaceRuns) spaceCount += run;
+        this.spaceCount = spaceCount;
+    }
+
+    /**
+     * Gets the non-space letters of the line, ordered by X. This does not reflect modifications made to the line.
+     *
+     * @return The non-space letters
+     */
+    public List<ImageLetter> getLetters() {
+        return this.letters;
+    }
+
+    /**
+     * Gets the amount of spaces before each letter of {@link #getLetters()}.
+     *
+     * @return The amount of spaces before each letter
+     */
+    public int[] getSpaceRuns() {
+        return this.spaceRuns;
+    }
+
+    /**
+     * Gets the space {@link ImageLetter}s of the line, ordered by the letters they are before.
+     *
+     * @return The created spaces
+     */
+    public List<ImageLetter> createSpaces() {
+        var spaces = new ArrayList<ImageLetter>(this.spaceCount);
+        var spaceRatio = this.spacingModel.getSpaceRatio();
+
+        for (int i = 0; i < this.spaceRuns.length; i++) {
+            if (this.spaceRuns[i] == 0) continue;
+            var prev = i == 0 ? null : this.letters.get(i - 1);
+            var current = this.letters.get(i);
+            int leftX = prev == null ? 0 : prev.getX() + prev.getWidth() + 1;
+            var usedWidth = this.spacingModel.getSpaceWidth(prev, this.fontSize);
+
+            for (int j = 0; j < this.spaceRuns[i]; j++) {
+                spaces.add(new ImageLetter(' ', 0, (int) (leftX + (usedWidth * j)), current.getY(), (int) usedWidth, this.fontSize, usedWidth, this.fontSize, spaceRatio));
+            }
+        }
+
+        return spaces;
+    }
+
+    private List<ImageLetter> getMaterialized() {
+        if (this.materialized == null) {
+            var line = new ArrayList<ImageLetter>(this.letters.size() + this.spaceCount);
+            line.addAll(this.letters);
+            line.addAll(createSpaces());
+            line.sort(Comparator.comparingInt(ImageLetter::getX));
+            this.materialized = line;
+        }
+
+        return this.materialized;
+    }
+
+    @Override
+    public ImageLetter get(int index) {
+        return getMaterialized().get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.materialized == null ? this.letters.size() + this.spaceCount : this.materialized.size();
+    }
+
+    @Override
+    public ImageLetter set(int index, ImageLetter element) {
+        return getMaterialized().set(index, element);
+    }
+
+    @Override
+    public void add(int index, ImageLetter element) {
+        modCount++;
+        getMaterialized().add(index, element);
+    }
+
+    @Override
+    public ImageLetter remove(int index) {
+        modCount++;
+        return getMaterialized().remove(index);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        getMaterialized().subList(fromIndex, toIndex).clear();
+    }
+}
@@ -0,0 +1,131 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.function.DoubleToIntFunction;
+
+/**
+ * The trained space widths of a model, with the custom space after every character held in an array indexed by the
+ * character, so the gaps of a line can be turned into spaces in a single pass without going to the database.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class SpacingModel {
+
+    private final double spaceRatio;
+    private final double[] customSpaceRatios;
+
+    /**
+     * Creates a {@link SpacingModel}.
+     *
+     * @param spaceRatio   The width/height ratio of a space
+     * @param customSpaces The custom space width/height ratios to add after characters, keyed by the character
+     */
+    public SpacingModel(double spaceRatio, Int2DoubleMap customSpaces) {
+        this.spaceRatio = spaceRatio;
+        this.customSpaceRatios = new double[customSpaces.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1];
+        customSpaces.int2DoubleEntrySet().forEach(entry -> this.customSpaceRatios[entry.getIntKey()] = entry.getDoubleValue());
+    }
+
+    /**
+     * Loads the {@link SpacingModel} of the current {@link ModelSnapshot} of the given {@link DatabaseManager}.
+     *
+     * @param databaseManager The {@link DatabaseManager} to load from
+     * @return The {@link SpacingModel}, or empty if no space has been trained
+     * @throws ExecutionException   If the data could not be fetched
+     * @throws InterruptedException If the thread was interrupted while fetching the data
+     */
+    public static Optional<SpacingModel> load(DatabaseManager databaseManager) throws ExecutionException, InterruptedException {
+        return of(databaseManager.getSnapshot().get());
+    }
+
+    /**
+     * Creates the {@link SpacingModel} of the given {@link ModelSnapshot}.
+     *
+     * @param snapshot The {@link ModelSnapshot} to create from
+     * @return The {@link SpacingModel}, or empty if no space has been trained
+     */
+    public static Optional<SpacingModel> of(ModelSnapshot snapshot) {
+        return snapshot.getCharacters().stream()
+                .filter(databaseCharacter -> databaseCharacter.getLetter() == ' ')
+                .findFirst()
+                .map(space -> new SpacingModel(space.getAvgWidth() / space.getAvgHeight(), snapshot.getCustomSpaces()));
+    }
+
+    /**
+     * Gets the width/height ratio of a space.
+     *
+     * @return The space ratio
+     */
+    public double getSpaceRatio() {
+        return this.spaceRatio;
+    }
+
+    /**
+     * Gets the custom space width/height ratio added after the given character.
+     *
+     * @param letter The character before the space
+     * @return The custom space ratio, or 0 if there is none
+     */
+    public double getCustomSpaceRatio(char letter) {
+        return letter < this.customSpaceRatios.length ? this.customSpaceRatios[letter] : 0;
+    }
+
+    /**
+     * Gets the width of a space after the given character.
+     *
+     * @param previous The character before the space, or null if it's at the start of the line
+     * @param fontSize The font size of the line
+     * @return The width of a space
+     */
+    public double getSpaceWidth(ImageLetter previous, int fontSize) {
+        return this.spaceRatio * fontSize + (previous == null ? 0 : getCustomSpaceRatio(previous.getLetter()) * fontSize);
+    }
+
+    /**
+     * Gets the amount of spaces in the gap before each character of a line.
+     *
+     * @param line       The line, ordered by X
+     * @param fontSize   The font size of the line
+     * @param spaceRound Rounds the amount of spaces that fit in a gap to a whole number, such as
+     *                   {@link Scan#spaceRound(double)}
+     * @return The amount of spaces before each character, in the same order as the line
+     */
+    public int[] getSpaceRuns(List<ImageLetter> line, int fontSize, DoubleToIntFunction spaceRound) {
+        var runs = new int[line.size()];
+
+        ImageLetter prev = null;
+        for (int i = 0; i < runs.length; i++) {
+            var current = line.get(i);
+            int leftX = prev == null ? 0 : prev.getX() + prev.getWidth() + 1;
+            var gap = current.getX() - leftX; // The space between the current character and the last character
+            var usedWidth = getSpaceWidth(prev, fontSize);
+
+            int spaces = '!' == current.getLetter() ? (int) Math.floor(gap / usedWidth) : spaceRound.applyAsInt(gap / usedWidth);
+            runs[i] = Math.max(0, spaces);
+            prev = current;
+        }
+
+        return runs;
+    }
+
+    /**
+     * Creates a {@link SpacedLine} of the given line, with its spaces only being created once it is read.
+     *
+     * @param line       The line, ordered by X
+     * @param fontSize   The font size of the line
+     * @param spaceRound Rounds the amount of spaces that fit in a gap to a whole number
+     * @return The {@link SpacedLine}
+     */
+    public SpacedLine space(List<ImageLetter> line, int fontSize, DoubleToIntFunction spaceRound) {
+        return new SpacedLine(line, getSpaceRuns(line, fontSize, spaceRound), this, fontSize);
+    }
+}
@@ -3,6 +3,7 @@ package com.uddernetworks.newocr.recognition;
 import com.uddernetworks.newocr.character.TrainedCharacterData;
 import com.uddernetworks.newocr.train.ComputerTrainGenerator;
 import com.uddernetworks.newocr.train.TrainGeneratorOptions;
+import com.uddernetworks.newocr.train.TrainingCorpus;
 
 import java.io.File;
 import java.util.List;
@@ -33,6 +34,27 @@ public interface Train {
      */
     void trainImage(File file, TrainGeneratorOptions generatorOptions);
 
+    /**
+     * Trains the font of the given options by rendering each of its font sizes straight into memory, without ever
+     * creating, writing or reading a training image. Every size is rendered the same as its line in an image generated
+     * by {@link ComputerTrainGenerator} with the same options. That image is too short for all of its lines though, so
+     * {@link #trainImage(File, TrainGeneratorOptions)} only trains its larger sizes, being about two thirds of them,
+     * while this trains every size between the minimum and maximum font size. Like
+     * {@link #trainImage(File, TrainGeneratorOptions)}, any existing training data is cleared first.
+     *
+     * @param generatorOptions The options of the font to train
+     */
+    void trainFont(TrainGeneratorOptions generatorOptions);
+
+    /**
+     * Trains every image in the given {@link TrainingCorpus} concurrently, combining all of their data into a single
+     * set of training data, which is only written once everything has been trained. Like
+     * {@link #trainImage(File, TrainGeneratorOptions)}, any existing training data is cleared first.
+     *
+     * @param corpus The {@link TrainingCorpus} to train
+     */
+    void trainCorpus(TrainingCorpus corpus);
+
     /**
      * Gets the {@link TrainedCharacterData} with the known letter value of the given character, with the same modifier.
      * If a character is not found, it will be created and added to the given list.
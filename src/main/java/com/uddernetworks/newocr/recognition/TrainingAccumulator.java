@@ -0,0 +1,177 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.TrainedCharacterData;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
+import com.uddernetworks.newocr.utils.MeanAccumulator;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds all the data gathered while training, before it is written to the database. Each line of a training image may
+ * be trained into its own {@link TrainingAccumulator}, which are then merged together, allowing lines to be trained
+ * concurrently.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class TrainingAccumulator {
+
+    /**
+     * The names of the training meta averaged and stored in the database, gathered from
+     * {@link com.uddernetworks.newocr.character.SearchCharacter#getTrainingMeta(String)}.
+     */
+    public static final List<String> META_NAMES = List.of("distanceAbove", "distancei", "distancej", "colonDistance", "semicolonDistance", "equalsDistance", "distanceQuestion", "distanceExclamation");
+
+    private final Int2ObjectLinkedOpenHashMap<TrainedCharacterData> characters = new Int2ObjectLinkedOpenHashMap<>(); // Keyed by the GlyphRegistry ID
+    private final TrainedCharacterData space = getTrainedCharacter(' ', 0);
+    private final Map<String, MeanAccumulator> meta = new LinkedHashMap<>();
+    private final MeanAccumulator apostropheRatios = new MeanAccumulator();
+    private final Int2ObjectLinkedOpenHashMap<MeanAccumulator> fontSizes = new Int2ObjectLinkedOpenHashMap<>();
+    private final Map<Character, MeanAccumulator> customSpaces = new HashMap<>();
+
+    /**
+     * Creates an empty {@link TrainingAccumulator}.
+     */
+    public TrainingAccumulator() {
+        META_NAMES.forEach(name -> this.meta.put(name, new MeanAccumulator()));
+    }
+
+    /**
+     * Gets the {@link TrainedCharacterData} with the given letter and modifier, creating it if it doesn't exist yet.
+     *
+     * @param letter   The letter of the character
+     * @param modifier The modifier of the character
+     * @return The {@link TrainedCharacterData} with the given letter and modifier
+     */
+    public TrainedCharacterData getTrainedCharacter(char letter, int modifier) {
+        return this.characters.computeIfAbsent(GlyphRegistry.register(letter, modifier), ignored -> new TrainedCharacterData(letter, modifier));
+    }
+
+    /**
+     * Gets the {@link TrainedCharacterData} of the space character, used to store the width of spaces.
+     *
+     * @return The {@link TrainedCharacterData} of a space
+     */
+    public TrainedCharacterData getSpace() {
+        return this.space;
+    }
+
+    /**
+     * Gets all {@link TrainedCharacterData}s trained, including the space, in the order they were first trained.
+     *
+     * @return All {@link TrainedCharacterData}s trained
+     */
+    public Collection<TrainedCharacterData> getTrainedCharacters() {
+        return this.characters.values();
+    }
+
+    /**
+     * Adds a value to the training meta with the given name, which must be in {@link #META_NAMES}.
+     *
+     * @param name  The name of the training meta
+     * @param value The value to add
+     */
+    public void addMeta(String name, double value) {
+        this.meta.get(name).add(value);
+    }
+
+    /**
+     * Gets all of the averaged training meta, with the keys being {@link #META_NAMES}.
+     *
+     * @return The averaged training meta
+     */
+    public Map<String, MeanAccumulator> getMeta() {
+        return this.meta;
+    }
+
+    /**
+     * Adds a height/distance ratio of the parts of a quote.
+     *
+     * @param ratio The ratio to add
+     */
+    public void addApostropheRatio(double ratio) {
+        this.apostropheRatios.add(ratio);
+    }
+
+    /**
+     * Gets the averaged height/distance ratio of the parts of a quote.
+     *
+     * @return The averaged apostrophe ratio
+     */
+    public MeanAccumulator getApostropheRatios() {
+        return this.apostropheRatios;
+    }
+
+    /**
+     * Adds a font size/height ratio for the given letter and modifier, registering it in the {@link GlyphRegistry} if
+     * it is not a {@link com.uddernetworks.newocr.recognition.similarity.Letter}.
+     *
+     * @param letter   The letter the ratio is for
+     * @param modifier The modifier of the letter
+     * @param ratio    The ratio to add
+     */
+    public void addFontSize(char letter, int modifier, double ratio) {
+        this.fontSizes.computeIfAbsent(GlyphRegistry.register(letter, modifier), ignored -> new MeanAccumulator()).add(ratio);
+    }
+
+    /**
+     * Gets the averaged font size/height ratio of each letter, keyed by its ID from the {@link GlyphRegistry}.
+     *
+     * @return The averaged font size ratios
+     */
+    public Int2ObjectMap<MeanAccumulator> getFontSizes() {
+        return this.fontSizes;
+    }
+
+    /**
+     * Adds a space width/height ratio trailing the given character.
+     *
+     * @param character The character before the space
+     * @param ratio     The ratio to add
+     */
+    public void addCustomSpace(char character, double ratio) {
+        this.customSpaces.computeIfAbsent(character, ignored -> new MeanAccumulator()).add(ratio);
+    }
+
+    /**
+     * Gets the averaged space width/height ratios trailing characters.
+     *
+     * @return The averaged custom space ratios
+     */
+    public Map<Character, MeanAccumulator> getCustomSpaces() {
+        return this.customSpaces;
+    }
+
+    /**
+     * Adds all the data from the given {@link TrainingAccumulator} to the current one. The given
+     * {@link TrainingAccumulator} should not be used after this.
+     *
+     * @param other The {@link TrainingAccumulator} to merge into the current one
+     */
+    public void merge(TrainingAccumulator other) {
+        for (Int2ObjectMap.Entry<TrainedCharacterData> entry : other.characters.int2ObjectEntrySet()) {
+            var existing = this.characters.putIfAbsent(entry.getIntKey(), entry.getValue());
+            if (existing != null) existing.merge(entry.getValue());
+        }
+
+        other.meta.forEach((name, accumulator) -> this.meta.get(name).merge(accumulator));
+        this.apostropheRatios.merge(other.apostropheRatios);
+
+        for (Int2ObjectMap.Entry<MeanAccumulator> entry : other.fontSizes.int2ObjectEntrySet()) {
+            var existing = this.fontSizes.putIfAbsent(entry.getIntKey(), entry.getValue());
+            if (existing != null) existing.merge(entry.getValue());
+        }
+
+        other.customSpaces.forEach((character, accumulator) -> this.customSpaces.merge(character, accumulator, (first, second) -> {
+            first.merge(second);
+            return first;
+        }));
+    }
+}
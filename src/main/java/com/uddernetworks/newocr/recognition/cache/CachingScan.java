@@ -0,0 +1,224 @@
+package com.uddernetworks.newocr.recognition.cache;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.CompactScannedImage;
+import com.uddernetworks.newocr.recognition.OCRScan;
+import com.uddernetworks.newocr.recognition.Scan;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+import com.uddernetworks.newocr.recognition.ScannedLine;
+import com.uddernetworks.newocr.train.OCROptions;
+import com.uddernetworks.newocr.utils.FingerprintUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Scan} in front of an {@link OCRScan} that reuses results from a {@link ScanResultCache}. Results are keyed
+ * by a hash of the decoded pixels of the image along with the fingerprints of the current
+ * {@link ModelSnapshot} and the {@link OCROptions}, so retraining never gives stale
+ * results and a repeated scan of the same image only costs reading and hashing it. An image is only read once, and is
+ * scanned with the same {@link ModelSnapshot} its key was made with.
+ * <p>
+ * Results are stored as {@link CompactScannedImage}s, and every result is created from one whether it was cached or
+ * not, so a result never depends on the state of the cache. Characters only have their pixel values and closest
+ * matches if requested when creating the {@link CachingScan}, and lines given to line consumers are copied the same
+ * way. {@link #scanImage(File)} gives a full {@link ScannedImage} with both images, the binarized one being made again
+ * for cached results, while {@link #scanCompact(File)} gives the {@link CompactScannedImage} itself without any images.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class CachingScan implements Scan {
+
+    private final OCRScan scan;
+    private final DatabaseManager databaseManager;
+    private final OCROptions options;
+    private final ScanResultCache cache;
+    private final boolean keepPixels;
+    private final boolean keepAlternatives;
+
+    /**
+     * Creates a {@link CachingScan} whose results have neither pixel values nor closest matches.
+     *
+     * @param scan            The {@link OCRScan} to use for images not in the cache
+     * @param databaseManager The {@link DatabaseManager} of the trained model used by the {@link OCRScan}
+     * @param options         The {@link OCROptions} used by the {@link OCRScan}
+     * @param cache           The {@link ScanResultCache} to use
+     */
+    public CachingScan(OCRScan scan, DatabaseManager databaseManager, OCROptions options, ScanResultCache cache) {
+        this(scan, databaseManager, options, cache, false, false);
+    }
+
+    /**
+     * Creates a {@link CachingScan}.
+     *
+     * @param scan             The {@link OCRScan} to use for images not in the cache
+     * @param databaseManager  The {@link DatabaseManager} of the trained model used by the {@link OCRScan}
+     * @param options          The {@link OCROptions} used by the {@link OCRScan}
+     * @param cache            The {@link ScanResultCache} to use
+     * @param keepPixels       If the pixel values of every character should be kept
+     * @param keepAlternatives If the closest matches of every character should be kept
+     */
+    public CachingScan(OCRScan scan, DatabaseManager databaseManager, OCROptions options, ScanResultCache cache, boolean keepPixels, boolean keepAlternatives) {
+        this.scan = scan;
+        this.databaseManager = databaseManager;
+        this.options = options;
+        this.cache = cache;
+        this.keepPixels = keepPixels;
+        this.keepAlternatives = keepAlternatives;
+    }
+
+    /**
+     * Scans the image, or if an identical image has been scanned with the same model and options, gives its result.
+     *
+     * @param file The input image to be scanned
+     * @return The {@link ScannedImage} of the scan
+     */
+    @Override
+    public ScannedImage scanImage(File file) {
+        return scanImage(file, line -> {});
+    }
+
+    /**
+     * Scans the image like {@link #scanImage(File)}, giving each line to the given consumer. If the result was cached,
+     * all lines are given to the consumer at once.
+     *
+     * @param file         The input image to be scanned
+     * @param lineConsumer The consumer accepting each finished line
+     * @return The {@link ScannedImage} of the scan
+     */
+    @Override
+    public ScannedImage scanImage(File file, Consumer<ScannedLine> lineConsumer) {
+        return scan(file, lineConsumer, true);
+    }
+
+    /**
+     * Scans the image like {@link #scanImage(File)}, giving the compact result without any images, which is cheaper
+     * to keep many of and doesn't make the binarized image again for cached results.
+     *
+     * @param file The input image to be scanned
+     * @return The {@link CompactScannedImage} of the scan
+     */
+    public CompactScannedImage scanCompact(File file) {
+        return scanCompact(file, line -> {});
+    }
+
+    /**
+     * Scans the image like {@link #scanCompact(File)}, giving each line to the given consumer. If the result was
+     * cached, all lines are given to the consumer at once.
+     *
+     * @param file         The input image to be scanned
+     * @param lineConsumer The consumer accepting each finished line
+     * @return The {@link CompactScannedImage} of the scan
+     */
+    public CompactScannedImage scanCompact(File file, Consumer<ScannedLine> lineConsumer) {
+        return (CompactScannedImage) scan(file, lineConsumer, false);
+    }
+
+    /**
+     * Scans the image, or gives the cached result of an identical image.
+     *
+     * @param file         The input image to be scanned
+     * @param lineConsumer The consumer accepting each finished line
+     * @param withImages   If a {@link ScannedImage} with both images should be given instead of the
+     *                     {@link CompactScannedImage}
+     * @return The {@link ScannedImage} of the scan
+     */
+    private ScannedImage scan(File file, Consumer<ScannedLine> lineConsumer, boolean withImages) {
+        var imageOptional = this.options.getImageReadMethod().apply(file);
+        if (imageOptional.isEmpty()) throw new RuntimeException("Input file not found!");
+        var image = imageOptional.get();
+
+        // The key is made from exactly the image and model that are scanned, so a retrain during the scan never stores
+        // a result under the key of another model
+        var snapshot = getSnapshot();
+        var key = getKey(image, snapshot);
+
+        var cached = this.cache.get(key, file);
+        if (cached.isPresent()) {
+            var result = cached.get();
+            for (int i = 0; i < result.getLineCount(); i++) {
+                var entry = result.getLineEntry(i);
+                lineConsumer.accept(new ScannedLine(i, entry.getIntKey(), entry.getValue()));
+            }
+
+            return withImages ? result.toScannedImage(this.scan.binarize(image), image) : result;
+        }
+
+        var scanned = this.scan.scanImage(file, image, snapshot, copyLines(lineConsumer));
+        var result = compact(scanned);
+        this.cache.put(key, result);
+        return withImages ? result.toScannedImage(scanned.getBinarizedImage(), scanned.getOriginalImage()) : result.copy(file);
+    }
+
+    private CompactScannedImage compact(ScannedImage scannedImage) {
+        return CompactScannedImage.of(scannedImage, this.keepPixels, this.keepAlternatives);
+    }
+
+    /**
+     * Wraps the given line consumer so it's given copies of lines like the ones of a cached result.
+     *
+     * @param lineConsumer The line consumer
+     * @return The wrapped line consumer
+     */
+    private Consumer<ScannedLine> copyLines(Consumer<ScannedLine> lineConsumer) {
+        return line -> lineConsumer.accept(new ScannedLine(line.getIndex(), line.getY(), CompactScannedImage.copyLine(line.getLetters(), this.keepPixels, this.keepAlternatives)));
+    }
+
+    @Override
+    public List<ImageLetter> getSpacesFor(List<ImageLetter> line, int fontSize) {
+        return this.scan.getSpacesFor(line, fontSize);
+    }
+
+    @Override
+    public int spaceRound(double input) {
+        return this.scan.spaceRound(input);
+    }
+
+    /**
+     * Gets the {@link ScanResultCache} used.
+     *
+     * @return The {@link ScanResultCache}
+     */
+    public ScanResultCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Gets the current {@link ModelSnapshot} of the database.
+     *
+     * @return The current {@link ModelSnapshot}
+     */
+    private ModelSnapshot getSnapshot() {
+        try {
+            return this.databaseManager.getSnapshot().get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Unable to get the trained model", e);
+        }
+    }
+
+    /**
+     * Gets the cache key of the given image scanned with the given {@link ModelSnapshot}.
+     *
+     * @param image    The decoded image
+     * @param snapshot The {@link ModelSnapshot} the image is scanned with
+     * @return The key
+     */
+    private String getKey(BufferedImage image, ModelSnapshot snapshot) {
+        // Every fingerprint is padded, so different fingerprints never give the same key. What is kept of each result
+        // is part of the key too, as caches may be shared.
+        var pixelHash = FingerprintUtils.hashPixels(image);
+        return String.format("%016x%016x%016x%016x%x",
+                snapshot.getFingerprint(),
+                this.options.getFingerprint(),
+                pixelHash[0],
+                pixelHash[1],
+                (this.keepPixels ? 1 : 0) | (this.keepAlternatives ? 2 : 0));
+    }
+}
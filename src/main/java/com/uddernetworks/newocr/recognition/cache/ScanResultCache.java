@@ -0,0 +1,258 @@
+package com.uddernetworks.newocr.recognition.cache;
+
+import com.uddernetworks.newocr.recognition.CompactScannedImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded cache of scan results as {@link CompactScannedImage}s, with a least recently used in-memory tier and
+ * an optional on-disk tier. Results evicted from memory stay on disk, and results read from disk are moved back into
+ * memory. All methods are thread safe.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class ScanResultCache {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(ScanResultCache.class);
+    private static final String EXTENSION = ".ocr";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final int maxEntries;
+    private final File directory;
+    private final long maxDiskBytes;
+    private final Map<String, CompactScannedImage> memory;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a {@link ScanResultCache} only kept in memory.
+     *
+     * @param maxEntries The maximum amount of results kept in memory
+     */
+    public ScanResultCache(int maxEntries) {
+        this(maxEntries, null, 0);
+    }
+
+    /**
+     * Creates a {@link ScanResultCache} kept in memory and in the given directory.
+     *
+     * @param maxEntries   The maximum amount of results kept in memory
+     * @param directory    The directory to keep results in, or null to only keep them in memory
+     * @param maxDiskBytes The maximum total size of the results kept in the directory, in bytes
+     */
+    public ScanResultCache(int maxEntries, File directory, long maxDiskBytes) {
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompactScannedImage> eldest) {
+                if (size() <= ScanResultCache.this.maxEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.error("Unable to create cache directory " + directory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Gets the result with the given key, checking memory and then the disk.
+     *
+     * @param key          The key of the result
+     * @param originalFile The {@link File} being scanned, to be given to the result
+     * @return A copy of the cached result, if found
+     */
+    public Optional<CompactScannedImage> get(String key, File originalFile) {
+        CompactScannedImage cached;
+        synchronized (this.memory) {
+            cached = this.memory.get(key);
+        }
+
+        if (cached != null) {
+            this.hits.increment();
+            return Optional.of(cached.copy(originalFile));
+        }
+
+        var diskCached = readFromDisk(key, originalFile);
+        if (diskCached.isPresent()) {
+            this.diskHits.increment();
+            synchronized (this.memory) {
+                this.memory.put(key, diskCached.get());
+            }
+
+            return Optional.of(diskCached.get().copy(originalFile));
+        }
+
+        this.misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Adds a result to the cache, evicting the least recently used results if the cache is full.
+     *
+     * @param key    The key of the result
+     * @param result The result
+     */
+    public void put(String key, CompactScannedImage result) {
+        synchronized (this.memory) {
+            this.memory.put(key, result);
+        }
+
+        writeToDisk(key, result);
+    }
+
+    /**
+     * Removes all results from memory and disk, along with any results left partly written. Metrics are not reset.
+     */
+    public void clear() {
+        synchronized (this.memory) {
+            this.memory.clear();
+        }
+
+        Arrays.stream(getDiskFiles(EXTENSION)).forEach(File::delete);
+        Arrays.stream(getDiskFiles(TEMPORARY_EXTENSION)).forEach(File::delete);
+    }
+
+    /**
+     * Gets the amount of results in memory.
+     *
+     * @return The amount of results in memory
+     */
+    public int size() {
+        synchronized (this.memory) {
+            return this.memory.size();
+        }
+    }
+
+    /**
+     * Gets the amount of lookups found in memory.
+     *
+     * @return The amount of memory hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the amount of lookups not found in memory, but found on disk.
+     *
+     * @return The amount of disk hits
+     */
+    public long getDiskHits() {
+        return this.diskHits.sum();
+    }
+
+    /**
+     * Gets the amount of lookups not found at all.
+     *
+     * @return The amount of misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Gets the amount of results evicted from memory.
+     *
+     * @return The amount of evictions
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * Gets the fraction of lookups found in either memory or on disk.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing has been looked up
+     */
+    public double getHitRate() {
+        long found = getHits() + getDiskHits();
+        long total = found + getMisses();
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    private File[] getDiskFiles(String extension) {
+        if (this.directory == null) return new File[0];
+        var files = this.directory.listFiles((dir, name) -> name.endsWith(extension));
+        return files == null ? new File[0] : files;
+    }
+
+    private Optional<CompactScannedImage> readFromDisk(String key, File originalFile) {
+        if (this.directory == null) return Optional.empty();
+        var file = new File(this.directory, key + EXTENSION);
+        if (!file.isFile()) return Optional.empty();
+
+        try (var input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            var result = CompactScannedImage.read(input, originalFile);
+            file.setLastModified(System.currentTimeMillis());
+            return Optional.of(result);
+        } catch (IOException e) {
+            LOGGER.error("Unable to read cached result " + file.getAbsolutePath(), e);
+            file.delete();
+            return Optional.empty();
+        }
+    }
+
+    private void writeToDisk(String key, CompactScannedImage result) {
+        if (this.directory == null) return;
+        var file = new File(this.directory, key + EXTENSION);
+
+        // The result is written to its own temporary file and then moved over the result's file, so a crash never leaves
+        // a partly written result and results written at the same time never write to the same file
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(this.directory.toPath(), key, TEMPORARY_EXTENSION);
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                result.write(output);
+            }
+
+            moveAtomically(temporary, file.toPath());
+        } catch (IOException e) {
+            LOGGER.error("Unable to write cached result " + file.getAbsolutePath(), e);
+            if (temporary != null) temporary.toFile().delete();
+            return;
+        }
+
+        // Removes the least recently used files until the directory is within its size
+        synchronized (this) {
+            var files = getDiskFiles(EXTENSION);
+            long total = Arrays.stream(files).mapToLong(File::length).sum();
+            if (total <= this.maxDiskBytes) return;
+
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (var oldFile : files) {
+                if (total <= this.maxDiskBytes) break;
+                total -= oldFile.length();
+                oldFile.delete();
+            }
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
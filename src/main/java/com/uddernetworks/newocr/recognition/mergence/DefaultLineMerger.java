@@ -0,0 +1,512 @@
+package com.uddernetworks.newocr.recognition.mergence;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The {@link LineMerger} of the {@link DefaultMergenceManager}. Vertical rules only see a line and its neighbouring
+ * lines, so rather than running each rule over the whole page before the next, every rule is ran a few lines behind the
+ * rule before it. Rules ran on lines close enough to see the same letters are still ran in the order of the
+ * {@link MergePlan}, so the result is the same as merging the whole page at once, while each line is handed on a few
+ * lines after it's added.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+class DefaultLineMerger implements LineMerger {
+
+    private final MergePlan plan;
+    private final boolean parallel;
+    private final ObjIntConsumer<List<ImageLetter>> lineConsumer;
+
+    // Steps are ran in order, with every rule being ran on the line of the step minus its offset
+    private final int[] offsets;
+    // How many steps after its own a line may still be changed
+    private final int finishDelay;
+
+    private final List<ImageLetter> page = new ArrayList<>();
+    private final List<MergeLine> lines = new ArrayList<>();
+    private final Reference2IntMap<ImageLetter> positions = new Reference2IntOpenHashMap<>();
+    private final BitSet removed = new BitSet();
+    private int nextStep;
+    private int nextFinished;
+    private boolean finished;
+
+    /**
+     * Creates a {@link DefaultLineMerger}.
+     *
+     * @param plan         The {@link MergePlan} to use
+     * @param parallel     If lines and clusters of letters should be merged in parallel
+     * @param lineConsumer The consumer accepting each merged line and its Y
+     */
+    DefaultLineMerger(MergePlan plan, boolean parallel, ObjIntConsumer<List<ImageLetter>> lineConsumer) {
+        this.plan = plan;
+        this.parallel = parallel;
+        this.lineConsumer = lineConsumer;
+        this.positions.defaultReturnValue(-1);
+
+        // A rule is ran enough lines behind every rule before it that neither sees a line the other changes
+        var rules = plan.getRules();
+        this.offsets = new int[rules.size()];
+        int finishDelay = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            if (i > 0) this.offsets[i] = this.offsets[i - 1] + getReach(rules.get(i - 1)) + getReach(rules.get(i));
+            finishDelay = Math.max(finishDelay, this.offsets[i] + getReach(rules.get(i)));
+        }
+
+        this.finishDelay = finishDelay;
+    }
+
+    @Override
+    public void accept(int y, List<ImageLetter> line) {
+        if (this.finished) throw new IllegalStateException("The merger has already been finished");
+        add(y, line);
+
+        // Vertical rules see the line below the one they're ran on, so only steps before the newest line may run
+        run(this.lines.size() - 2);
+        finishLines(this.nextStep - 1 - this.finishDelay);
+    }
+
+    @Override
+    public void finish() {
+        if (this.finished) return;
+        this.finished = true;
+        run(getLastStep());
+        finishLines(this.lines.size() - 1);
+    }
+
+    /**
+     * Adds the next line of the page without merging anything.
+     *
+     * @param y    The Y of the line
+     * @param line The letters of the line
+     */
+    void add(int y, List<ImageLetter> line) {
+        int start = this.page.size();
+        for (var imageLetter : line) {
+            this.positions.put(imageLetter, this.page.size());
+            this.page.add(imageLetter);
+        }
+
+        this.lines.add(new MergeLine(y, line, start, this.page));
+    }
+
+    /**
+     * Runs every rule on all added lines at once as a last line, without removing anything from them.
+     *
+     * @return The positions of the letters that have been merged into others, in the order the lines were added
+     */
+    BitSet mergeAll() {
+        this.finished = true;
+        run(getLastStep());
+        return this.removed;
+    }
+
+    private int getLastStep() {
+        return this.lines.size() - 1 + (this.offsets.length == 0 ? 0 : this.offsets[this.offsets.length - 1]);
+    }
+
+    private static int getReach(MergeRule rule) {
+        return rule.isHorizontal() ? 0 : 1;
+    }
+
+    /**
+     * Runs every step up to the given one. Each rule is ran once on all lines of these steps, so the more steps are ran
+     * at once the more lines and clusters may be merged in parallel.
+     *
+     * @param toStep The last step to run
+     */
+    private void run(int toStep) {
+        if (toStep < this.nextStep) return;
+
+        var rules = this.plan.getRules();
+        for (int i = 0; i < rules.size(); i++) {
+            int fromLine = Math.max(0, this.nextStep - this.offsets[i]);
+            int toLine = Math.min(this.lines.size() - 1, toStep - this.offsets[i]);
+            if (fromLine > toLine) continue;
+
+            var rule = rules.get(i);
+            if (rule.isHorizontal()) {
+                processHorizontalRule(rule, fromLine, toLine);
+            } else {
+                processVerticalRule(rule, getClusters(fromLine, toLine));
+            }
+        }
+
+        this.nextStep = toStep + 1;
+    }
+
+    /**
+     * Removes the merged letters of every line up to the given one, cleans up their unmerged pieces and hands them on in
+     * order, leaving out lines that are empty once merged.
+     *
+     * @param toLine The last line to finish
+     */
+    private void finishLines(int toLine) {
+        if (toLine < this.nextFinished) return;
+
+        var finishing = this.lines.subList(this.nextFinished, toLine + 1);
+        (this.parallel ? finishing.parallelStream() : finishing.stream()).forEach(line -> {
+            removeFrom(line.letters, line.start, this.removed);
+            line.letters.forEach(imageLetter -> processLetter(imageLetter, this.plan));
+            line.columns = null;
+        });
+
+        for (var line : finishing) {
+            if (!line.letters.isEmpty()) this.lineConsumer.accept(line.letters, line.y);
+        }
+
+        this.nextFinished = toLine + 1;
+    }
+
+    private void processLetter(ImageLetter imageLetter, MergePlan plan) {
+        if (imageLetter.getAmountOfMerges() > 0) return;
+
+        // TODO: Make these options
+
+        if (plan.getDotRule().matchesLetter(imageLetter)) {
+            imageLetter.setLetter('.');
+            imageLetter.setModifier(0);
+        } else if (plan.isPiece(imageLetter) && !imageLetter.getClosestMatches().isEmpty()) {
+            imageLetter.setNextClosest();
+            processLetter(imageLetter, plan);
+        }
+    }
+
+    /**
+     * Runs a horizontal rule on the given lines. As the rule only sees the line it's given, each line is ran with its
+     * own copy of the line's removals, in parallel if enabled, and the removals of all lines are added once every line is
+     * done. Removing a letter outside of the line given to the rule only takes effect once the rule has ran on every
+     * line.
+     *
+     * @param rule     The horizontal {@link MergeRule}
+     * @param fromLine The first line to run the rule on
+     * @param toLine   The last line to run the rule on
+     */
+    private void processHorizontalRule(MergeRule rule, int fromLine, int toLine) {
+        var lineIndices = IntStream.rangeClosed(fromLine, toLine);
+        var lineRemovals = (this.parallel ? lineIndices.parallel() : lineIndices)
+                .mapToObj(i -> processLine(rule, this.lines.get(i)))
+                .collect(Collectors.toList());
+
+        lineRemovals.forEach(this.removed::or);
+    }
+
+    private BitSet processLine(MergeRule rule, MergeLine mergeLine) {
+        var line = mergeLine.letters;
+        int lineStart = mergeLine.start;
+        int lineEnd = lineStart + line.size();
+        var lineRemoved = this.removed.get(lineStart, lineEnd);
+        var outsideRemoved = new BitSet();
+        var view = new LetterView(line, lineRemoved);
+
+        for (int i = 0; i < line.size(); i++) {
+            if (lineRemoved.get(i)) continue;
+            rule.mergeCharacters(line.get(i), i, view).ifPresent(remove -> remove.forEach(imageLetter -> {
+                int position = this.positions.getInt(imageLetter);
+                if (position >= lineStart && position < lineEnd) {
+                    lineRemoved.set(position - lineStart);
+                } else if (position != -1) {
+                    outsideRemoved.set(position);
+                }
+            }));
+        }
+
+        lineRemoved.stream().forEach(i -> outsideRemoved.set(lineStart + i));
+        return outsideRemoved;
+    }
+
+    /**
+     * Runs a vertical rule on every cluster of letters. As the rule only sees letters of the column it's given, each
+     * cluster is ran with its own copy of the cluster's removals, in parallel if enabled, and the removals of all clusters
+     * are added once every cluster is done. Like with horizontal rules, removing a letter outside of the cluster only
+     * takes effect once the rule has ran on every cluster.
+     *
+     * @param rule     The vertical {@link MergeRule}
+     * @param clusters The clusters of letters
+     */
+    private void processVerticalRule(MergeRule rule, List<Cluster> clusters) {
+        var clusterRemovals = (this.parallel ? clusters.parallelStream() : clusters.stream())
+                .map(cluster -> cluster.process(rule, this.positions, this.removed))
+                .collect(Collectors.toList());
+
+        clusterRemovals.forEach(this.removed::or);
+    }
+
+    /**
+     * Removes the letters at the given positions from the given line.
+     *
+     * @param line      The line of letters
+     * @param lineStart The position of the first letter of the line
+     * @param removed   The positions of the letters to remove
+     */
+    private static void removeFrom(List<ImageLetter> line, int lineStart, BitSet removed) {
+        var iterator = line.iterator();
+        for (int position = lineStart; iterator.hasNext(); position++) {
+            iterator.next();
+            if (removed.get(position)) iterator.remove();
+        }
+    }
+
+    /**
+     * Splits the letters of the given lines into clusters, so that every letter of a column is in the same cluster as
+     * the column's letter. As a vertical rule only sees the column it's given, the clusters never change each other's
+     * letters and may be merged independently.
+     *
+     * @param fromLine The first line to cluster the letters of
+     * @param toLine   The last line to cluster the letters of
+     * @return The clusters, in order of their first letter of the given lines
+     */
+    private List<Cluster> getClusters(int fromLine, int toLine) {
+        var lineIndices = IntStream.rangeClosed(fromLine, toLine);
+        (this.parallel ? lineIndices.parallel() : lineIndices).forEach(this::computeColumns);
+
+        // Columns may reach into the lines right above and below the given ones
+        int base = this.lines.get(Math.max(0, fromLine - 1)).start;
+        var last = this.lines.get(Math.min(this.lines.size() - 1, toLine + 1));
+        var parents = IntStream.range(0, last.start + last.letters.size() - base).toArray();
+
+        for (int i = fromLine; i <= toLine; i++) {
+            var line = this.lines.get(i);
+            for (int j = 0; j < line.columns.length; j++) {
+                for (int other : line.columns[j].positions) union(parents, line.start + j - base, other - base);
+            }
+        }
+
+        var clusterOf = new int[parents.length];
+        Arrays.fill(clusterOf, -1);
+        var columns = new ArrayList<List<Column>>();
+        for (int i = fromLine; i <= toLine; i++) {
+            var line = this.lines.get(i);
+            for (int j = 0; j < line.columns.length; j++) {
+                int root = find(parents, line.start + j - base);
+                if (clusterOf[root] == -1) {
+                    clusterOf[root] = columns.size();
+                    columns.add(new ArrayList<>());
+                }
+
+                columns.get(clusterOf[root]).add(line.columns[j]);
+            }
+        }
+
+        var members = new ArrayList<IntArrayList>(columns.size());
+        for (int i = 0; i < columns.size(); i++) members.add(new IntArrayList());
+        for (int i = 0; i < parents.length; i++) {
+            int cluster = clusterOf[find(parents, i)];
+            if (cluster != -1) members.get(cluster).add(base + i);
+        }
+
+        return IntStream.range(0, columns.size())
+                .mapToObj(i -> new Cluster(members.get(i).toIntArray(), columns.get(i)))
+                .collect(Collectors.toList());
+    }
+
+    private static int find(int[] parents, int position) {
+        int root = position;
+        while (parents[root] != root) {
+            parents[root] = parents[parents[root]];
+            root = parents[root];
+        }
+
+        return root;
+    }
+
+    private static void union(int[] parents, int first, int second) {
+        int firstRoot = find(parents, first);
+        int secondRoot = find(parents, second);
+        if (firstRoot != secondRoot) parents[Math.max(firstRoot, secondRoot)] = Math.min(firstRoot, secondRoot);
+    }
+
+    /**
+     * Gets the column of every letter of the given line if not already done, being all letters of its own and
+     * neighbouring lines overlapping it on the X axis ordered by Y, like in the order of the page for letters with the
+     * same Y. Pieces of a character are never further apart than neighbouring lines, so nothing past them is given to
+     * vertical rules.
+     *
+     * @param lineIndex The index of the line
+     */
+    private void computeColumns(int lineIndex) {
+        var line = this.lines.get(lineIndex);
+        if (line.columns != null) return;
+
+        var columns = new Column[line.letters.size()];
+        for (int i = 0; i < columns.length; i++) columns[i] = getColumn(line.start + i, lineIndex);
+        line.columns = columns;
+    }
+
+    private Column getColumn(int position, int lineIndex) {
+        var imageLetter = this.page.get(position);
+
+        var column = new IntArrayList();
+        for (int i = Math.max(0, lineIndex - 1); i <= Math.min(this.lines.size() - 1, lineIndex + 1); i++) {
+            this.lines.get(i).addOverlapping(imageLetter, this.page, column);
+        }
+
+        var columnPositions = column.toIntArray();
+        IntArrays.quickSort(columnPositions, (first, second) -> {
+            int compare = Integer.compare(this.page.get(first).getY(), this.page.get(second).getY());
+            return compare != 0 ? compare : Integer.compare(first, second);
+        });
+
+        var letters = new ArrayList<ImageLetter>(columnPositions.length);
+        int index = -1;
+        for (int i = 0; i < columnPositions.length; i++) {
+            letters.add(this.page.get(columnPositions[i]));
+            if (columnPositions[i] == position) index = i;
+        }
+
+        return new Column(imageLetter, columnPositions, letters, index);
+    }
+
+    /**
+     * Gets the index of the first value in the given sorted array that is at least the given value.
+     *
+     * @param sorted The sorted array
+     * @param value  The value
+     * @return The index of the first value at least the given value, or the length of the array if there is none
+     */
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * A line added to the merger, with its letters ordered by X for finding the letters overlapping another on the X
+     * axis.
+     */
+    private static class MergeLine {
+        private final int y;
+        private final List<ImageLetter> letters;
+        private final int start;
+        private final int[] byX;
+        private final int[] xs;
+        private final int maxWidth;
+        private Column[] columns;
+
+        private MergeLine(int y, List<ImageLetter> letters, int start, List<ImageLetter> page) {
+            this.y = y;
+            this.letters = letters;
+            this.start = start;
+            this.byX = IntStream.range(start, start + letters.size()).toArray();
+            IntArrays.mergeSort(this.byX, (first, second) -> Integer.compare(page.get(first).getX(), page.get(second).getX()));
+
+            this.xs = new int[this.byX.length];
+            int maxWidth = 0;
+            for (int i = 0; i < this.byX.length; i++) {
+                var imageLetter = page.get(this.byX[i]);
+                this.xs[i] = imageLetter.getX();
+                maxWidth = Math.max(maxWidth, imageLetter.getWidth());
+            }
+
+            this.maxWidth = maxWidth;
+        }
+
+        private void addOverlapping(ImageLetter imageLetter, List<ImageLetter> page, IntArrayList column) {
+            // Only letters starting less than the widest letter's width before this one, and before its end, may overlap it
+            int end = lowerBound(this.xs, imageLetter.getX() + imageLetter.getWidth());
+            for (int i = lowerBound(this.xs, imageLetter.getX() - this.maxWidth + 1); i < end; i++) {
+                if (page.get(this.byX[i]).isOverlappingX(imageLetter)) column.add(this.byX[i]);
+            }
+        }
+    }
+
+    /**
+     * A letter's column of letters given to vertical {@link MergeRule}s with it.
+     */
+    private static class Column {
+        private final ImageLetter target;
+        private final int[] positions;
+        private final List<ImageLetter> letters;
+        private final int index;
+
+        private Column(ImageLetter target, int[] positions, List<ImageLetter> letters, int index) {
+            this.target = target;
+            this.positions = positions;
+            this.letters = letters;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The columns of letters only holding letters of the same cluster, with their removals tracked by their index in
+     * the cluster so clusters may be merged at the same time.
+     */
+    private static class Cluster {
+        private final int[] positions;
+        private final List<Column> columns;
+        private final LetterView[] views;
+        private final BitSet removed;
+
+        private Cluster(int[] positions, List<Column> columns) {
+            this.positions = positions;
+            this.columns = columns;
+            this.views = new LetterView[columns.size()];
+            this.removed = new BitSet(positions.length);
+
+            for (int i = 0; i < columns.size(); i++) {
+                var column = columns.get(i);
+                var indices = new int[column.positions.length];
+                for (int j = 0; j < indices.length; j++) indices[j] = Arrays.binarySearch(positions, column.positions[j]);
+                this.views[i] = new LetterView(column.letters, indices, this.removed);
+            }
+        }
+
+        /**
+         * Runs the given rule on every column of the cluster in order of their letters' positions.
+         *
+         * @param rule          The vertical {@link MergeRule}
+         * @param pagePositions The positions of every letter
+         * @param pageRemoved   The positions of the letters that have been removed, which is only read
+         * @return The positions of the letters removed before or by the rule
+         */
+        private BitSet process(MergeRule rule, Reference2IntMap<ImageLetter> pagePositions, BitSet pageRemoved) {
+            this.removed.clear();
+            for (int i = 0; i < this.positions.length; i++) {
+                if (pageRemoved.get(this.positions[i])) this.removed.set(i);
+            }
+
+            var outsideRemoved = new BitSet();
+            for (int i = 0; i < this.columns.size(); i++) {
+                var column = this.columns.get(i);
+                var view = this.views[i];
+                if (view.isRemoved(column.index)) continue;
+                rule.mergeCharacters(column.target, column.index, view).ifPresent(remove -> remove.forEach(imageLetter -> {
+                    // Letters the rule was never given can't be removed
+                    int position = pagePositions.getInt(imageLetter);
+                    if (position == -1) return;
+
+                    int index = Arrays.binarySearch(this.positions, position);
+                    if (index >= 0) {
+                        this.removed.set(index);
+                    } else {
+                        outsideRemoved.set(position);
+                    }
+                }));
+            }
+
+            this.removed.stream().forEach(i -> outsideRemoved.set(this.positions[i]));
+            return outsideRemoved;
+        }
+    }
+}
@@ -2,19 +2,19 @@ package com.uddernetworks.newocr.recognition.mergence;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.mergence.rules.*;
-import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.BitSet;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Merges character pieces together.
@@ -30,10 +30,8 @@ public class DefaultMergenceManager implements MergenceManager {
     private SimilarityManager similarityManager;
 
     private List<MergeRule> mergeRules = new CopyOnWriteArrayList<>();
-
-    // Concurrent from parallel streams
-    private Map<ImageLetter, List<ImageLetter>> horizontalLetterRelations = new ConcurrentHashMap<>();
-    private Map<ImageLetter, List<ImageLetter>> verticalLetterRelations = new ConcurrentHashMap<>();
+    private volatile MergePlan mergePlan;
+    private boolean parallel;
 
     /**
      * Creates a new {@link DefaultMergenceManager}.
@@ -63,91 +61,91 @@ public class DefaultMergenceManager implements MergenceManager {
     @Override
     public MergenceManager addRule(BiFunction<DatabaseManager, SimilarityManager, MergeRule> rule) {
         this.mergeRules.add(rule.apply(this.databaseManager, this.similarityManager));
+        this.mergePlan = null;
         return this;
     }
 
-    @Override
-    public void beginMergence(Int2ObjectLinkedOpenHashMap<List<ImageLetter>> sortedLines, SimilarityManager similarityManager) {
-        this.mergeRules.sort(Comparator.comparingInt(rule -> rule.getPriority().getPriorityIndex()));
-
-        long start = System.currentTimeMillis();
-        flatKeys(sortedLines).forEach(imageLetter -> verticalLetterRelations.put(imageLetter, getVerticalTo(imageLetter, sortedLines)));
-
-        sortedLines.forEach((y, line) -> line.forEach(imageLetter -> horizontalLetterRelations.put(imageLetter, line)));
-
-        this.mergeRules.stream().map(this::processRule).flatMap(Set::stream).forEach(imageLetter -> removeFromSorted(imageLetter, sortedLines));
+    /**
+     * Gets the {@link MergePlan} of the current rules for the given {@link SimilarityManager} and {@link ModelSnapshot},
+     * compiling it only if the rules, {@link SimilarityManager} or model have changed since it was last compiled. Models
+     * are compared by their {@link ModelSnapshot#getFingerprint()}, so retraining the same data keeps the plan.
+     *
+     * @param similarityManager The {@link SimilarityManager} used
+     * @param snapshot          The {@link ModelSnapshot} scanned with
+     * @return The {@link MergePlan}
+     */
+    public MergePlan getMergePlan(SimilarityManager similarityManager, ModelSnapshot snapshot) {
+        var plan = this.mergePlan;
+        if (plan == null || plan.getSimilarityManager() != similarityManager || plan.getModelFingerprint() != snapshot.getFingerprint()) {
+            this.mergePlan = plan = new MergePlan(this.mergeRules, similarityManager, snapshot);
+        }
 
-        var dotSimilarity = similarityManager.getRule("dot").orElseThrow();
+        return plan;
+    }
 
-        // Cleaning up
-        flatKeys(sortedLines).forEach(imageLetter -> processLetter(imageLetter, dotSimilarity));
+    /**
+     * Sets if lines should be merged in parallel. Horizontal rules are only ever given a single line, so each of them is
+     * ran on all lines at once. Vertical rules are given columns of the letters in a line and its neighbouring lines,
+     * so they are ran at once on every cluster of letters whose columns never share a letter. The result is the same
+     * either way, however all {@link MergeRule}s must be thread safe when enabled.
+     *
+     * @param parallel If lines should be merged in parallel
+     * @return The current {@link DefaultMergenceManager}
+     */
+    public DefaultMergenceManager setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
 
-        LOGGER.debug("Finished merging in " + (System.currentTimeMillis() - start));
+    /**
+     * Gets if lines are merged in parallel.
+     *
+     * @return If lines are merged in parallel
+     */
+    public boolean isParallel() {
+        return this.parallel;
     }
 
-    private void processLetter(ImageLetter imageLetter, SimilarRule dotSimilarity) {
-        if (imageLetter.getAmountOfMerges() > 0) return;
-        var letter = imageLetter.getLetter();
-        var mod = imageLetter.getModifier();
-
-        // TODO: Make these options
-
-        if (dotSimilarity.matchesLetter(imageLetter)) {
-            imageLetter.setLetter('.');
-            imageLetter.setModifier(0);
-        } else if (letter == '='
-                || (letter == ';' && mod == 1)
-                || letter == 'j'
-                || letter == '"'
-                || letter == '%'
-                || letter == 'i'
-                || letter == '!') {
-            imageLetter.setNextClosest();
-            processLetter(imageLetter, dotSimilarity);
+    @Override
+    public void beginMergence(Int2ObjectLinkedOpenHashMap<List<ImageLetter>> sortedLines, SimilarityManager similarityManager) {
+        try {
+            beginMergence(sortedLines, similarityManager, this.databaseManager.getSnapshot().get());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Unable to get the trained model", e);
         }
     }
 
-    private Set<ImageLetter> processRule(MergeRule rule) {
-        var iterating = rule.isHorizontal() ? horizontalLetterRelations : verticalLetterRelations;
-        var removing = new HashSet<ImageLetter>();
-        iterating.forEach((base, context) -> {
-            if (removing.contains(base)) return;
-            rule.mergeCharacters(base, context).ifPresent(remove -> {
-                removing.addAll(remove);
-                iterating.forEach((key, list) -> list.removeAll(remove));
-            });
-        });
-
-        removing.forEach(horizontalLetterRelations::remove);
-        removing.forEach(verticalLetterRelations::remove);
-
-        return removing;
-    }
+    @Override
+    public void beginMergence(Int2ObjectLinkedOpenHashMap<List<ImageLetter>> sortedLines, SimilarityManager similarityManager, ModelSnapshot snapshot) {
+        long start = System.currentTimeMillis();
 
-    private void removeFromSorted(ImageLetter imageLetter, Map<Integer, List<ImageLetter>> sortedLines) {
-        var iterator = sortedLines.entrySet().iterator();
-        while (iterator.hasNext()) {
-            var currentEntry = iterator.next();
-            var currentLine = currentEntry.getValue();
-            var removed = currentLine.remove(imageLetter);
-            if (removed) {
-                if (currentLine.isEmpty()) iterator.remove();
-                break;
-            }
-        }
+        // With every line added before anything is merged, each rule is ran over the whole page at once
+        var merger = new DefaultLineMerger(getMergePlan(similarityManager, snapshot), this.parallel, (line, y) -> {});
+        sortedLines.int2ObjectEntrySet().forEach(entry -> merger.add(entry.getIntKey(), entry.getValue()));
+        merger.finish();
+
+        sortedLines.values().removeIf(List::isEmpty);
+
+        LOGGER.debug("Finished merging in " + (System.currentTimeMillis() - start));
     }
 
-    private List<ImageLetter> getVerticalTo(ImageLetter imageLetter, Int2ObjectLinkedOpenHashMap<List<ImageLetter>> sortedLines) {
-        return flatKeys(sortedLines)
-                .filter(filterChar -> filterChar.isOverlappingX(imageLetter))
-                .sorted(Comparator.comparingInt(ImageLetter::getY))
-                .collect(Collectors.toList());
+    @Override
+    public LineMerger beginMergence(SimilarityManager similarityManager, ModelSnapshot snapshot, ObjIntConsumer<List<ImageLetter>> lineConsumer) {
+        return new DefaultLineMerger(getMergePlan(similarityManager, snapshot), this.parallel, lineConsumer);
     }
 
-    private <V, K> Stream<V> flatKeys(Map<K, List<V>> map) {
-        return map.values()
-                .stream()
-                .flatMap(List::stream)
-                .parallel();
+    /**
+     * Runs all rules of the given {@link MergePlan} on the given lines, without removing anything from them. Letters are
+     * given a position in the page by going through the lines in order, so the first letter of the second line comes
+     * right after the last letter of the first line.
+     *
+     * @param lines The lines of letters
+     * @param plan  The {@link MergePlan} to use
+     * @return The positions of the letters that have been merged into others
+     */
+    BitSet merge(List<List<ImageLetter>> lines, MergePlan plan) {
+        var merger = new DefaultLineMerger(plan, this.parallel, (line, y) -> {});
+        lines.forEach(line -> merger.add(0, line));
+        return merger.mergeAll();
     }
 }
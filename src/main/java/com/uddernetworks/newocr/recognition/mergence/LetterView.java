@@ -0,0 +1,159 @@
+package com.uddernetworks.newocr.recognition.mergence;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A random access view of the letters given to a {@link MergeRule}, being either a full line or a column of letters.
+ * Letters removed by previous merges are kept in the view to keep indices stable, but are skipped by
+ * {@link #previous(int)}, {@link #next(int)} and {@link #toList()}, and may be checked via {@link #isRemoved(int)}.
+ * Removals are tracked by position rather than by anything stored in the letters, so any letters may be viewed.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class LetterView {
+
+    private final List<ImageLetter> letters;
+    private final int[] positions;
+    private final BitSet removed;
+
+    /**
+     * Creates a {@link LetterView} of the given letters.
+     *
+     * @param letters The letters, which should be a random access list
+     * @param removed The indices of the letters that have been removed, which may be modified after this
+     */
+    public LetterView(List<ImageLetter> letters, BitSet removed) {
+        this(letters, null, removed);
+    }
+
+    /**
+     * Creates a {@link LetterView} of the given letters, whose removals are tracked in a {@link BitSet} shared with
+     * other views, such as a column of letters from a whole page.
+     *
+     * @param letters   The letters, which should be a random access list
+     * @param positions The position of each letter in the removed {@link BitSet}, or null if it's the letter's index
+     * @param removed   The positions of the letters that have been removed, which may be modified after this
+     */
+    public LetterView(List<ImageLetter> letters, int[] positions, BitSet removed) {
+        if (positions != null && positions.length != letters.size()) {
+            throw new IllegalArgumentException("Expected " + letters.size() + " positions, got " + positions.length);
+        }
+
+        this.letters = letters;
+        this.positions = positions;
+        this.removed = removed;
+    }
+
+    /**
+     * Creates a {@link LetterView} of the given letters without any removed.
+     *
+     * @param letters The letters
+     * @return The created {@link LetterView}
+     */
+    public static LetterView of(List<ImageLetter> letters) {
+        return new LetterView(letters, new BitSet());
+    }
+
+    /**
+     * Gets the amount of letters in the view, including removed ones.
+     *
+     * @return The amount of letters
+     */
+    public int size() {
+        return this.letters.size();
+    }
+
+    /**
+     * Gets the letter at the given index, which may have been removed.
+     *
+     * @param index The index of the letter
+     * @return The letter
+     */
+    public ImageLetter get(int index) {
+        return this.letters.get(index);
+    }
+
+    /**
+     * Gets if the letter at the given index has been removed.
+     *
+     * @param index The index of the letter
+     * @return If the letter has been removed
+     */
+    public boolean isRemoved(int index) {
+        return this.removed.get(getPosition(index));
+    }
+
+    /**
+     * Gets the position of the letter at the given index in the removed {@link BitSet}.
+     *
+     * @param index The index of the letter
+     * @return The position of the letter
+     * @throws IndexOutOfBoundsException If the index is not in the view
+     */
+    public int getPosition(int index) {
+        if (index < 0 || index >= this.letters.size()) throw new IndexOutOfBoundsException(index);
+        return this.positions == null ? index : this.positions[index];
+    }
+
+    /**
+     * Gets the index of the closest letter before the given index that has not been removed.
+     *
+     * @param index The index to start from
+     * @return The index of the previous letter, or -1 if there is none
+     */
+    public int previous(int index) {
+        for (int i = Math.min(index, this.letters.size()) - 1; i >= 0; i--) {
+            if (!isRemoved(i)) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the index of the closest letter after the given index that has not been removed.
+     *
+     * @param index The index to start from
+     * @return The index of the next letter, or -1 if there is none
+     */
+    public int next(int index) {
+        for (int i = Math.max(index + 1, 0); i < this.letters.size(); i++) {
+            if (!isRemoved(i)) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the index of the given letter in the view.
+     *
+     * @param imageLetter The letter to find
+     * @return The index of the letter, or -1 if it is not in the view
+     */
+    public int indexOf(ImageLetter imageLetter) {
+        for (int i = 0; i < this.letters.size(); i++) {
+            if (this.letters.get(i) == imageLetter) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Copies all letters that have not been removed into a new list.
+     *
+     * @return The letters that have not been removed
+     */
+    public List<ImageLetter> toList() {
+        var list = new ArrayList<ImageLetter>(this.letters.size());
+        for (int i = 0; i < this.letters.size(); i++) {
+            if (!isRemoved(i)) list.add(this.letters.get(i));
+        }
+
+        return list;
+    }
+}
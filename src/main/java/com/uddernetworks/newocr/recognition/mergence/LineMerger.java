@@ -0,0 +1,30 @@
+package com.uddernetworks.newocr.recognition.mergence;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+
+import java.util.List;
+
+/**
+ * Merges the lines of a page given one at a time from the top, handing each line on once nothing left to merge may
+ * change it. A {@link LineMerger} is created by a {@link MergenceManager} for every page.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public interface LineMerger {
+
+    /**
+     * Adds the next line of the page, below every line added before it.
+     *
+     * @param y    The Y of the line
+     * @param line The letters of the line ordered by X, which merged letters are removed from
+     * @throws IllegalStateException If the {@link LineMerger} has been finished
+     */
+    void accept(int y, List<ImageLetter> line);
+
+    /**
+     * Merges and hands on every line left, as no more lines will be added.
+     */
+    void finish();
+}
@@ -0,0 +1,100 @@
+package com.uddernetworks.newocr.recognition.mergence;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
+import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable, precompiled set of {@link MergeRule}s and everything else needed to merge the characters of a scan, so
+ * nothing has to be sorted or looked up on each scan. A {@link MergePlan} is created once for a set of rules, a
+ * {@link SimilarityManager} and a {@link ModelSnapshot}, with every rule's thresholds resolved from the snapshot, and may
+ * be used by any amount of scans of that model at the same time.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class MergePlan {
+
+    // Letters that are only pieces of other characters, so if left unmerged their next closest match is used
+    private static final String PIECE_LETTERS = "=j\"%i!";
+
+    private final List<MergeRule> rules;
+    private final SimilarityManager similarityManager;
+    private final long modelFingerprint;
+    private final SimilarRule dotRule;
+    private final BitSet pieceLetters = new BitSet();
+
+    /**
+     * Compiles a {@link MergePlan}.
+     *
+     * @param rules             The {@link MergeRule}s to use, in any order
+     * @param similarityManager The {@link SimilarityManager} to use, which must have a rule named "dot"
+     * @param snapshot          The {@link ModelSnapshot} to resolve the rules' thresholds from
+     * @throws java.util.NoSuchElementException If the {@link SimilarityManager} has no "dot" rule
+     */
+    public MergePlan(List<MergeRule> rules, SimilarityManager similarityManager, ModelSnapshot snapshot) {
+        var sortedRules = new ArrayList<MergeRule>(rules.size());
+        for (var rule : rules) sortedRules.add(rule.resolve(snapshot));
+        sortedRules.sort(Comparator.comparingInt(rule -> rule.getPriority().getPriorityIndex()));
+
+        this.rules = List.copyOf(sortedRules);
+        this.similarityManager = similarityManager;
+        this.modelFingerprint = snapshot.getFingerprint();
+        this.dotRule = similarityManager.getRule("dot").orElseThrow();
+        PIECE_LETTERS.chars().forEach(this.pieceLetters::set);
+    }
+
+    /**
+     * Gets the {@link MergeRule}s in the order they should be ran in by their {@link MergePriority}.
+     *
+     * @return The ordered, unmodifiable {@link MergeRule}s
+     */
+    public List<MergeRule> getRules() {
+        return this.rules;
+    }
+
+    /**
+     * Gets the {@link SimilarityManager} the plan was compiled with.
+     *
+     * @return The {@link SimilarityManager}
+     */
+    public SimilarityManager getSimilarityManager() {
+        return this.similarityManager;
+    }
+
+    /**
+     * Gets the {@link ModelSnapshot#getFingerprint()} of the model the plan was compiled for.
+     *
+     * @return The fingerprint of the model
+     */
+    public long getModelFingerprint() {
+        return this.modelFingerprint;
+    }
+
+    /**
+     * Gets the {@link SimilarRule} for dots, used for unmerged dots.
+     *
+     * @return The dot {@link SimilarRule}
+     */
+    public SimilarRule getDotRule() {
+        return this.dotRule;
+    }
+
+    /**
+     * Gets if the given {@link ImageLetter} is only a piece of a character, so it should not be left unmerged.
+     *
+     * @param imageLetter The {@link ImageLetter} to check
+     * @return If the {@link ImageLetter} is a piece of a character
+     */
+    public boolean isPiece(ImageLetter imageLetter) {
+        var letter = imageLetter.getLetter();
+        return this.pieceLetters.get(letter) || (letter == ';' && imageLetter.getModifier() == 1);
+    }
+}
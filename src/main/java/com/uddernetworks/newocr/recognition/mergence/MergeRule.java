@@ -2,6 +2,7 @@ package com.uddernetworks.newocr.recognition.mergence;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 
 import java.util.List;
@@ -49,4 +50,32 @@ public abstract class MergeRule {
      * @return The {@link ImageLetter} that should be removed if the merge was successful
      */
     public abstract Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData);
+
+    /**
+     * Preforms the merging action like {@link MergeRule#mergeCharacters(ImageLetter, List)}, but with the index of the
+     * target already known and a view of the data that still contains removed letters, so neighbors may be found
+     * without searching the data. This is what {@link MergenceManager}s invoke, and by default it copies the view and
+     * invokes {@link MergeRule#mergeCharacters(ImageLetter, List)}, so rules should override this to avoid the copy.
+     *
+     * @param target     The base character
+     * @param index      The index of the base character in the view
+     * @param letterData The letter data
+     * @return The {@link ImageLetter} that should be removed if the merge was successful
+     */
+    public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+        return mergeCharacters(target, letterData.toList());
+    }
+
+    /**
+     * Gets a copy of the rule with every threshold it reads from a trained model, such as the averaged distances
+     * between pieces of a character, resolved from the given {@link ModelSnapshot}. This is invoked whenever a
+     * {@link MergePlan} is compiled for a model, so scans never use thresholds of an older model. By default the rule
+     * reads nothing from the model and is returned as is.
+     *
+     * @param snapshot The {@link ModelSnapshot} to read thresholds from
+     * @return The rule with its thresholds resolved
+     */
+    public MergeRule resolve(ModelSnapshot snapshot) {
+        return this;
+    }
 }
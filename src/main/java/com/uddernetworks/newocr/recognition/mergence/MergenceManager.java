@@ -2,11 +2,13 @@ package com.uddernetworks.newocr.recognition.mergence;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 
 import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.ObjIntConsumer;
 
 /**
  * The manager for {@link MergeRule}s to combine/merge multi part characters.
@@ -27,11 +29,52 @@ public interface MergenceManager {
     MergenceManager addRule(BiFunction<DatabaseManager, SimilarityManager, MergeRule> rule);
 
     /**
-     * Orders and invokes all merge rules' {@link MergeRule#mergeCharacters(ImageLetter, List)} method with appropriate data.
+     * Orders and invokes all merge rules' {@link MergeRule#mergeCharacters(ImageLetter, int, LetterView)} method with
+     * appropriate data.
      *
      * @param sortedLines       The read image data
      * @param similarityManager The {@link SimilarityManager} used
      */
     void beginMergence(Int2ObjectLinkedOpenHashMap<List<ImageLetter>> sortedLines, SimilarityManager similarityManager);
 
+    /**
+     * Merges like {@link #beginMergence(Int2ObjectLinkedOpenHashMap, SimilarityManager)}, with any thresholds of the
+     * rules read from the given {@link ModelSnapshot} rather than the current model of the database, so a scan merges
+     * with the same model it was classified with. By default the snapshot is ignored.
+     *
+     * @param sortedLines       The read image data
+     * @param similarityManager The {@link SimilarityManager} used
+     * @param snapshot          The {@link ModelSnapshot} scanned with
+     */
+    default void beginMergence(Int2ObjectLinkedOpenHashMap<List<ImageLetter>> sortedLines, SimilarityManager similarityManager, ModelSnapshot snapshot) {
+        beginMergence(sortedLines, similarityManager);
+    }
+
+    /**
+     * Starts merging a page whose lines are added one at a time from the top via the returned {@link LineMerger}. Each
+     * line is given to the consumer with its Y once merged, in the order they were added, leaving out lines that are
+     * empty once merged. By default every line is held until the {@link LineMerger} is finished, and they are then
+     * merged at once via {@link #beginMergence(Int2ObjectLinkedOpenHashMap, SimilarityManager, ModelSnapshot)}.
+     *
+     * @param similarityManager The {@link SimilarityManager} used
+     * @param snapshot          The {@link ModelSnapshot} scanned with
+     * @param lineConsumer      The consumer accepting each merged line and its Y
+     * @return The {@link LineMerger} to add the lines to
+     */
+    default LineMerger beginMergence(SimilarityManager similarityManager, ModelSnapshot snapshot, ObjIntConsumer<List<ImageLetter>> lineConsumer) {
+        var sortedLines = new Int2ObjectLinkedOpenHashMap<List<ImageLetter>>();
+        return new LineMerger() {
+            @Override
+            public void accept(int y, List<ImageLetter> line) {
+                sortedLines.put(y, line);
+            }
+
+            @Override
+            public void finish() {
+                beginMergence(sortedLines, similarityManager, snapshot);
+                sortedLines.int2ObjectEntrySet().forEach(entry -> lineConsumer.accept(entry.getValue(), entry.getIntKey()));
+                sortedLines.clear();
+            }
+        };
+    }
 }
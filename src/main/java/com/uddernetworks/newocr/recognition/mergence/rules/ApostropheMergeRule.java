@@ -2,7 +2,9 @@ package com.uddernetworks.newocr.recognition.mergence.rules;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.mergence.MergePriority;
+import com.uddernetworks.newocr.recognition.mergence.LetterView;
 import com.uddernetworks.newocr.recognition.mergence.MergeRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
@@ -10,7 +12,6 @@ import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 
 import static com.uddernetworks.newocr.recognition.similarity.Letter.*;
 
@@ -30,12 +31,13 @@ public class ApostropheMergeRule extends MergeRule {
         super(databaseManager, similarityManager);
 
         similarityManager.getSafeRule("vertical-line", rule -> this.apostropheRule = rule);
+    }
 
-        try {
-            this.apostropheRatio = databaseManager.getAveragedData("apostropheRatio").get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public MergeRule resolve(ModelSnapshot snapshot) {
+        var resolved = new ApostropheMergeRule(this.databaseManager, this.similarityManager);
+        resolved.apostropheRatio = snapshot.getAveragedData("apostropheRatio");
+        return resolved;
     }
 
     @Override
@@ -50,15 +52,18 @@ public class ApostropheMergeRule extends MergeRule {
 
     @Override
     public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
-        if (!this.apostropheRule.matchesLetter(target)) return Optional.empty();
+        return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+    }
 
-        var index = letterData.indexOf(target) - 1;
+    @Override
+    public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+        if (!this.apostropheRule.matchesLetter(target)) return Optional.empty();
 
-        if (letterData.size() <= index || index < 0) return Optional.empty();
+        var beforeIndex = letterData.previous(index);
 
-        var before = letterData.get(index);
+        if (beforeIndex < 0) return Optional.empty();
 
-        if (before == null) return Optional.empty();
+        var before = letterData.get(beforeIndex);
 
         if (target.getAmountOfMerges() > 0 || before.getAmountOfMerges() > 0) return Optional.empty();
 
@@ -72,9 +77,9 @@ public class ApostropheMergeRule extends MergeRule {
         var compare = Arrays.asList(EXCLAMATION_DOT, QUOTE_LEFT, QUOTE_RIGHT, PERCENT_LDOT, PERCENT_RDOT, APOSTROPHE, ASTERISK, PLUS, COMMA, MINUS, PERIOD, COLON_TOP, COLON_BOTTOM, SEMICOLON_TOP, SEMICOLON_BOTTOM, EQUALS_TOP, EQUALS_BOTTOM, QUESTION_MARK_BOTTOM, CARROT, UNDERSCORE, GRAVE, i_DOT, j_DOT, TILDE, SPACE);
 
         ImageLetter compareCharacter = null;
-        for (ImageLetter current : letterData) {
-            var currentLetter = getLetter(current);
-            if (target.equals(current) || before.equals(current) || compare.contains(currentLetter)) continue;
+        for (int i = letterData.next(-1); i != -1; i = letterData.next(i)) {
+            var current = letterData.get(i);
+            if (i == index || i == beforeIndex || compare.contains(getLetter(current))) continue;
             compareCharacter = current;
             break;
         }
@@ -2,14 +2,15 @@ package com.uddernetworks.newocr.recognition.mergence.rules;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.mergence.MergePriority;
+import com.uddernetworks.newocr.recognition.mergence.LetterView;
 import com.uddernetworks.newocr.recognition.mergence.MergeRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 
 import static com.uddernetworks.newocr.utils.OCRUtils.diff;
 
@@ -32,13 +33,14 @@ public class EqualVerticalMergeRule extends MergeRule {
 
         similarityManager.getSafeRule("dot", rule -> this.dotRule = rule);
         similarityManager.getSafeRule("horizontal-line", rule -> this.horizontalLineRule = rule);
+    }
 
-        try {
-            this.colonDistance = this.databaseManager.getAveragedData("colonDistance").get();
-            this.equalsDistance = this.databaseManager.getAveragedData("equalsDistance").get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public MergeRule resolve(ModelSnapshot snapshot) {
+        var resolved = new EqualVerticalMergeRule(this.databaseManager, this.similarityManager);
+        resolved.colonDistance = snapshot.getAveragedData("colonDistance");
+        resolved.equalsDistance = snapshot.getAveragedData("equalsDistance");
+        return resolved;
     }
 
     @Override
@@ -53,11 +55,16 @@ public class EqualVerticalMergeRule extends MergeRule {
 
     @Override
     public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
-        var index = letterData.indexOf(target) + 1;
+        return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+    }
+
+    @Override
+    public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+        var aboveIndex = letterData.next(index);
 
-        if (letterData.size() <= index) return Optional.empty();
+        if (aboveIndex < 0) return Optional.empty();
 
-        var above = letterData.get(index);
+        var above = letterData.get(aboveIndex);
 
         if (target.getAmountOfMerges() > 0 || above.getAmountOfMerges() > 0) return Optional.empty();
 
@@ -2,14 +2,15 @@ package com.uddernetworks.newocr.recognition.mergence.rules;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.mergence.MergePriority;
+import com.uddernetworks.newocr.recognition.mergence.LetterView;
 import com.uddernetworks.newocr.recognition.mergence.MergeRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 
 import static com.uddernetworks.newocr.utils.OCRUtils.diff;
 
@@ -33,14 +34,15 @@ public class OverDotMergeRule extends MergeRule {
 
         similarityManager.getSafeRule("dot", rule -> this.dotRule = rule);
         similarityManager.getSafeRule("vertical-line", rule -> this.verticalLineRule = rule);
+    }
 
-        try {
-            this.distancei = this.databaseManager.getAveragedData("distancei").get();
-            this.distancej = this.databaseManager.getAveragedData("distancej").get();
-            this.semicolonDistance = this.databaseManager.getAveragedData("semicolonDistance").get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public MergeRule resolve(ModelSnapshot snapshot) {
+        var resolved = new OverDotMergeRule(this.databaseManager, this.similarityManager);
+        resolved.distancei = snapshot.getAveragedData("distancei");
+        resolved.distancej = snapshot.getAveragedData("distancej");
+        resolved.semicolonDistance = snapshot.getAveragedData("semicolonDistance");
+        return resolved;
     }
 
     @Override
@@ -55,9 +57,14 @@ public class OverDotMergeRule extends MergeRule {
 
     @Override
     public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
-        var index = letterData.indexOf(target) - 1;
+        return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+    }
+
+    @Override
+    public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+        var aboveIndex = letterData.previous(index);
 
-        if (index < 0 || letterData.size() <= index) return Optional.empty();
+        if (aboveIndex < 0) return Optional.empty();
 
         var targetLetter = target.getLetter();
 
@@ -74,7 +81,7 @@ public class OverDotMergeRule extends MergeRule {
         }
 
         // Dot
-        var above = letterData.get(index);
+        var above = letterData.get(aboveIndex);
         if (!this.dotRule.matchesLetter(above)) return Optional.empty();
 
         if (target.getAmountOfMerges() > 0 || above.getAmountOfMerges() > 0) return Optional.empty();
@@ -3,6 +3,7 @@ package com.uddernetworks.newocr.recognition.mergence.rules;
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
 import com.uddernetworks.newocr.recognition.mergence.MergePriority;
+import com.uddernetworks.newocr.recognition.mergence.LetterView;
 import com.uddernetworks.newocr.recognition.mergence.MergeRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
@@ -41,12 +42,18 @@ public class PercentMergeRule extends MergeRule {
 
     @Override
     public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
-        var baseIndex = letterData.indexOf(target);
+        return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+    }
+
+    @Override
+    public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+        var part1Index = letterData.previous(index);
+        var part2Index = letterData.next(index);
 
-        if (baseIndex - 1 < 0 || baseIndex + 1 >= letterData.size()) return Optional.empty();
+        if (part1Index < 0 || part2Index < 0) return Optional.empty();
 
-        var part1 = letterData.get(baseIndex - 1);
-        var part2 = letterData.get(baseIndex + 1);
+        var part1 = letterData.get(part1Index);
+        var part2 = letterData.get(part2Index);
 
         if (target.getAmountOfMerges() > 0 || part1.getAmountOfMerges() > 0 || part2.getAmountOfMerges() > 0)
             return Optional.empty();
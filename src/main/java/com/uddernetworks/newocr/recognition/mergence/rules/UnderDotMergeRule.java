@@ -2,14 +2,15 @@ package com.uddernetworks.newocr.recognition.mergence.rules;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
 import com.uddernetworks.newocr.recognition.mergence.MergePriority;
+import com.uddernetworks.newocr.recognition.mergence.LetterView;
 import com.uddernetworks.newocr.recognition.mergence.MergeRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 
 import static com.uddernetworks.newocr.recognition.similarity.Letter.QUESTION_MARK_BOTTOM;
 import static com.uddernetworks.newocr.recognition.similarity.Letter.QUESTION_MARK_TOP;
@@ -34,13 +35,14 @@ public class UnderDotMergeRule extends MergeRule {
 
         similarityManager.getSafeRule("dot", rule -> this.dotRule = rule);
         similarityManager.getSafeRule("vertical-line", rule -> this.verticalLineRule = rule);
+    }
 
-        try {
-            this.distanceExclamation = this.databaseManager.getAveragedData("distanceExclamation").get();
-            this.distanceQuestion = this.databaseManager.getAveragedData("distanceQuestion").get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public MergeRule resolve(ModelSnapshot snapshot) {
+        var resolved = new UnderDotMergeRule(this.databaseManager, this.similarityManager);
+        resolved.distanceExclamation = snapshot.getAveragedData("distanceExclamation");
+        resolved.distanceQuestion = snapshot.getAveragedData("distanceQuestion");
+        return resolved;
     }
 
     @Override
@@ -55,9 +57,14 @@ public class UnderDotMergeRule extends MergeRule {
 
     @Override
     public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
-        var index = letterData.indexOf(target) + 1;
+        return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+    }
+
+    @Override
+    public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+        var belowIndex = letterData.next(index);
 
-        if (letterData.size() <= index) return Optional.empty();
+        if (belowIndex < 0) return Optional.empty();
 
         // Base, we want this to be a line
         if (QUESTION_MARK_BOTTOM.matches(target)
@@ -66,7 +73,7 @@ public class UnderDotMergeRule extends MergeRule {
         var question = QUESTION_MARK_TOP.matches(target);
 
         // Dot
-        var below = letterData.get(index);
+        var below = letterData.get(belowIndex);
         if (!this.dotRule.matchesLetter(below)) return Optional.empty();
 
         if (target.getAmountOfMerges() > 0 || below.getAmountOfMerges() > 0) return Optional.empty();
@@ -0,0 +1,136 @@
+package com.uddernetworks.newocr.recognition.similarity;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A registry giving every character piece (A letter and modifier) a small, dense integer ID, so data about them may
+ * be stored in arrays and bitsets indexed by the ID rather than looked up in maps. Every {@link Letter} is registered
+ * with its ordinal as its ID, and any other character piece may be registered at runtime to get the next free ID,
+ * allowing characters outside of {@link Letter} to be trained and scanned.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class GlyphRegistry {
+
+    private static final Letter[] LETTERS = Letter.values();
+
+    private static final Object lock = new Object();
+    private static volatile Int2IntOpenHashMap ids;
+    private static volatile char[] letters = new char[0];
+    private static volatile int[] modifiers = new int[0];
+
+    static {
+        var initialIds = new Int2IntOpenHashMap(LETTERS.length);
+        initialIds.defaultReturnValue(-1);
+        ids = initialIds;
+
+        for (var letter : LETTERS) {
+            register(letter.getLetter(), letter.getMod());
+        }
+    }
+
+    private GlyphRegistry() {}
+
+    /**
+     * Gets the ID of the given letter and modifier.
+     *
+     * @param letter   The letter of the character piece
+     * @param modifier The modifier of the character piece
+     * @return The ID, or -1 if it has not been registered
+     */
+    public static int getId(char letter, int modifier) {
+        return ids.get(getKey(letter, modifier));
+    }
+
+    /**
+     * Gets the ID of the given letter and modifier, registering it with the next free ID if it has not been registered
+     * yet.
+     *
+     * @param letter   The letter of the character piece
+     * @param modifier The modifier of the character piece
+     * @return The ID
+     */
+    public static int register(char letter, int modifier) {
+        int existing = getId(letter, modifier);
+        if (existing != -1) return existing;
+
+        synchronized (lock) {
+            var key = getKey(letter, modifier);
+            existing = ids.get(key);
+            if (existing != -1) return existing;
+
+            // Copied on write, so reads never need to lock
+            int id = letters.length;
+            var newLetters = Arrays.copyOf(letters, id + 1);
+            var newModifiers = Arrays.copyOf(modifiers, id + 1);
+            newLetters[id] = letter;
+            newModifiers[id] = modifier;
+
+            var newIds = new Int2IntOpenHashMap(ids);
+            newIds.defaultReturnValue(-1);
+            newIds.put(key, id);
+
+            letters = newLetters;
+            modifiers = newModifiers;
+            ids = newIds;
+            return id;
+        }
+    }
+
+    /**
+     * Gets the amount of IDs registered. Every ID is between 0 inclusive and this value exclusive.
+     *
+     * @return The amount of IDs registered
+     */
+    public static int size() {
+        return letters.length;
+    }
+
+    /**
+     * Gets the letter of the given ID.
+     *
+     * @param id The ID
+     * @return The letter
+     * @throws ArrayIndexOutOfBoundsException If the ID has not been registered
+     */
+    public static char getLetter(int id) {
+        return letters[id];
+    }
+
+    /**
+     * Gets the modifier of the given ID.
+     *
+     * @param id The ID
+     * @return The modifier
+     * @throws ArrayIndexOutOfBoundsException If the ID has not been registered
+     */
+    public static int getModifier(int id) {
+        return modifiers[id];
+    }
+
+    /**
+     * Gets the {@link Letter} of the given ID, if the ID belongs to one.
+     *
+     * @param id The ID
+     * @return The {@link Letter}, or empty if the ID was registered at runtime
+     */
+    public static Optional<Letter> getLetterEnum(int id) {
+        return id >= 0 && id < LETTERS.length ? Optional.of(LETTERS[id]) : Optional.empty();
+    }
+
+    /**
+     * Gets the key of a letter and modifier in the ID table.
+     *
+     * @param letter   The letter
+     * @param modifier The modifier
+     * @return The key
+     */
+    private static int getKey(char letter, int modifier) {
+        return (letter << 16) | (modifier & 0xFFFF);
+    }
+}
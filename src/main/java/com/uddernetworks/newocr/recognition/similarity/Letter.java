@@ -2,8 +2,6 @@ package com.uddernetworks.newocr.recognition.similarity;
 
 import com.uddernetworks.newocr.character.ImageLetter;
 
-import java.util.Arrays;
-
 /**
  * An enum containing every possible character piece that can be detected.
  * Each one of these are recognised as a separate character and will be trained as such.
@@ -145,6 +143,15 @@ public enum Letter {
         return mod;
     }
 
+    /**
+     * Gets the dense ID of the letter from the {@link GlyphRegistry}, which is always its ordinal.
+     *
+     * @return The ID of the letter
+     */
+    public int getId() {
+        return ordinal();
+    }
+
     public boolean matches(ImageLetter imageLetter) {
         return matches(imageLetter.getLetter(), imageLetter.getModifier());
     }
@@ -158,9 +165,7 @@ public enum Letter {
     }
 
     public static Letter getLetter(char character, int mod) {
-        var optional = Arrays.stream(values())
-                .filter(letter -> letter.letter == character && letter.mod == mod)
-                .findFirst();
+        var optional = GlyphRegistry.getLetterEnum(GlyphRegistry.getId(character, mod));
         if (optional.isEmpty()) {
             System.err.println("Couldn't find a letter with char " + character + " and mod " + mod);
             return SPACE;
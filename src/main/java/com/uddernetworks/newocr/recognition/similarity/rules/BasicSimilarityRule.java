@@ -1,10 +1,11 @@
 package com.uddernetworks.newocr.recognition.similarity.rules;
 
 import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
 import com.uddernetworks.newocr.recognition.similarity.Letter;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
 
-import java.util.EnumSet;
+import java.util.BitSet;
 import java.util.Set;
 
 /**
@@ -17,28 +18,42 @@ import java.util.Set;
  */
 public class BasicSimilarityRule implements SimilarRule {
 
-    private Set<Letter> characters;
+    // Indexed by the IDs from the GlyphRegistry
+    private BitSet characters = new BitSet();
     private String name;
 
     public BasicSimilarityRule(String name, Set<Letter> characters) {
         this.name = name;
-        this.characters = EnumSet.copyOf(characters);
+        characters.forEach(this::addLetter);
     }
 
     public BasicSimilarityRule(String name, Letter... characters) {
         this.name = name;
-        this.characters = characters.length > 0 ?
-                EnumSet.of(characters[0], characters) :
-                EnumSet.noneOf(Letter.class);
+        for (var letter : characters) {
+            addLetter(letter);
+        }
     }
 
     public BasicSimilarityRule addLetter(Letter letter) {
-        this.characters.add(letter);
+        this.characters.set(letter.getId());
+        return this;
+    }
+
+    /**
+     * Adds the given letter and modifier to the rule, registering it in the {@link GlyphRegistry} if it is not a
+     * {@link Letter}.
+     *
+     * @param letter   The letter to add
+     * @param modifier The modifier of the letter
+     * @return The current {@link BasicSimilarityRule}
+     */
+    public BasicSimilarityRule addLetter(char letter, int modifier) {
+        this.characters.set(GlyphRegistry.register(letter, modifier));
         return this;
     }
 
     public void removeLetter(Letter letter) {
-        this.characters.remove(letter);
+        this.characters.clear(letter.getId());
     }
 
     @Override
@@ -48,11 +63,12 @@ public class BasicSimilarityRule implements SimilarRule {
 
     @Override
     public boolean matchesLetter(ImageLetter first) {
-        return this.characters.contains(Letter.getLetter(first));
+        var id = GlyphRegistry.getId(first.getLetter(), first.getModifier());
+        return id != -1 && this.characters.get(id);
     }
 
     @Override
     public boolean matchesLetter(Letter first) {
-        return this.characters.contains(first);
+        return this.characters.get(first.getId());
     }
 }
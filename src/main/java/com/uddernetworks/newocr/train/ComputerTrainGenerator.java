@@ -35,10 +35,19 @@ public class ComputerTrainGenerator implements TrainGenerator {
 
     @Override
     public void generateTrainingImage(File file, TrainGeneratorOptions options) {
+        try {
+            ImageIO.write(generateTrainingImage(options), "png", file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public BufferedImage generateTrainingImage(TrainGeneratorOptions options) {
         BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
         Graphics2D graphics = image.createGraphics();
 
-        RenderingHints rht = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        RenderingHints rht = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, getAntiAliasing(options));
         graphics.setRenderingHints(rht);
 
         Font font = new Font(options.getFontFamily(), Font.PLAIN, options.getMaxFontSize());
@@ -52,39 +61,63 @@ public class ComputerTrainGenerator implements TrainGenerator {
             size2--;
         }
 
-        image = new BufferedImage(graphics.getFontMetrics().stringWidth(OCRScan.RAW_STRING) + 50, newHeight, BufferedImage.TYPE_INT_ARGB);
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                image.setRGB(x, y, Color.WHITE.getRGB());
-            }
-        }
+        var scale = options.getScale();
+        var width = graphics.getFontMetrics().stringWidth(OCRScan.RAW_STRING) + 50 + options.getXOffset();
+        var height = newHeight + options.getYOffset();
+        image = new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale), BufferedImage.TYPE_INT_ARGB);
 
         graphics = image.createGraphics();
+        graphics.setPaint(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
 
-        RenderingHints rh = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        RenderingHints rh = new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING, getAntiAliasing(options));
         graphics.setRenderingHints(rh);
 
-        int size = options.getMaxFontSize();
-        int offset = options.getMaxFontSize();
-        for (int i = 0; i < options.getMaxFontSize() - options.getMinFontSize(); i++) {
-            drawLine(graphics, options.getFontFamily(), offset, size);
-            offset += ConversionUtils.pointToPixel(size) + 15;
-            size--;
-        }
+        if (scale != 1) graphics.scale(scale, scale);
 
-        try {
-            ImageIO.write(image, "png", file);
-        } catch (IOException e) {
-            e.printStackTrace();
+        for (int size = options.getMaxFontSize(); size > options.getMinFontSize(); size--) {
+            drawLine(graphics, options.getFontFamily(), getLineX(options), getBaseline(options, size), size);
         }
+
+        graphics.dispose();
+
+        return image;
+    }
+
+    /**
+     * Gets the X position the lines of an image generated with the given options start at, before it's scaled.
+     *
+     * @param options The options of the image
+     * @return The X position of the lines
+     */
+    static int getLineX(TrainGeneratorOptions options) {
+        return 10 + options.getXOffset();
+    }
+
+    /**
+     * Gets the Y position of the baseline of the given font size's line in an image generated with the given options,
+     * before it's scaled.
+     *
+     * @param options  The options of the image
+     * @param fontSize The font size of the line
+     * @return The Y position of the baseline
+     */
+    static int getBaseline(TrainGeneratorOptions options, int fontSize) {
+        int offset = options.getMaxFontSize() + options.getYOffset();
+        for (int size = options.getMaxFontSize(); size > fontSize; size--) offset += ConversionUtils.pointToPixel(size) + 15;
+        return offset;
+    }
+
+    private Object getAntiAliasing(TrainGeneratorOptions options) {
+        return options.isAntiAliasing() ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF;
     }
 
-    private void drawLine(Graphics2D drawTo, String fontName, int yOffset, int size) {
+    private void drawLine(Graphics2D drawTo, String fontName, int xOffset, int yOffset, int size) {
         Font font = new Font(fontName, Font.PLAIN, size);
         drawTo.setFont(font);
         drawTo.setPaint(Color.BLACK);
 
-        drawTo.drawString(OCRScan.RAW_STRING, 10, yOffset);
+        drawTo.drawString(OCRScan.RAW_STRING, xOffset, yOffset);
     }
 
 }
@@ -0,0 +1,107 @@
+package com.uddernetworks.newocr.train;
+
+import com.uddernetworks.newocr.detection.SearchImage;
+import com.uddernetworks.newocr.recognition.OCRScan;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Renders a single training line of {@link OCRScan#RAW_STRING} at one font size straight into a {@link SearchImage},
+ * laid out the same as a line of an image from {@link ComputerTrainGenerator}. The line is sized from the bounds of its
+ * {@link java.awt.font.GlyphVector} and drawn into a raster that is reused for every line, so training a font never
+ * creates, encodes or decodes a whole training image. A renderer is not thread safe, so every thread should use its
+ * own.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class GlyphLineRenderer {
+
+    /**
+     * The amount of white pixels around the rendered line.
+     */
+    public static final int PADDING = 2;
+
+    private BufferedImage raster = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    /**
+     * Renders a line of the given font size, binarizing it the same as {@link com.uddernetworks.newocr.utils.OCRUtils#filter(BufferedImage)}
+     * does. The line is drawn at the same position as in an image generated with the same options, so its glyphs land
+     * on the same pixels however they are scaled and offset, and is then moved to the corner of the image.
+     *
+     * @param options  The options of the font, its antialiasing and scale
+     * @param fontSize The font size to render the line at
+     * @return The {@link SearchImage} of the line
+     */
+    public SearchImage render(TrainGeneratorOptions options, int fontSize) {
+        var antiAliasing = options.isAntiAliasing() ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF;
+        var transform = AffineTransform.getScaleInstance(options.getScale(), options.getScale());
+        var renderContext = new FontRenderContext(transform, antiAliasing, RenderingHints.VALUE_FRACTIONALMETRICS_DEFAULT);
+
+        var font = new Font(options.getFontFamily(), Font.PLAIN, fontSize);
+        var glyphVector = font.createGlyphVector(renderContext, OCRScan.RAW_STRING);
+
+        int originX = ComputerTrainGenerator.getLineX(options);
+        int originY = ComputerTrainGenerator.getBaseline(options, fontSize);
+        var bounds = glyphVector.getPixelBounds(renderContext, originX, originY);
+
+        int width = bounds.width + PADDING * 2;
+        int height = bounds.height + PADDING * 2;
+        var raster = getRaster(width, height);
+
+        var graphics = raster.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antiAliasing);
+        graphics.setPaint(Color.WHITE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setPaint(Color.BLACK);
+
+        // The pixel bounds are in device space, so the line is moved before it's scaled
+        graphics.translate(PADDING - bounds.x, PADDING - bounds.y);
+        graphics.transform(transform);
+        graphics.drawGlyphVector(glyphVector, originX, originY);
+        graphics.dispose();
+
+        var pixels = ((DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+        int rasterWidth = raster.getWidth();
+        var values = new boolean[height][width];
+        var rowProfile = new int[height];
+
+        for (int y = 0; y < height; y++) {
+            var row = values[y];
+            int offset = y * rasterWidth;
+            int count = 0;
+
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[offset + x];
+                if ((((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3D < 255 * 0.75) {
+                    row[x] = true;
+                    count++;
+                }
+            }
+
+            rowProfile[y] = count;
+        }
+
+        return new SearchImage(values, rowProfile);
+    }
+
+    /**
+     * Gets the reused raster, growing it if it's smaller than the given size.
+     *
+     * @param width  The minimum width
+     * @param height The minimum height
+     * @return The raster
+     */
+    private BufferedImage getRaster(int width, int height) {
+        if (this.raster.getWidth() < width || this.raster.getHeight() < height) {
+            this.raster = new BufferedImage(Math.max(width, this.raster.getWidth()), Math.max(height, this.raster.getHeight()), BufferedImage.TYPE_INT_RGB);
+        }
+
+        return this.raster;
+    }
+}
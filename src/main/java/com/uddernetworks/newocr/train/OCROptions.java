@@ -1,7 +1,9 @@
 package com.uddernetworks.newocr.train;
 
+import com.uddernetworks.newocr.recognition.similarity.GlyphRegistry;
 import com.uddernetworks.newocr.recognition.similarity.Letter;
 import com.uddernetworks.newocr.recognition.similarity.SimilarRule;
+import com.uddernetworks.newocr.utils.FingerprintUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,8 +20,16 @@ public class OCROptions {
     private Set<Character> specialSpaces = new HashSet<>();
     private double maxPercentDiffToMerge = 0.5;
     private double sizeRatioWeight = 4;
-    private Map<Letter, Double> specificRatioWeights = new HashMap<>();
+    private double[] specificRatioWeights = new double[0];
     private ImageReadMethod imageReadMethod = ImageReadMethod.IMAGE_ICON;
+    private SegmentationMethod segmentationMethod = SegmentationMethod.FUSED;
+    private boolean parallelTraining;
+    private boolean parallelScanning;
+    private double speckleTolerance;
+    private int minComponentArea;
+    private boolean nonTextRejection;
+    private int downscaleHeight;
+    private int maxClosestMatches = 16;
 
     /**
      * Gets the characters requiring custom trained spaces.
@@ -84,7 +94,19 @@ public class OCROptions {
      * @param weight The weight to set
      */
     public void addRatioWeight(Letter letter, double weight) {
-        this.specificRatioWeights.put(letter, weight);
+        addRatioWeight(letter.getId(), weight);
+    }
+
+    /**
+     * Adds a custom width/height ratio for the given letter and modifier, registering it in the {@link GlyphRegistry}
+     * if it is not a {@link Letter}.
+     *
+     * @param letter   The letter to set the weight of
+     * @param modifier The modifier of the letter
+     * @param weight   The weight to set
+     */
+    public void addRatioWeight(char letter, int modifier, double weight) {
+        addRatioWeight(GlyphRegistry.register(letter, modifier), weight);
     }
 
     /**
@@ -94,7 +116,7 @@ public class OCROptions {
      * @param weight The weight to set
      */
     public void addRatioWeights(List<Letter> letters, double weight) {
-        letters.forEach(letter -> this.specificRatioWeights.put(letter, weight));
+        letters.forEach(letter -> addRatioWeight(letter, weight));
     }
 
     /**
@@ -104,7 +126,7 @@ public class OCROptions {
      * @param weight The weight to set
      */
     public void addRatioWeightFromRule(SimilarRule similarRule, double weight) {
-        Arrays.stream(Letter.values()).filter(similarRule::matchesLetter).forEach(letter -> this.specificRatioWeights.put(letter, weight));
+        Arrays.stream(Letter.values()).filter(similarRule::matchesLetter).forEach(letter -> addRatioWeight(letter, weight));
     }
 
     /**
@@ -118,7 +140,7 @@ public class OCROptions {
                 .filter(letter ->
                         similarRules.stream()
                                 .anyMatch(rule -> rule.matchesLetter(letter)))
-                .forEach(letter -> this.specificRatioWeights.put(letter, weight));
+                .forEach(letter -> addRatioWeight(letter, weight));
     }
 
     /**
@@ -139,7 +161,35 @@ public class OCROptions {
      * @return The weight of the width/height ratio
      */
     public double getSizeRatioWeight(Letter letter) {
-        return sizeRatioWeight * this.specificRatioWeights.getOrDefault(letter, 1D);
+        return getSizeRatioWeight(letter.getId());
+    }
+
+    /**
+     * Gets the amount the width/height radio should be multiplied across all a character's potential matches, to
+     * increase its effects compared to the actual section similarity.
+     *
+     * @param glyphId The ID of the letter from the {@link GlyphRegistry} to get the width/height ratio of
+     * @return The weight of the width/height ratio
+     */
+    public double getSizeRatioWeight(int glyphId) {
+        var weights = this.specificRatioWeights;
+        return sizeRatioWeight * (glyphId >= 0 && glyphId < weights.length ? weights[glyphId] : 1D);
+    }
+
+    /**
+     * Sets the custom width/height ratio of the given ID, growing the array of weights if needed.
+     *
+     * @param glyphId The ID of the letter from the {@link GlyphRegistry}
+     * @param weight  The weight to set
+     */
+    private void addRatioWeight(int glyphId, double weight) {
+        if (glyphId >= this.specificRatioWeights.length) {
+            int previousLength = this.specificRatioWeights.length;
+            this.specificRatioWeights = Arrays.copyOf(this.specificRatioWeights, Math.max(glyphId + 1, GlyphRegistry.size()));
+            Arrays.fill(this.specificRatioWeights, previousLength, this.specificRatioWeights.length, 1D);
+        }
+
+        this.specificRatioWeights[glyphId] = weight;
     }
 
     /**
@@ -171,4 +221,220 @@ public class OCROptions {
     public void setImageReadMethod(ImageReadMethod imageReadMethod) {
         this.imageReadMethod = imageReadMethod;
     }
+
+    /**
+     * Gets the method that will be used to compute the segment percentages of characters for both training and
+     * scanning.
+     *
+     * @return The {@link SegmentationMethod} used in training and scanning
+     */
+    public SegmentationMethod getSegmentationMethod() {
+        return segmentationMethod;
+    }
+
+    /**
+     * Sets the {@link SegmentationMethod} used during training and scanning. This is by default
+     * {@link SegmentationMethod#FUSED}.
+     *
+     * @param segmentationMethod The {@link SegmentationMethod} to set
+     * @return The current {@link OCROptions} object
+     */
+    public OCROptions setSegmentationMethod(SegmentationMethod segmentationMethod) {
+        this.segmentationMethod = segmentationMethod;
+        return this;
+    }
+
+    /**
+     * Gets if the lines of a training image are trained concurrently.
+     *
+     * @return If lines are trained concurrently
+     */
+    public boolean isParallelTraining() {
+        return parallelTraining;
+    }
+
+    /**
+     * Sets if the lines of a training image should be trained concurrently, with each thread gathering its own data
+     * which is then combined before being written to the database. The data trained is the same either way. This is
+     * by default `false`.
+     *
+     * @param parallelTraining If lines should be trained concurrently
+     * @return The current {@link OCROptions} object
+     */
+    public OCROptions setParallelTraining(boolean parallelTraining) {
+        this.parallelTraining = parallelTraining;
+        return this;
+    }
+
+    /**
+     * Gets if the characters of a scanned image are classified concurrently.
+     *
+     * @return If characters are classified concurrently
+     */
+    public boolean isParallelScanning() {
+        return parallelScanning;
+    }
+
+    /**
+     * Sets if the characters of a scanned image should be classified concurrently, in tiles of
+     * {@link com.uddernetworks.newocr.recognition.CandidateIndex#GLYPH_BLOCK} characters, and merged concurrently by
+     * the default {@link com.uddernetworks.newocr.recognition.mergence.MergenceManager} before the lines are spaced in
+     * order. The result is the same either way. This is by default `false`.
+     *
+     * @param parallelScanning If characters should be classified concurrently
+     * @return The current {@link OCROptions} object
+     */
+    public OCROptions setParallelScanning(boolean parallelScanning) {
+        this.parallelScanning = parallelScanning;
+        return this;
+    }
+
+    /**
+     * Gets the fraction of the smallest trained dot's size, relative to the line height, that a component must reach
+     * to be classified.
+     *
+     * @return The speckle tolerance
+     */
+    public double getSpeckleTolerance() {
+        return speckleTolerance;
+    }
+
+    /**
+     * Sets the fraction of the smallest trained dot's size, relative to the line height, that a component must reach
+     * to be classified. Smaller components are dropped as speckles before being segmented. 0 keeps every component,
+     * while `0.5` drops noisy scans' speckles and still keeps real dots and periods rendered at half their trained
+     * size. This is by default `0`.
+     *
+     * @param speckleTolerance The speckle tolerance
+     * @return The current {@link OCROptions} object
+     */
+    public OCROptions setSpeckleTolerance(double speckleTolerance) {
+        this.speckleTolerance = speckleTolerance;
+        return this;
+    }
+
+    /**
+     * Gets the minimum amount of pixels a component must have to be classified.
+     *
+     * @return The minimum component area
+     */
+    public int getMinComponentArea() {
+        return minComponentArea;
+    }
+
+    /**
+     * Sets the minimum amount of pixels a component must have to be classified. Smaller components are dropped as
+     * speckles before being segmented, which also drops stray pixels outside of any text. This is by default `0`.
+     *
+     * @param minComponentArea The minimum component area
+     * @return The current {@link OCROptions} object
+     */
+    public OCROptions setMinComponentArea(int minComponentArea) {
+        this.minComponentArea = minComponentArea;
+        return this;
+    }
+
+    /**
+     * Gets if components that can't be text are dropped before scanning.
+     *
+     * @return If non-text components are dropped
+     */
+    public boolean isNonTextRejection() {
+        return nonTextRejection;
+    }
+
+    /**
+     * Sets if components that can't be text, such as window borders, table rules, icons and images, are dropped before
+     * scanning and left out of the line bounds. Components are compared to the median component height, so text over
+     * 4 times the size of most text in the image is dropped as well, such as a large title over body text. Long and
+     * thin characters within a line of text, such as runs of underscores, are kept. This is by default `false`.
+     *
+     * @param nonTextRejection If non-text components should be dropped
+     * @return The current {@link OCROptions} object
+     * @see com.uddernetworks.newocr.detection.NonTextComponentFilter
+     */
+    public OCROptions setNonTextRejection(boolean nonTextRejection) {
+        this.nonTextRejection = nonTextRejection;
+        return this;
+    }
+
+    /**
+     * Gets the line height text is scaled down to before scanning.
+     *
+     * @return The line height, or 0 if images are never scaled
+     */
+    public int getDownscaleHeight() {
+        return downscaleHeight;
+    }
+
+    /**
+     * Sets the line height oversized text is scaled down to before scanning, as large text costs far more to label and
+     * segment without being any more accurate. The line height of an image is the median height of the lines found in
+     * its row projection, so only images with most of their text taller than this are scaled. Scanned letters are
+     * mapped back to the coordinates of the original image, while the filtered image of the
+     * {@link com.uddernetworks.newocr.recognition.ScannedImage} stays scaled. A value of 0 disables scaling. This is by
+     * default `0`.
+     *
+     * @param downscaleHeight The line height to scale text down to
+     * @return The current {@link OCROptions} object
+     */
+    public OCROptions setDownscaleHeight(int downscaleHeight) {
+        this.downscaleHeight = downscaleHeight;
+        return this;
+    }
+
+    /**
+     * Gets the maximum amount of closest matches kept for each scanned character besides its best match.
+     *
+     * @return The maximum amount of closest matches, or 0 if every match is kept
+     */
+    public int getMaxClosestMatches() {
+        return maxClosestMatches;
+    }
+
+    /**
+     * Sets the maximum amount of closest matches kept for each scanned character besides its best match, being what
+     * is used when a match turns out to be a piece of a larger character. Only this many characters of the model are
+     * fully compared to each scanned character, as any character worse than all of them is abandoned as soon as its
+     * partial difference gets too large. The best match stays the same, but the closest matches are cut to this many.
+     * An unmerged piece of a character, such as the dot of an i, is replaced by its next closest match that isn't a
+     * piece, so this should be more than the amount of piece characters in the model, being 14 for ASCII. A value of 0
+     * keeps every match, comparing every character. This is by default `16`.
+     *
+     * @param maxClosestMatches The maximum amount of closest matches
+     * @return The current {@link OCROptions} object
+     * @see com.uddernetworks.newocr.character.ImageLetter#getClosestMatches()
+     */
+    public OCROptions setMaxClosestMatches(int maxClosestMatches) {
+        this.maxClosestMatches = maxClosestMatches;
+        return this;
+    }
+
+    /**
+     * Gets a fingerprint of all options that affect the result of a scan, so results scanned with equal options may be
+     * reused. Options only affecting speed, such as {@link #isParallelScanning()} and the {@link SegmentationMethod} as
+     * every method gives the same segments, are not included.
+     *
+     * @return The fingerprint of the options
+     */
+    public long getFingerprint() {
+        long hash = FingerprintUtils.SEED;
+
+        var spaces = specialSpaces.stream().mapToInt(character -> character).sorted().toArray();
+        for (int space : spaces) hash = FingerprintUtils.mix(hash, space);
+
+        hash = FingerprintUtils.mix(hash, maxPercentDiffToMerge);
+        hash = FingerprintUtils.mix(hash, sizeRatioWeight);
+        for (int i = 0; i < specificRatioWeights.length; i++) {
+            if (specificRatioWeights[i] != 1D) hash = FingerprintUtils.mix(FingerprintUtils.mix(hash, i), specificRatioWeights[i]);
+        }
+
+        hash = FingerprintUtils.mix(hash, speckleTolerance);
+        hash = FingerprintUtils.mix(hash, minComponentArea);
+        hash = FingerprintUtils.mix(hash, nonTextRejection ? 1 : 0);
+        hash = FingerprintUtils.mix(hash, downscaleHeight);
+        hash = FingerprintUtils.mix(hash, maxClosestMatches);
+
+        return FingerprintUtils.finish(hash);
+    }
 }
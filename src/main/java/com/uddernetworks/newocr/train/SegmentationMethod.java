@@ -0,0 +1,54 @@
+package com.uddernetworks.newocr.train;
+
+import com.uddernetworks.newocr.character.SearchCharacter;
+import com.uddernetworks.newocr.utils.SegmentationUtils;
+
+import java.util.function.Consumer;
+
+/**
+ * The methods available to compute the segment percentages of a {@link SearchCharacter}, used during both training and
+ * scanning. Every method produces the exact same percentages, so a database trained with one method may be scanned
+ * with any other.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public enum SegmentationMethod implements Consumer<SearchCharacter> {
+    /**
+     * This method splits the character's values into sub-grids via {@link SearchCharacter#applySections()} and counts
+     * them via {@link SearchCharacter#analyzeSlices()}. It creates many intermediate grids and segments, making it the
+     * slowest method.
+     */
+    STREAMED {
+        @Override
+        public void accept(SearchCharacter searchCharacter) {
+            searchCharacter.applySections();
+            searchCharacter.analyzeSlices();
+        }
+    },
+    /**
+     * This method computes every segment in a single pass over the character's values via
+     * {@link SegmentationUtils#getSegmentPercentages(boolean[][], double[])}, writing straight into the character's
+     * segment percentages with no intermediate grids or segments.
+     */
+    FUSED {
+        @Override
+        public void accept(SearchCharacter searchCharacter) {
+            SegmentationUtils.getSegmentPercentages(searchCharacter.getValues(), searchCharacter.getSegmentPercentages());
+        }
+    },
+    /**
+     * This method builds an integral image of the character's values once, and then counts every grid cell and every
+     * diagonal column with a constant time lookup via
+     * {@link SegmentationUtils#getIntegralSegmentPercentages(boolean[][], double[])}. This keeps the cost of everything
+     * after the initial table flat as characters get larger, making it preferable when training or scanning high font
+     * sizes.
+     */
+    INTEGRAL {
+        @Override
+        public void accept(SearchCharacter searchCharacter) {
+            SegmentationUtils.getIntegralSegmentPercentages(searchCharacter.getValues(), searchCharacter.getSegmentPercentages());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.uddernetworks.newocr.train;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 
 /**
@@ -26,4 +27,13 @@ public interface TrainGenerator {
      * @param options The options used during image generation
      */
     void generateTrainingImage(File file, TrainGeneratorOptions options);
+
+    /**
+     * Generates an image that can be used while training the OCR using the given options, without writing it to a
+     * file.
+     *
+     * @param options The options used during image generation
+     * @return The generated image
+     */
+    BufferedImage generateTrainingImage(TrainGeneratorOptions options);
 }
@@ -11,6 +11,30 @@ public class TrainGeneratorOptions {
     private int maxFontSize = 90;
     private int minFontSize = 30;
     private String fontFamily = "";
+    private boolean antiAliasing = true;
+    private int xOffset;
+    private int yOffset;
+    private double scale = 1;
+
+    /**
+     * Creates a {@link TrainGeneratorOptions} with default values.
+     */
+    public TrainGeneratorOptions() {}
+
+    /**
+     * Creates a {@link TrainGeneratorOptions} with the same values as the given {@link TrainGeneratorOptions}.
+     *
+     * @param options The {@link TrainGeneratorOptions} to copy
+     */
+    public TrainGeneratorOptions(TrainGeneratorOptions options) {
+        this.maxFontSize = options.maxFontSize;
+        this.minFontSize = options.minFontSize;
+        this.fontFamily = options.fontFamily;
+        this.antiAliasing = options.antiAliasing;
+        this.xOffset = options.xOffset;
+        this.yOffset = options.yOffset;
+        this.scale = options.scale;
+    }
 
     /**
      * Gets the maximum font size to generate up to in points.
@@ -71,4 +95,87 @@ public class TrainGeneratorOptions {
         this.fontFamily = fontFamily;
         return this;
     }
+
+    /**
+     * Gets if text is antialiased during training image generation.
+     *
+     * @return If text is antialiased
+     */
+    public boolean isAntiAliasing() {
+        return antiAliasing;
+    }
+
+    /**
+     * Sets if text is antialiased during training image generation. This is by default `true`.
+     *
+     * @param antiAliasing If text should be antialiased
+     * @return The current {@link TrainGeneratorOptions}
+     */
+    public TrainGeneratorOptions setAntiAliasing(boolean antiAliasing) {
+        this.antiAliasing = antiAliasing;
+        return this;
+    }
+
+    /**
+     * Gets the amount of pixels all text is shifted right by during training image generation.
+     *
+     * @return The X offset in pixels
+     */
+    public int getXOffset() {
+        return xOffset;
+    }
+
+    /**
+     * Sets the amount of pixels all text is shifted right by during training image generation, moving the text across
+     * the pixel grid. This is by default 0.
+     *
+     * @param xOffset The X offset in pixels
+     * @return The current {@link TrainGeneratorOptions}
+     */
+    public TrainGeneratorOptions setXOffset(int xOffset) {
+        this.xOffset = xOffset;
+        return this;
+    }
+
+    /**
+     * Gets the amount of pixels all text is shifted down by during training image generation.
+     *
+     * @return The Y offset in pixels
+     */
+    public int getYOffset() {
+        return yOffset;
+    }
+
+    /**
+     * Sets the amount of pixels all text is shifted down by during training image generation, moving the text across
+     * the pixel grid. This is by default 0.
+     *
+     * @param yOffset The Y offset in pixels
+     * @return The current {@link TrainGeneratorOptions}
+     */
+    public TrainGeneratorOptions setYOffset(int yOffset) {
+        this.yOffset = yOffset;
+        return this;
+    }
+
+    /**
+     * Gets the scale the entire training image is rendered at.
+     *
+     * @return The scale
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Sets the scale the entire training image is rendered at, such as what a display scaling setting would do. Font
+     * sizes trained from the image are multiplied by the scale. This is by default 1.
+     *
+     * @param scale The scale
+     * @return The current {@link TrainGeneratorOptions}
+     */
+    public TrainGeneratorOptions setScale(double scale) {
+        this.scale = scale;
+        return this;
+    }
 }
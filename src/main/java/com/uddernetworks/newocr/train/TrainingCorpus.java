@@ -0,0 +1,160 @@
+package com.uddernetworks.newocr.train;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * A collection of training images, each laid out like images generated by {@link ComputerTrainGenerator}, to be trained
+ * together into a single model via {@link com.uddernetworks.newocr.recognition.Train#trainCorpus(TrainingCorpus)}.
+ * Images are only read or rendered once they are being trained, so a corpus may be much larger than what would fit in
+ * memory at once.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class TrainingCorpus {
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final TrainGenerator trainGenerator;
+
+    /**
+     * Creates an empty {@link TrainingCorpus} using a {@link ComputerTrainGenerator} for renderings.
+     */
+    public TrainingCorpus() {
+        this(new ComputerTrainGenerator());
+    }
+
+    /**
+     * Creates an empty {@link TrainingCorpus} using the given {@link TrainGenerator} for renderings.
+     *
+     * @param trainGenerator The {@link TrainGenerator} to render images with
+     */
+    public TrainingCorpus(TrainGenerator trainGenerator) {
+        this.trainGenerator = trainGenerator;
+    }
+
+    /**
+     * Adds an image file to the corpus.
+     *
+     * @param file             The training image
+     * @param generatorOptions The options the image was generated with, in order to detect font sizes
+     * @return The current {@link TrainingCorpus}
+     */
+    public TrainingCorpus addImage(File file, TrainGeneratorOptions generatorOptions) {
+        this.entries.add(new Entry(readMethod -> readMethod.apply(file), generatorOptions, false));
+        return this;
+    }
+
+    /**
+     * Adds an image rendered in memory with the given options to the corpus.
+     *
+     * @param generatorOptions The options to render the image with
+     * @return The current {@link TrainingCorpus}
+     */
+    public TrainingCorpus addRendering(TrainGeneratorOptions generatorOptions) {
+        var options = new TrainGeneratorOptions(generatorOptions);
+        this.entries.add(new Entry(readMethod -> Optional.of(this.trainGenerator.generateTrainingImage(options)), options, false));
+        return this;
+    }
+
+    /**
+     * Adds a font to the corpus, being trained like {@link com.uddernetworks.newocr.recognition.Train#trainFont(TrainGeneratorOptions)}
+     * by rendering each of its font sizes straight into memory rather than as a whole image. This is faster than
+     * {@link #addRendering(TrainGeneratorOptions)} and trains every font size of the options, while an image from
+     * {@link ComputerTrainGenerator} leaves out its smallest sizes, so the trained data differs from a rendering of
+     * the same options. The corpus' {@link TrainGenerator} is not used.
+     *
+     * @param generatorOptions The options of the font to train
+     * @return The current {@link TrainingCorpus}
+     */
+    public TrainingCorpus addFont(TrainGeneratorOptions generatorOptions) {
+        var options = new TrainGeneratorOptions(generatorOptions);
+        this.entries.add(new Entry(readMethod -> Optional.of(new ComputerTrainGenerator().generateTrainingImage(options)), options, true));
+        return this;
+    }
+
+    /**
+     * Adds multiple images rendered in memory to the corpus, each using the given options with randomly varied
+     * antialiasing, X and Y offsets of up to 8 pixels, and a scale between 0.9 and 1.1. The same seed always produces
+     * the same renderings.
+     *
+     * @param generatorOptions The base options to render images with
+     * @param amount           The amount of images to add
+     * @param seed             The seed to use for the variations
+     * @return The current {@link TrainingCorpus}
+     */
+    public TrainingCorpus addAugmentedRenderings(TrainGeneratorOptions generatorOptions, int amount, long seed) {
+        var random = new Random(seed);
+
+        for (int i = 0; i < amount; i++) {
+            addRendering(new TrainGeneratorOptions(generatorOptions)
+                    .setAntiAliasing(random.nextBoolean())
+                    .setXOffset(random.nextInt(8))
+                    .setYOffset(random.nextInt(8))
+                    .setScale(0.9 + random.nextDouble() * 0.2));
+        }
+
+        return this;
+    }
+
+    /**
+     * Gets all the images added to the corpus, in the order they were added.
+     *
+     * @return The entries of the corpus
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    /**
+     * A single training image in a {@link TrainingCorpus}.
+     */
+    public static class Entry {
+
+        private final Function<ImageReadMethod, Optional<BufferedImage>> imageSupplier;
+        private final TrainGeneratorOptions generatorOptions;
+        private final boolean rendering;
+
+        private Entry(Function<ImageReadMethod, Optional<BufferedImage>> imageSupplier, TrainGeneratorOptions generatorOptions, boolean rendering) {
+            this.imageSupplier = imageSupplier;
+            this.generatorOptions = generatorOptions;
+            this.rendering = rendering;
+        }
+
+        /**
+         * Reads or renders the training image.
+         *
+         * @param readMethod The {@link ImageReadMethod} to read image files with
+         * @return The training image, if it could be read
+         */
+        public Optional<BufferedImage> getImage(ImageReadMethod readMethod) {
+            return this.imageSupplier.apply(readMethod);
+        }
+
+        /**
+         * Gets if the entry was added by {@link TrainingCorpus#addFont(TrainGeneratorOptions)}, so its font is trained
+         * by rendering each font size of its {@link #getGeneratorOptions()} without the image.
+         *
+         * @return If the font is trained without the image
+         */
+        public boolean isRendering() {
+            return this.rendering;
+        }
+
+        /**
+         * Gets the options the training image was generated with.
+         *
+         * @return The {@link TrainGeneratorOptions}, or `null` if font sizes are not known
+         */
+        public TrainGeneratorOptions getGeneratorOptions() {
+            return this.generatorOptions;
+        }
+    }
+}
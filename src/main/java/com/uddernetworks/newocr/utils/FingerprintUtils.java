@@ -0,0 +1,98 @@
+package com.uddernetworks.newocr.utils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Provides fast, non-cryptographic 64 bit hashing used to fingerprint images, models and options, e.g. for caching
+ * scan results.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class FingerprintUtils {
+
+    /**
+     * The starting value of a hash before anything has been mixed into it.
+     */
+    public static final long SEED = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The starting value of the second of the hashes made by {@link #hashPixels(BufferedImage)}.
+     */
+    public static final long SECOND_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long MULTIPLIER_1 = 0x87C37B91114253D5L;
+    private static final long MULTIPLIER_2 = 0x4CF5AD432745937FL;
+
+    /**
+     * Mixes a value into the given hash.
+     *
+     * @param hash  The current hash
+     * @param value The value to mix in
+     * @return The new hash
+     */
+    public static long mix(long hash, long value) {
+        hash ^= Long.rotateLeft(value * MULTIPLIER_1, 31) * MULTIPLIER_2;
+        return Long.rotateLeft(hash, 27) * 5 + 0x52DCE729;
+    }
+
+    /**
+     * Mixes a value into the given hash.
+     *
+     * @param hash  The current hash
+     * @param value The value to mix in
+     * @return The new hash
+     */
+    public static long mix(long hash, double value) {
+        return mix(hash, Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Finishes a hash, spreading every bit of it over the result.
+     *
+     * @param hash The hash to finish
+     * @return The finished hash
+     */
+    public static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Hashes the size and every pixel's RGB value of the given image into two independent hashes in a single pass,
+     * the first starting with {@link #SEED} and the second with {@link #SECOND_SEED}, giving a 128 bit hash.
+     *
+     * @param image The image to hash
+     * @return The two finished hashes
+     */
+    public static long[] hashPixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long first = mix(mix(SEED, width), height);
+        long second = mix(mix(SECOND_SEED, width), height);
+
+        var row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            int x = 0;
+            for (; x + 1 < width; x += 2) {
+                long value = ((long) row[x] << 32) | (row[x + 1] & 0xFFFFFFFFL);
+                first = mix(first, value);
+                second = mix(second, value);
+            }
+
+            if (x < width) {
+                first = mix(first, row[x]);
+                second = mix(second, row[x]);
+            }
+        }
+
+        return new long[]{finish(first), finish(second)};
+    }
+
+}
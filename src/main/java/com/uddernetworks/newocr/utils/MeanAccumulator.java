@@ -0,0 +1,139 @@
+package com.uddernetworks.newocr.utils;
+
+/**
+ * A running average and variance of values that does not store the values themselves, and may be merged with other
+ * {@link MeanAccumulator}s that were filled separately, such as from different threads. The sum is compensated to keep
+ * precision over many values, and the variance is computed via Welford's algorithm.
+ *
+ * @author Adam Yarris
+ * @version 2.0.0
+ * @since April 25, 2019
+ */
+public class MeanAccumulator {
+
+    private long count;
+    private double sum;
+    private double compensation;
+    private double welfordMean;
+    private double squaredDistances;
+
+    /**
+     * Adds a value to be averaged.
+     *
+     * @param value The value to add
+     */
+    public void add(double value) {
+        this.count++;
+        addToSum(value);
+
+        double delta = value - this.welfordMean;
+        this.welfordMean += delta / this.count;
+        this.squaredDistances += delta * (value - this.welfordMean);
+    }
+
+    /**
+     * Removes a value previously added by {@link #add(double)}.
+     *
+     * @param value The value to remove
+     */
+    public void remove(double value) {
+        if (this.count <= 1) {
+            reset();
+            return;
+        }
+
+        this.count--;
+        addToSum(-value);
+
+        double previousMean = this.welfordMean;
+        this.welfordMean = (previousMean * (this.count + 1) - value) / this.count;
+        this.squaredDistances = Math.max(0, this.squaredDistances - (value - this.welfordMean) * (value - previousMean));
+    }
+
+    /**
+     * Adds all the values added to the given {@link MeanAccumulator} to the current one.
+     *
+     * @param other The {@link MeanAccumulator} to merge into the current one
+     */
+    public void merge(MeanAccumulator other) {
+        if (other.count == 0) return;
+
+        long total = this.count + other.count;
+        double delta = other.welfordMean - this.welfordMean;
+
+        this.squaredDistances += other.squaredDistances + delta * delta * ((double) this.count * other.count / total);
+        this.welfordMean += delta * other.count / total;
+        this.count = total;
+
+        addToSum(other.sum);
+        addToSum(-other.compensation);
+    }
+
+    /**
+     * Removes all values added.
+     */
+    public void reset() {
+        this.count = 0;
+        this.sum = 0;
+        this.compensation = 0;
+        this.welfordMean = 0;
+        this.squaredDistances = 0;
+    }
+
+    /**
+     * Gets the amount of values added.
+     *
+     * @return The amount of values added
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Gets if no values have been added.
+     *
+     * @return If no values have been added
+     */
+    public boolean isEmpty() {
+        return this.count == 0;
+    }
+
+    /**
+     * Gets the sum of all the values added.
+     *
+     * @return The sum of all values added
+     */
+    public double getSum() {
+        return this.sum;
+    }
+
+    /**
+     * Gets the average of all the values added.
+     *
+     * @return The average of all values added, or 0 if none have been added
+     */
+    public double getMean() {
+        return this.count == 0 ? 0 : this.sum / this.count;
+    }
+
+    /**
+     * Gets the population variance of all the values added.
+     *
+     * @return The variance of all values added, or 0 if none have been added
+     */
+    public double getVariance() {
+        return this.count == 0 ? 0 : this.squaredDistances / this.count;
+    }
+
+    /**
+     * Adds a value to the compensated sum.
+     *
+     * @param value The value to add
+     */
+    private void addToSum(double value) {
+        double corrected = value - this.compensation;
+        double newSum = this.sum + corrected;
+        this.compensation = (newSum - this.sum) - corrected;
+        this.sum = newSum;
+    }
+}
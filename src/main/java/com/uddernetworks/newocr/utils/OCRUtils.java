@@ -92,12 +92,37 @@ public class OCRUtils {
         var res = 0D;
 
         for (int i = 0; i < input1.length; i++) {
-            res += Math.pow(input1[i] - input2[i], 2);
+            double difference = input1[i] - input2[i];
+            res += difference * difference;
         }
 
         return OptionalDouble.of(res);
     }
 
+    /**
+     * Gets the sum of the squared differences of a range of the input and a range of the data, starting at the given
+     * value and stopping once the sum is over the bound.
+     *
+     * @param input       The array containing the range of values to compare
+     * @param inputOffset The index of the range in the input
+     * @param data        The array containing the range of values to compare against
+     * @param dataOffset  The index of the range in the data
+     * @param length      The length of both ranges
+     * @param start       The value to start the sum at
+     * @param bound       The value at which the sum is abandoned
+     * @return The sum, or a partial sum over the bound if it was abandoned
+     */
+    public static double getDifferencesFrom(double[] input, int inputOffset, double[] data, int dataOffset, int length, double start, double bound) {
+        var res = start;
+
+        for (int i = 0; i < length && res <= bound; i++) {
+            double difference = input[inputOffset + i] - data[dataOffset + i];
+            res += difference * difference;
+        }
+
+        return res;
+    }
+
     /**
      * Gets if a given number is within two bounds.
      *
@@ -126,22 +151,55 @@ public class OCRUtils {
 
     /**
      * Populates a boolean 2D array with the same dimensions as the input image where each pixel is represented by a
-     * boolean value, black being `true`, white being `false`.
+     * boolean value, black being `true`, white being `false`. The amount of black pixels in every row is counted at the
+     * same time, giving the row projection profile of the image.
      *
      * @param input  The input image
      * @param values The mutable empty grid
+     * @return The amount of black pixels in each row, indexed by the Y coordinate
      */
-    public static void toGrid(BufferedImage input, boolean[][] values) {
-        int arrX = 0;
-        int arrY = 0;
-        for (int y = 0; y < input.getHeight(); y++) {
-            for (int x = 0; x < input.getWidth(); x++) {
-                values[arrY][arrX++] = new Color(input.getRGB(x, y)).equals(Color.BLACK);
+    public static int[] toGrid(BufferedImage input, boolean[][] values) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        var rowProfile = new int[height];
+        var row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            input.getRGB(0, y, width, 1, row, 0, width);
+
+            int count = 0;
+            for (int x = 0; x < width; x++) {
+                // Alpha is ignored, the same as comparing a new Color(rgb) to Color.BLACK
+                boolean black = (row[x] & 0xFFFFFF) == 0;
+                values[y][x] = black;
+                if (black) count++;
+            }
+
+            rowProfile[y] = count;
+        }
+
+        return rowProfile;
+    }
+
+    /**
+     * Counts the amount of `true` (Black) values in every row of the given grid, giving its row projection profile.
+     *
+     * @param values The grid of image values
+     * @return The amount of black pixels in each row, indexed by the Y coordinate
+     */
+    public static int[] getRowProfile(boolean[][] values) {
+        var rowProfile = new int[values.length];
+
+        for (int y = 0; y < values.length; y++) {
+            int count = 0;
+            for (boolean value : values[y]) {
+                if (value) count++;
             }
 
-            arrX = 0;
-            arrY++;
+            rowProfile[y] = count;
         }
+
+        return rowProfile;
     }
 
     /**
@@ -159,6 +217,69 @@ public class OCRUtils {
         return false;
     }
 
+    /**
+     * Gets the row projection profiles of vertical strips of the given image, counting the pixels that
+     * {@link #isBlack(BufferedImage, int, int)} would consider black without binarizing the image. Anything spanning
+     * the height of the image, such as a border, only affects the strips it is in.
+     *
+     * @param image  The image
+     * @param strips The amount of strips of equal width to split the image into
+     * @return The amount of black pixels in each row of each strip, indexed by the strip and then the Y coordinate
+     */
+    public static int[][] getStripRowProfiles(BufferedImage image, int strips) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        strips = Math.max(1, Math.min(strips, width));
+
+        var profiles = new int[strips][height];
+        var row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int sum = ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF);
+                if (sum / 3D < 255 * 0.75) profiles[(int) ((long) x * strips / width)][y]++;
+            }
+        }
+
+        return profiles;
+    }
+
+    /**
+     * Scales down the given image, halving it with bilinear interpolation until the last step so thin strokes are
+     * averaged rather than skipped.
+     *
+     * @param image The image to scale
+     * @param scale The scale, from 0 exclusive to 1 inclusive
+     * @return The scaled image, or the given image if the scale is 1 or more
+     */
+    public static BufferedImage scaleDown(BufferedImage image, double scale) {
+        if (scale >= 1) return image;
+
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        var current = image;
+
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+
+            var scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            var graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = scaled;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+
+        return current;
+    }
+
     /**
      * Binarizes the input image, making all pixels wither black or white with an alpha of 255
      *
@@ -201,4 +201,224 @@ public class SegmentationUtils {
         return ret;
     }
 
+    /**
+     * Computes all 17 segment percentages of a grid in a single pass over its values, writing them directly into the
+     * given array. The first 8 values are identical to splitting the grid via {@link #getHorizontalHalf(boolean[][])}
+     * and {@link #getVerticalHalf(boolean[][])} and then splitting each quarter via
+     * {@link #getDiagonal(boolean[][], boolean)}, and the last 9 are identical to splitting the grid via
+     * {@link #getHorizontalThird(boolean[][])} and {@link #getVerticalThird(boolean[][])}. No intermediate grids or
+     * segments are created.
+     *
+     * @param values             The grid to compute the segments of
+     * @param segmentPercentages The array with a length of 17 to write the percentages to
+     */
+    public static void getSegmentPercentages(boolean[][] values, double[] segmentPercentages) {
+        int height = values.length;
+        int width = height == 0 ? 0 : values[0].length;
+
+        var trues = new int[8 + 9];
+        var sizes = new int[8 + 9];
+
+        int topHeight = height / 2;
+        int leftWidth = width / 2;
+        int topThird = height / 3;
+        int middleThird = height - topThird * 2;
+        int leftThird = width / 3;
+        int centerThird = width - leftThird * 2;
+
+        var diagonals = getDiagonalPositions(height, width, sizes);
+        getThirdSizes(height, width, sizes);
+
+        for (int y = 0; y < height; y++) {
+            var line = values[y];
+            var top = y < topHeight;
+            int quarterY = top ? y : y - topHeight;
+            int diagonalOffset = top ? 0 : width;
+            int quarterOffset = top ? 0 : 4;
+            int thirdOffset = 8 + (y < topThird ? 0 : y < topThird + middleThird ? 3 : 6);
+
+            for (int x = 0; x < width; x++) {
+                if (!line[x]) continue;
+
+                int quarter = quarterOffset + (x < leftWidth ? 0 : 2);
+                trues[quarter + (quarterY < diagonals[diagonalOffset + x] ? 1 : 0)]++;
+                trues[thirdOffset + (x < leftThird ? 0 : x < leftThird + centerThird ? 1 : 2)]++;
+            }
+        }
+
+        toPercentages(trues, sizes, segmentPercentages);
+    }
+
+    /**
+     * Computes the same 17 segment percentages as {@link #getSegmentPercentages(boolean[][], double[])}, but by first
+     * building an integral image (Summed-area table) of the grid. After the table is built, each of the 9 grid cells
+     * of the thirds is counted with a single lookup, and each column of a diagonal quarter is counted with a single
+     * lookup, rather than visiting every pixel of every region. This is preferable for large characters, such as the
+     * ones from high font sizes in training.
+     *
+     * @param values             The grid to compute the segments of
+     * @param segmentPercentages The array with a length of 17 to write the percentages to
+     */
+    public static void getIntegralSegmentPercentages(boolean[][] values, double[] segmentPercentages) {
+        int height = values.length;
+        int width = height == 0 ? 0 : values[0].length;
+
+        var trues = new int[8 + 9];
+        var sizes = new int[8 + 9];
+
+        var diagonals = getDiagonalPositions(height, width, sizes);
+        getThirdSizes(height, width, sizes);
+
+        // Each row has an extra leading column and there is an extra leading row, all 0, to avoid bounds checks
+        int stride = width + 1;
+        var integral = new int[(height + 1) * stride];
+
+        for (int y = 0; y < height; y++) {
+            var line = values[y];
+            int rowSum = 0;
+            int index = (y + 1) * stride + 1;
+
+            for (int x = 0; x < width; x++) {
+                if (line[x]) rowSum++;
+                integral[index + x] = integral[index + x - stride] + rowSum;
+            }
+        }
+
+        int topHeight = height / 2;
+        int leftWidth = width / 2;
+
+        for (int quarter = 0; quarter < 4; quarter++) {
+            var top = quarter < 2;
+            var left = quarter % 2 == 0;
+            int startY = top ? 0 : topHeight;
+            int endY = top ? topHeight : height;
+            int startX = left ? 0 : leftWidth;
+            int endX = left ? leftWidth : width;
+            int diagonalOffset = top ? 0 : width;
+
+            for (int x = startX; x < endX; x++) {
+                int splitY = startY + diagonals[diagonalOffset + x];
+                int below = countRegion(integral, stride, x, startY, x + 1, splitY);
+                trues[quarter * 2 + 1] += below;
+                trues[quarter * 2] += countRegion(integral, stride, x, startY, x + 1, endY) - below;
+            }
+        }
+
+        int topThird = height / 3;
+        int leftThird = width / 3;
+        var rows = new int[]{0, topThird, height - topThird, height};
+        var columns = new int[]{0, leftThird, width - leftThird, width};
+
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                trues[8 + row * 3 + column] = countRegion(integral, stride, columns[column], rows[row], columns[column + 1], rows[row + 1]);
+            }
+        }
+
+        toPercentages(trues, sizes, segmentPercentages);
+    }
+
+    /**
+     * Counts the amount of `true` values in a rectangular region of a grid from its integral image.
+     *
+     * @param integral The integral image, with a leading row and column of 0s
+     * @param stride   The width of a row in the integral image
+     * @param fromX    The inclusive starting X of the region
+     * @param fromY    The inclusive starting Y of the region
+     * @param toX      The exclusive ending X of the region
+     * @param toY      The exclusive ending Y of the region
+     * @return The amount of `true` values in the region
+     */
+    private static int countRegion(int[] integral, int stride, int fromX, int fromY, int toX, int toY) {
+        return integral[toY * stride + toX]
+                - integral[fromY * stride + toX]
+                - integral[toY * stride + fromX]
+                + integral[fromY * stride + fromX];
+    }
+
+    /**
+     * Gets the Y position of the diagonal line for every column of the 4 quarters of a grid, relative to the top of
+     * the column's quarter, and adds the sizes of each half of the quarters to the first 8 values of the given sizes.
+     * The quarters are top left, top right, bottom left, and bottom right, in that order. Only the top left quarter
+     * uses a decreasing line, to match how sections have always been applied in
+     * {@link com.uddernetworks.newocr.character.SearchCharacter#applySections()}.
+     *
+     * @param height The height of the grid
+     * @param width  The width of the grid
+     * @param sizes  The sizes of each segment to add to
+     * @return The diagonal Y positions, being the top half's columns followed by the bottom half's columns
+     */
+    private static int[] getDiagonalPositions(int height, int width, int[] sizes) {
+        int topHeight = height / 2;
+        int leftWidth = width / 2;
+
+        var diagonals = new int[width * 2];
+
+        for (int quarter = 0; quarter < 4; quarter++) {
+            var top = quarter < 2;
+            var left = quarter % 2 == 0;
+            int quarterHeight = top ? topHeight : height - topHeight;
+            int quarterWidth = left ? leftWidth : width - leftWidth;
+            int offset = (top ? 0 : width) + (left ? 0 : leftWidth);
+
+            if (quarterHeight == 0 || quarterWidth == 0) continue;
+
+            double slope = (double) quarterHeight / (double) quarterWidth;
+
+            for (int x = 0; x < quarterWidth; x++) {
+                double y = slope * x;
+
+                if (quarter != 0) {
+                    y = quarterHeight - y;
+                }
+
+                int yPos = Math.min((int) y, quarterHeight);
+                diagonals[offset + x] = yPos;
+                sizes[quarter * 2] += quarterHeight - yPos;
+                sizes[quarter * 2 + 1] += yPos;
+            }
+        }
+
+        return diagonals;
+    }
+
+    /**
+     * Sets the sizes of the 9 grid cells created by splitting a grid in thirds both horizontally and vertically to the
+     * last 9 values of the given sizes.
+     *
+     * @param height The height of the grid
+     * @param width  The width of the grid
+     * @param sizes  The sizes of each segment to set
+     */
+    private static void getThirdSizes(int height, int width, int[] sizes) {
+        int topThird = height / 3;
+        int leftThird = width / 3;
+
+        var thirdHeights = new int[]{topThird, height - topThird * 2, topThird};
+        var thirdWidths = new int[]{leftThird, width - leftThird * 2, leftThird};
+
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                sizes[8 + row * 3 + column] = thirdHeights[row] * thirdWidths[column];
+            }
+        }
+    }
+
+    /**
+     * Converts the amount of `true` values and the size of each segment into percentages, where an empty segment is
+     * considered full.
+     *
+     * @param trues              The amount of `true` values in each segment
+     * @param sizes              The size of each segment
+     * @param segmentPercentages The array to write the percentages to
+     */
+    private static void toPercentages(int[] trues, int[] sizes, double[] segmentPercentages) {
+        for (int i = 0; i < trues.length; i++) {
+            double amountTrue = trues[i];
+            double total = sizes[i];
+
+            segmentPercentages[i] = total == 0 ? 1 : amountTrue / total;
+        }
+    }
+
 }
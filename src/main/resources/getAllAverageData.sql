@@ -0,0 +1 @@
+SELECT name, AVG(value) FROM data GROUP BY name;
\ No newline at end of file
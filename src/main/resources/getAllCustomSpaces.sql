@@ -0,0 +1 @@
+SELECT letter, value FROM customSpaces;
\ No newline at end of file
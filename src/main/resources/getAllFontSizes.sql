@@ -0,0 +1 @@
+SELECT letter, modifier, value FROM fontSize;
\ No newline at end of file
@@ -1 +0,0 @@
-SELECT value FROM customSpaces WHERE letter = ?;
\ No newline at end of file
@@ -1 +0,0 @@
-SELECT value FROM fontSize WHERE letter = ? AND modifier = ?;
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.uddernetworks.newocr.detection;
+
+import com.uddernetworks.newocr.train.OCROptions;
+import com.uddernetworks.newocr.utils.IntPair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NonTextComponentFilterTest {
+
+    private static final int BODY_HEIGHT = 12;
+
+    @Test
+    public void disabledByDefault() {
+        assertFalse(new OCROptions().isNonTextRejection());
+    }
+
+    @Test
+    public void keepsHeadingAndBody() {
+        var page = new Page(3);
+        var filter = NonTextComponentFilter.of(page.getComponents());
+
+        assertEquals(BODY_HEIGHT, ((NonTextComponentFilter) filter).getTextHeight());
+        page.body.forEach(component -> assertTrue(filter.accept(component, 0), "Body text dropped"));
+        page.heading.forEach(component -> assertTrue(filter.accept(component, 0), "Heading dropped"));
+        assertFalse(filter.accept(page.rule, 0), "Table rule kept");
+        assertFalse(filter.accept(page.picture, 0), "Picture kept");
+    }
+
+    @Test
+    public void keepsThinCharactersInLines() {
+        var page = new Page(3);
+        int lineTop = page.bodyTop + 2 * 20;
+        var underscores = Page.createRectangle(0, lineTop + BODY_HEIGHT + 1, 80, 1);
+        var separator = List.of(Page.createRectangle(100, lineTop + 4, 60, 2), Page.createRectangle(100, lineTop + 8, 60, 2));
+        var boxLine = Page.createRectangle(200, lineTop + BODY_HEIGHT / 2, 200, 1);
+        var betweenLines = Page.createRectangle(0, lineTop + BODY_HEIGHT + BODY_HEIGHT / 2, 400, 2);
+
+        var components = page.getComponents();
+        components.addAll(List.of(underscores, boxLine, betweenLines));
+        components.addAll(separator);
+        var filter = NonTextComponentFilter.of(components);
+
+        assertTrue(filter.accept(underscores, 0), "Underscores dropped");
+        separator.forEach(component -> assertTrue(filter.accept(component, 0), "Separator dropped"));
+        assertTrue(filter.accept(boxLine, 0), "Box-drawing line dropped");
+        assertFalse(filter.accept(betweenLines, 0), "Rule between lines kept");
+        assertFalse(filter.accept(page.rule, 0), "Table rule kept");
+    }
+
+    @Test
+    public void dropsOversizedTitle() {
+        // Text over MAX_SIZE_RATIO times the body text can't be told apart from a border, which is why this is opt-in
+        var page = new Page(5);
+        var filter = NonTextComponentFilter.of(page.getComponents());
+
+        page.body.forEach(component -> assertTrue(filter.accept(component, 0), "Body text dropped"));
+        page.heading.forEach(component -> assertFalse(filter.accept(component, 0), "Title kept"));
+    }
+
+    /**
+     * A page with a heading over lines of body text, a table rule and a picture, with letters drawn as outlines.
+     */
+    private static class Page {
+        private final List<ConnectedComponent> body = new ArrayList<>();
+        private final List<ConnectedComponent> heading = new ArrayList<>();
+        private final ConnectedComponent rule;
+        private final ConnectedComponent picture;
+        private final int bodyTop;
+
+        private Page(int headingScale) {
+            int headingHeight = BODY_HEIGHT * headingScale;
+            for (int i = 0; i < 8; i++) {
+                this.heading.add(createOutline(i * headingHeight, 0, headingHeight * 2 / 3, headingHeight, headingScale));
+            }
+
+            int top = headingHeight + 20;
+            this.bodyTop = top;
+            for (int line = 0; line < 10; line++) {
+                for (int i = 0; i < 40; i++) {
+                    this.body.add(createOutline(i * 10, top + line * 20, 8, BODY_HEIGHT, 1));
+                }
+            }
+
+            this.rule = createRectangle(0, top - 10, 400, 2);
+            this.picture = createRectangle(420, top, 60, 60);
+        }
+
+        private List<ConnectedComponent> getComponents() {
+            var components = new ArrayList<ConnectedComponent>(this.body);
+            components.addAll(this.heading);
+            components.add(this.rule);
+            components.add(this.picture);
+            return components;
+        }
+
+        private static ConnectedComponent createOutline(int x, int y, int width, int height, int stroke) {
+            var coordinates = new ArrayList<IntPair>();
+            for (int dy = 0; dy < height; dy++) {
+                for (int dx = 0; dx < width; dx++) {
+                    if (dy < stroke || dy >= height - stroke || dx < stroke || dx >= width - stroke) {
+                        coordinates.add(new IntPair(x + dx, y + dy));
+                    }
+                }
+            }
+
+            return new ConnectedComponent(coordinates);
+        }
+
+        private static ConnectedComponent createRectangle(int x, int y, int width, int height) {
+            return createOutline(x, y, width, height, Math.max(width, height));
+        }
+    }
+}
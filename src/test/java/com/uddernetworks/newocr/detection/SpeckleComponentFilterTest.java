@@ -0,0 +1,78 @@
+package com.uddernetworks.newocr.detection;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.similarity.rules.DotSimilarityRule;
+import com.uddernetworks.newocr.train.OCROptions;
+import com.uddernetworks.newocr.utils.IntPair;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpeckleComponentFilterTest {
+
+    private static final double TOLERANCE = 0.5;
+    private static final int TRAINED_LINE_HEIGHT = 40;
+
+    private final ModelSnapshot snapshot = new ModelSnapshot(1, true, List.of(
+            createCharacter(' ', 0, 12, TRAINED_LINE_HEIGHT),
+            createCharacter('.', 0, 5, 5),
+            createCharacter('i', 0, 4, 4),
+            createCharacter(':', 0, 5, 5),
+            createCharacter('l', 0, 4, 28)
+    ), new Int2DoubleOpenHashMap(), new Int2DoubleOpenHashMap());
+
+    @Test
+    public void disabledByDefault() {
+        assertEquals(0, new OCROptions().getSpeckleTolerance());
+    }
+
+    @Test
+    public void keepsDotsAtDocumentedTolerance() {
+        var filter = SpeckleComponentFilter.of(this.snapshot, new DotSimilarityRule(), TOLERANCE, 0);
+
+        // Text as large as it was trained, and text scanned at half that size
+        for (int lineHeight : new int[]{TRAINED_LINE_HEIGHT, TRAINED_LINE_HEIGHT / 2}) {
+            int scale = TRAINED_LINE_HEIGHT / lineHeight;
+            assertTrue(filter.accept(createComponent(5 / scale, 5 / scale), lineHeight), "Period dropped at line height " + lineHeight);
+            assertTrue(filter.accept(createComponent(4 / scale, 4 / scale), lineHeight), "i dot dropped at line height " + lineHeight);
+            assertTrue(filter.accept(createComponent(4 / scale, 28 / scale), lineHeight), "l dropped at line height " + lineHeight);
+        }
+
+        // Dots rendered thinner than trained, as antialiasing may leave them
+        assertTrue(filter.accept(createComponent(2, 3), TRAINED_LINE_HEIGHT));
+    }
+
+    @Test
+    public void dropsSpeckles() {
+        var filter = SpeckleComponentFilter.of(this.snapshot, new DotSimilarityRule(), TOLERANCE, 0);
+        assertFalse(filter.accept(createComponent(1, 1), TRAINED_LINE_HEIGHT));
+    }
+
+    @Test
+    public void zeroToleranceKeepsEverything() {
+        var filter = SpeckleComponentFilter.of(this.snapshot, new DotSimilarityRule(), 0, 0);
+        assertTrue(filter.accept(createComponent(1, 1), TRAINED_LINE_HEIGHT));
+    }
+
+    private static DatabaseCharacter createCharacter(char letter, int modifier, double width, double height) {
+        var character = new DatabaseCharacter(letter, modifier);
+        character.setData(width, height, 0, 0);
+        return character;
+    }
+
+    private static ConnectedComponent createComponent(int width, int height) {
+        var coordinates = new ArrayList<IntPair>(width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) coordinates.add(new IntPair(x, y));
+        }
+
+        return new ConnectedComponent(coordinates);
+    }
+}
@@ -0,0 +1,178 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.DatabaseCharacter;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CandidateIndexTest {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(CandidateIndexTest.class);
+    private static final int DIMENSIONS = 17;
+    private static final int QUERIES = 5_000;
+    private static final int LIMIT = 9;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void matchesExhaustiveSearch() {
+        for (int treeThreshold : new int[]{Integer.MAX_VALUE, 0}) {
+            for (int limit : new int[]{LIMIT, 1_000}) {
+                var random = new Random(limit);
+                var characters = createCharacters(1_000, random);
+                var queries = createQueries(characters, 300, random);
+                var index = CandidateIndex.of(characters, treeThreshold);
+                var matches = queries.find(index, limit);
+
+                assertEquals(treeThreshold == 0, index.hasTree());
+                for (int i = 0; i < queries.inputs.length; i++) {
+                    assertArrayEquals(findExhaustive(index, queries, i, limit), getIndices(matches, i), "Query " + i + (index.hasTree() ? " with a tree" : ""));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void treeOnlyForLargeModels() {
+        var random = new Random(0);
+        assertFalse(CandidateIndex.of(createCharacters(CandidateIndex.TREE_THRESHOLD - 1, random)).hasTree());
+        assertTrue(CandidateIndex.of(createCharacters(CandidateIndex.TREE_THRESHOLD, random)).hasTree());
+    }
+
+    @Tag("benchmark")
+    @ParameterizedTest
+    @ValueSource(ints = {100, 1_000, 10_000})
+    public void benchmark(int classes) {
+        var random = new Random(classes);
+        var characters = createCharacters(classes, random);
+        var queries = createQueries(characters, QUERIES, random);
+        var bruteForce = CandidateIndex.of(characters, Integer.MAX_VALUE);
+        var tree = CandidateIndex.of(characters, 0);
+
+        long bruteTime = time(() -> queries.find(bruteForce, LIMIT));
+        long treeTime = time(() -> queries.find(tree, LIMIT));
+
+        LOGGER.info("{} classes: brute force {}ns/glyph, tree {}ns/glyph", classes, bruteTime / QUERIES, treeTime / QUERIES);
+    }
+
+    /**
+     * Finds the closest characters of a query by computing the whole difference of every character, with the segments
+     * summed in the same order as the index so both differences are equal.
+     */
+    private int[] findExhaustive(CandidateIndex index, Queries queries, int query, int limit) {
+        var input = queries.inputs[query];
+        var dimensionOrder = index.getDimensionOrder();
+        var differences = new double[index.size()];
+        var order = new int[index.size()];
+
+        for (int i = 0; i < index.size(); i++) {
+            var data = index.getCharacter(i).getData();
+            double ratioDifference = index.getRatio(i) - queries.searchRatios[query];
+            double difference = 0;
+            for (int dimension : dimensionOrder) {
+                double segmentDifference = input[dimension] - data[dimension];
+                difference += segmentDifference * segmentDifference;
+            }
+
+            differences[i] = difference + ratioDifference * ratioDifference * queries.ratioWeights[i];
+            order[i] = i;
+        }
+
+        IntArrays.mergeSort(order, (first, second) -> Double.compare(differences[first], differences[second]));
+        return Arrays.copyOf(order, Math.min(limit, order.length));
+    }
+
+    /**
+     * Creates scanned characters being noisy copies of the given trained ones.
+     */
+    private Queries createQueries(List<DatabaseCharacter> characters, int amount, Random random) {
+        var queries = new Queries(amount, characters.size());
+        for (int i = 0; i < amount; i++) {
+            var character = characters.get(random.nextInt(characters.size()));
+            queries.inputs[i] = character.getData().clone();
+            for (int j = 0; j < DIMENSIONS; j++) queries.inputs[i][j] = clamp(queries.inputs[i][j] + random.nextGaussian() * 0.03);
+            queries.searchRatios[i] = character.getAvgWidth() / character.getAvgHeight() + random.nextGaussian() * 0.05;
+        }
+
+        return queries;
+    }
+
+    /**
+     * Creates characters in groups of about 10 similar shapes, like accented letters or box-drawing characters of the
+     * same stroke, with the width/height ratio being part of the shape.
+     */
+    private List<DatabaseCharacter> createCharacters(int classes, Random random) {
+        var characters = new ArrayList<DatabaseCharacter>(classes);
+
+        var prototypes = new double[Math.max(1, classes / 10)][DIMENSIONS + 1];
+        for (var prototype : prototypes) {
+            for (int j = 0; j < DIMENSIONS; j++) prototype[j] = random.nextDouble();
+            prototype[DIMENSIONS] = 0.3 + random.nextDouble() * 1.2;
+        }
+
+        for (int i = 0; i < classes; i++) {
+            var character = new DatabaseCharacter((char) (0x100 + i));
+            var prototype = prototypes[random.nextInt(prototypes.length)];
+            for (int j = 0; j < DIMENSIONS; j++) character.addDataPoint(j, clamp(prototype[j] + random.nextGaussian() * 0.08));
+
+            double height = 10 + random.nextDouble() * 20;
+            character.setData(height * (prototype[DIMENSIONS] + random.nextGaussian() * 0.05), height, 0, 0);
+            characters.add(character);
+        }
+
+        return characters;
+    }
+
+    private int[] getIndices(CandidateMatches matches, int glyph) {
+        var indices = new int[matches.getCount(glyph)];
+        for (int i = 0; i < indices.length; i++) indices[i] = matches.getIndex(glyph, i);
+        return indices;
+    }
+
+    private long time(Runnable runnable) {
+        runnable.run();
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            runnable.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        return best;
+    }
+
+    private double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private static class Queries {
+        private final double[][] inputs;
+        private final double[] searchRatios;
+        private final double[] ratioWeights;
+
+        private Queries(int amount, int classes) {
+            this.inputs = new double[amount][];
+            this.searchRatios = new double[amount];
+            this.ratioWeights = new double[classes];
+            Arrays.fill(this.ratioWeights, 4);
+        }
+
+        private CandidateMatches find(CandidateIndex index, int limit) {
+            return index.findClosest(this.inputs, this.searchRatios, this.ratioWeights, limit);
+        }
+    }
+}
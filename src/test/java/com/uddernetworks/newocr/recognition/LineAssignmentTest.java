@@ -0,0 +1,123 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.SearchCharacter;
+import com.uddernetworks.newocr.utils.IntPair;
+import com.uddernetworks.newocr.utils.OCRUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class LineAssignmentTest {
+
+    @Test
+    public void matchesPerLineAssignment() {
+        var random = new Random(1);
+
+        for (int page = 0; page < 50; page++) {
+            var lineBounds = createLineBounds(random, 1 + random.nextInt(60));
+            var searchCharacters = createSearchCharacters(random, 1 + random.nextInt(2000), lineBounds);
+
+            var expected = assignPerLine(searchCharacters, lineBounds);
+            var actual = OCRScan.assignLines(searchCharacters, lineBounds);
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).size(), actual.get(i).size(), "Line " + i + " of page " + page);
+                for (int j = 0; j < expected.get(i).size(); j++) {
+                    assertSame(expected.get(i).get(j), actual.get(i).get(j), "Line " + i + " of page " + page);
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns characters the way lines were originally walked, each line taking every remaining character with its
+     * center in the line's bounds.
+     */
+    private List<List<SearchCharacter>> assignPerLine(List<SearchCharacter> searchCharacters, List<IntPair> lineBounds) {
+        var remaining = new ArrayList<>(searchCharacters);
+        var lines = new ArrayList<List<SearchCharacter>>();
+
+        for (var bounds : lineBounds) {
+            var line = new ArrayList<SearchCharacter>();
+            remaining.removeIf(searchCharacter -> {
+                var center = searchCharacter.getY() + ((double) searchCharacter.getHeight() / 2);
+                if (!OCRUtils.isWithin(bounds.getKey(), bounds.getValue(), center)) return false;
+                line.add(searchCharacter);
+                return true;
+            });
+
+            lines.add(line);
+        }
+
+        return lines;
+    }
+
+    /**
+     * Creates lines down a page with gaps between them, some overlapping their neighbours or lying inside another, and
+     * shuffles their priority.
+     */
+    private List<IntPair> createLineBounds(Random random, int amount) {
+        var lineBounds = new ArrayList<IntPair>(amount);
+        int top = random.nextInt(10);
+
+        for (int i = 0; i < amount; i++) {
+            int height = 5 + random.nextInt(30);
+            switch (random.nextInt(4)) {
+                case 0:
+                    // Overlapping the previous line
+                    lineBounds.add(new IntPair(Math.max(0, top - height / 2), top + height / 2));
+                    break;
+                case 1:
+                    // Inside of a larger line
+                    lineBounds.add(new IntPair(top, top + height * 2));
+                    lineBounds.add(new IntPair(top + height / 2, top + height));
+                    break;
+                default:
+                    lineBounds.add(new IntPair(top, top + height));
+            }
+
+            top += height + random.nextInt(10);
+        }
+
+        Collections.shuffle(lineBounds, random);
+        return lineBounds;
+    }
+
+    /**
+     * Creates characters spread over the lines, with some centered on a line's edge and some between lines.
+     */
+    private List<SearchCharacter> createSearchCharacters(Random random, int amount, List<IntPair> lineBounds) {
+        var searchCharacters = new ArrayList<SearchCharacter>(amount);
+
+        for (int i = 0; i < amount; i++) {
+            var bounds = lineBounds.get(random.nextInt(lineBounds.size()));
+            int height = 1 + random.nextInt(12);
+            int center;
+            switch (random.nextInt(4)) {
+                case 0:
+                    center = bounds.getKey();
+                    break;
+                case 1:
+                    center = bounds.getValue() + random.nextInt(3);
+                    break;
+                default:
+                    center = bounds.getKey() + random.nextInt(bounds.getValue() - bounds.getKey() + 1);
+            }
+
+            int y = Math.max(0, center - height / 2);
+            var coordinates = new ArrayList<IntPair>(height);
+            for (int dy = 0; dy < height; dy++) coordinates.add(new IntPair(random.nextInt(1000), y + dy));
+            searchCharacters.add(new SearchCharacter(coordinates));
+        }
+
+        Collections.shuffle(searchCharacters, random);
+        return searchCharacters;
+    }
+}
@@ -0,0 +1,80 @@
+package com.uddernetworks.newocr.recognition;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.character.SearchCharacter;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.mergence.DefaultMergenceManager;
+import com.uddernetworks.newocr.recognition.similarity.DefaultSimilarityManager;
+import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
+import com.uddernetworks.newocr.train.OCROptions;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamedScanTest {
+
+    private static final int LINES = 30;
+    private static final int LETTERS = 20;
+
+    @Test
+    public void firstLineBeforeLastBand() {
+        var similarityManager = new DefaultSimilarityManager().loadDefaults();
+        var actions = new CountingActions(similarityManager);
+        var scan = new OCRScan(null, similarityManager, new DefaultMergenceManager(null, similarityManager), actions);
+        var snapshot = new ModelSnapshot(1, true, List.of(), new Int2DoubleOpenHashMap(), new Int2DoubleOpenHashMap());
+
+        var classifiedAtLine = new ArrayList<Integer>();
+        var scannedImage = scan.scanImage(new File("page.png"), createPage(), snapshot, line -> classifiedAtLine.add(actions.classified));
+
+        assertEquals(LINES, actions.classified, "Every band is classified on its own");
+        assertEquals(LINES, scannedImage.getLineCount());
+        assertEquals(LINES, classifiedAtLine.size());
+        assertTrue(classifiedAtLine.get(0) < LINES, "First line given after " + classifiedAtLine.get(0) + " bands");
+    }
+
+    /**
+     * Creates a page of lines of boxes, each box being a character.
+     */
+    private BufferedImage createPage() {
+        var image = new BufferedImage(LETTERS * 12 + 20, LINES * 24 + 20, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        graphics.setPaint(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setPaint(Color.BLACK);
+        for (int line = 0; line < LINES; line++) {
+            for (int i = 0; i < LETTERS; i++) graphics.fillRect(10 + i * 12, 10 + line * 24, 8, 12);
+        }
+
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Classifies every character as an a, counting how many times characters are classified.
+     */
+    private static class CountingActions extends OCRActions {
+        private int classified;
+
+        private CountingActions(SimilarityManager similarityManager) {
+            super(similarityManager, null, new OCROptions());
+        }
+
+        @Override
+        public List<Optional<ImageLetter>> getCharactersFor(List<SearchCharacter> searchCharacters, ModelSnapshot snapshot) {
+            this.classified++;
+            return searchCharacters.stream()
+                    .map(searchCharacter -> Optional.of(new ImageLetter('a', 0, searchCharacter.getX(), searchCharacter.getY(), searchCharacter.getWidth(), searchCharacter.getHeight(), 8, 12, 8D / 12)))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.uddernetworks.newocr.recognition.cache;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.recognition.CompactScannedImage;
+import com.uddernetworks.newocr.recognition.DefaultScannedImage;
+import com.uddernetworks.newocr.recognition.ScannedImage;
+import it.unimi.dsi.fastutil.objects.AbstractObject2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScanResultCacheTest {
+
+    private static final File FILE = new File("page.png");
+
+    @Test
+    public void compactMatchesOriginal() {
+        var scannedImage = createScannedImage();
+        var compact = CompactScannedImage.of(scannedImage, true, true);
+
+        assertEquals(describe(scannedImage), describe(compact));
+        assertEquals(scannedImage.getPrettyString(), compact.getPrettyString());
+    }
+
+    @Test
+    public void writeReadRoundTrip() throws IOException {
+        var scannedImage = createScannedImage();
+        for (boolean keepPixels : new boolean[]{false, true}) {
+            for (boolean keepAlternatives : new boolean[]{false, true}) {
+                var compact = CompactScannedImage.of(scannedImage, keepPixels, keepAlternatives);
+
+                var bytes = new ByteArrayOutputStream();
+                compact.write(new DataOutputStream(bytes));
+                var read = CompactScannedImage.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), FILE);
+
+                assertEquals(describe(compact), describe(read));
+                assertEquals(keepPixels, read.hasPixels());
+                assertEquals(keepAlternatives, read.hasAlternatives());
+            }
+        }
+
+        var withoutPixels = CompactScannedImage.of(scannedImage, false, false);
+        assertNull(withoutPixels.getImageLetter(0).getValues());
+    }
+
+    @Test
+    public void diskRoundTrip(@TempDir Path directory) {
+        var scannedImage = createScannedImage();
+        var expected = describe(scannedImage);
+
+        // Only one result fits in memory, so the first is read back from the disk
+        var cache = new ScanResultCache(1, directory.toFile(), Long.MAX_VALUE);
+        cache.put("first", CompactScannedImage.of(scannedImage, true, true));
+        cache.put("second", CompactScannedImage.of(createScannedImage(), true, true));
+
+        var first = cache.get("first", FILE).orElseThrow();
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(expected, describe(first));
+        assertEquals(FILE, first.getOriginalFile());
+
+        // Hits from memory are copies, so changing one doesn't change what is cached
+        var memoryHit = cache.get("first", FILE).orElseThrow();
+        assertEquals(1, cache.getHits());
+        assertNotSame(first, memoryHit);
+        memoryHit.stripLeadingSpaces();
+        assertEquals(expected, describe(cache.get("first", FILE).orElseThrow()));
+
+        // A new cache over the same directory finds both results, with nothing left partly written
+        var reopened = new ScanResultCache(4, directory.toFile(), Long.MAX_VALUE);
+        assertEquals(expected, describe(reopened.get("first", FILE).orElseThrow()));
+        assertTrue(reopened.get("second", FILE).isPresent());
+        assertTrue(Arrays.stream(directory.toFile().list()).noneMatch(name -> name.endsWith(".tmp")));
+    }
+
+    /**
+     * Creates a result with leading spaces, characters with and without pixels, modifiers and closest matches.
+     */
+    private ScannedImage createScannedImage() {
+        var random = new Random(1);
+        var scannedImage = new DefaultScannedImage(FILE, null, null);
+
+        for (int line = 0; line < 5; line++) {
+            int y = line * 30 + 10;
+            var letters = new ArrayList<ImageLetter>();
+            letters.add(new ImageLetter(' ', 0, 0, y, 12, 20, 12, 20, 0.6));
+
+            for (int i = 0; i < 20; i++) {
+                int width = 4 + random.nextInt(8), height = 6 + random.nextInt(14);
+                var letter = (char) ('a' + random.nextInt(26));
+                var imageLetter = new ImageLetter(letter, random.nextInt(2), 12 + i * 14, y, width, height, width, height, (double) width / height);
+
+                var values = new boolean[height][width];
+                for (var row : values) {
+                    for (int j = 0; j < width; j++) row[j] = random.nextBoolean();
+                }
+
+                imageLetter.setValues(values);
+
+                var closestMatches = new ArrayList<Object2DoubleMap.Entry<ImageLetter>>();
+                for (int j = 0; j < random.nextInt(4); j++) {
+                    var match = new ImageLetter((char) ('A' + random.nextInt(26)), j, 0, 0, width, height, width, height, 1);
+                    closestMatches.add(new AbstractObject2DoubleMap.BasicEntry<>(match, random.nextDouble()));
+                }
+
+                imageLetter.setClosestMatches(closestMatches);
+                letters.add(imageLetter);
+            }
+
+            scannedImage.addLine(y, letters);
+        }
+
+        return scannedImage;
+    }
+
+    private List<String> describe(ScannedImage scannedImage) {
+        return scannedImage.getGrid().int2ObjectEntrySet().stream()
+                .map(entry -> entry.getIntKey() + ": " + entry.getValue().stream().map(this::describe).collect(Collectors.joining(" ")))
+                .collect(Collectors.toList());
+    }
+
+    private String describe(ImageLetter imageLetter) {
+        var closestMatches = imageLetter.getClosestMatches() == null ? "" : imageLetter.getClosestMatches().stream()
+                .map(entry -> entry.getKey().getLetter() + "" + entry.getKey().getModifier() + "=" + entry.getDoubleValue())
+                .collect(Collectors.joining(","));
+
+        return imageLetter.getLetter() + "" + imageLetter.getModifier() + "@" + imageLetter.getX() + "," + imageLetter.getY()
+                + "/" + imageLetter.getWidth() + "x" + imageLetter.getHeight()
+                + Arrays.deepToString(imageLetter.getValues()) + "[" + closestMatches + "]";
+    }
+}
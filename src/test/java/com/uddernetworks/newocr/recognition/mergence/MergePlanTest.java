@@ -0,0 +1,64 @@
+package com.uddernetworks.newocr.recognition.mergence;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.mergence.rules.EqualVerticalMergeRule;
+import com.uddernetworks.newocr.recognition.similarity.DefaultSimilarityManager;
+import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
+import com.uddernetworks.newocr.utils.IntPair;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MergePlanTest {
+
+    private final SimilarityManager similarityManager = new DefaultSimilarityManager().loadDefaults();
+
+    @Test
+    public void compiledForEachModel() {
+        var mergenceManager = new DefaultMergenceManager(null, this.similarityManager);
+        mergenceManager.loadDefaults();
+
+        // A colon's dots are 2 dot heights apart in the first model, which is the gap of the colon merged below
+        var plan = mergenceManager.getMergePlan(this.similarityManager, createSnapshot(1, 2));
+        assertTrue(mergesColon(plan));
+
+        // Publishing the same data again keeps the plan
+        assertSame(plan, mergenceManager.getMergePlan(this.similarityManager, createSnapshot(2, 2)));
+
+        // A retrained model gets its own thresholds, while scans still holding the old plan are unaffected
+        var retrained = mergenceManager.getMergePlan(this.similarityManager, createSnapshot(3, 0.5));
+        assertNotSame(plan, retrained);
+        assertFalse(mergesColon(retrained));
+        assertTrue(mergesColon(plan));
+    }
+
+    private boolean mergesColon(MergePlan plan) {
+        var rule = plan.getRules().stream().filter(EqualVerticalMergeRule.class::isInstance).findFirst().orElseThrow();
+        var column = List.of(createDot(0), createDot(9));
+        return rule.mergeCharacters(column.get(0), 0, LetterView.of(column)).isPresent();
+    }
+
+    private ModelSnapshot createSnapshot(long version, double colonDistance) {
+        var averagedData = new Object2DoubleOpenHashMap<String>();
+        averagedData.put("colonDistance", colonDistance);
+        return new ModelSnapshot(version, true, List.of(), new Int2DoubleOpenHashMap(), new Int2DoubleOpenHashMap(), averagedData);
+    }
+
+    private ImageLetter createDot(int y) {
+        var coordinates = new ArrayList<IntPair>();
+        for (int dy = 0; dy < 3; dy++) {
+            for (int dx = 0; dx < 3; dx++) coordinates.add(new IntPair(dx, y + dy));
+        }
+
+        return new ImageLetter('.', 0, 0, y, 3, 3, 3, 3, 1, coordinates);
+    }
+}
@@ -0,0 +1,305 @@
+package com.uddernetworks.newocr.recognition.mergence;
+
+import com.uddernetworks.newocr.character.ImageLetter;
+import com.uddernetworks.newocr.database.DatabaseManager;
+import com.uddernetworks.newocr.database.ModelSnapshot;
+import com.uddernetworks.newocr.recognition.similarity.DefaultSimilarityManager;
+import com.uddernetworks.newocr.recognition.similarity.SimilarityManager;
+import com.uddernetworks.newocr.utils.IntPair;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelMergenceTest {
+
+    private static final int LINES = 40;
+    private static final int LETTERS = 60;
+    private static final int LINE_HEIGHT = 30;
+    private static final int RUNS = 5;
+    private static final ModelSnapshot SNAPSHOT = new ModelSnapshot(1, true, List.of(), new Int2DoubleOpenHashMap(), new Int2DoubleOpenHashMap());
+
+    private final SimilarityManager similarityManager = new DefaultSimilarityManager().loadDefaults();
+
+    @Test
+    public void parallelMatchesSequential() {
+        var sequential = createManager(false);
+        var expectedPage = new Page(1);
+        var expectedRemoved = sequential.merge(new ArrayList<>(expectedPage.lines.values()), sequential.getMergePlan(this.similarityManager, SNAPSHOT));
+        var expectedLetters = describeRemoved(expectedPage, expectedRemoved);
+
+        var sequentialPage = new Page(1);
+        sequential.beginMergence(sequentialPage.lines, this.similarityManager, SNAPSHOT);
+        var expected = describe(sequentialPage);
+
+        for (int i = 0; i < RUNS; i++) {
+            var parallel = createManager(true);
+            var page = new Page(1);
+            var removed = parallel.merge(new ArrayList<>(page.lines.values()), parallel.getMergePlan(this.similarityManager, SNAPSHOT));
+            assertEquals(expectedRemoved, removed);
+            assertEquals(expectedLetters, describeRemoved(page, removed));
+
+            var parallelPage = new Page(1);
+            parallel.beginMergence(parallelPage.lines, this.similarityManager, SNAPSHOT);
+            assertEquals(expected, describe(parallelPage));
+        }
+    }
+
+    @Test
+    public void mergesAcrossLines() {
+        for (boolean parallel : new boolean[]{false, true}) {
+            var page = new Page(2);
+            createManager(parallel).beginMergence(page.lines, this.similarityManager, SNAPSHOT);
+
+            var letters = page.lines.values().stream().flatMap(List::stream).collect(Collectors.toList());
+            assertFalse(letters.stream().anyMatch(imageLetter -> imageLetter.getLetter() == '.'), "Unmerged dots left");
+            assertEquals(page.dots, letters.stream().filter(imageLetter -> imageLetter.getLetter() == 'i').count());
+            assertEquals(page.quotes, letters.stream().filter(imageLetter -> imageLetter.getLetter() == '"').count());
+            assertEquals(page.equals, letters.stream().filter(imageLetter -> imageLetter.getLetter() == '=').count());
+        }
+    }
+
+    @Test
+    public void streamedMatchesWholePage() {
+        for (boolean parallel : new boolean[]{false, true}) {
+            var expectedPage = new Page(3);
+            createManager(parallel).beginMergence(expectedPage.lines, this.similarityManager, SNAPSHOT);
+
+            var page = new Page(3);
+            var streamed = new ArrayList<String>();
+            var added = new int[1];
+            var firstAdded = new int[]{-1};
+            var merger = createManager(parallel).beginMergence(this.similarityManager, SNAPSHOT, (line, y) -> {
+                if (firstAdded[0] == -1) firstAdded[0] = added[0];
+                streamed.add(y + ": " + describe(line));
+            });
+
+            for (var entry : page.lines.int2ObjectEntrySet()) {
+                added[0]++;
+                merger.accept(entry.getIntKey(), entry.getValue());
+            }
+
+            merger.finish();
+            assertEquals(describe(expectedPage), streamed);
+
+            // Lines are finished a few lines after they're added rather than once the page is done
+            assertTrue(firstAdded[0] > 0 && firstAdded[0] < 10, "First line finished after " + firstAdded[0] + " lines");
+        }
+    }
+
+    private DefaultMergenceManager createManager(boolean parallel) {
+        var mergenceManager = new DefaultMergenceManager(null, this.similarityManager).setParallel(parallel);
+        mergenceManager.addRule(DotRule::new)
+                .addRule(QuoteRule::new)
+                .addRule(EqualRule::new);
+        return mergenceManager;
+    }
+
+    private List<String> describe(Page page) {
+        return page.lines.int2ObjectEntrySet().stream()
+                .map(entry -> entry.getIntKey() + ": " + describe(entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private String describe(List<ImageLetter> line) {
+        return line.stream().map(this::describe).collect(Collectors.joining(" "));
+    }
+
+    private List<String> describeRemoved(Page page, BitSet removed) {
+        var letters = page.lines.values().stream().flatMap(List::stream).collect(Collectors.toList());
+        return removed.stream().mapToObj(position -> describe(letters.get(position))).collect(Collectors.toList());
+    }
+
+    private String describe(ImageLetter imageLetter) {
+        return imageLetter.getLetter() + "@" + imageLetter.getX() + "," + imageLetter.getY() + "/" + imageLetter.getAmountOfMerges();
+    }
+
+    /**
+     * A page of letters, where the dots of some i's are put in the line above like line detection may do with tall
+     * lines.
+     */
+    private static class Page {
+        private final Int2ObjectLinkedOpenHashMap<List<ImageLetter>> lines = new Int2ObjectLinkedOpenHashMap<>();
+        private int dots;
+        private int quotes;
+        private int equals;
+
+        private Page(long seed) {
+            var random = new Random(seed);
+            var letterLines = new ArrayList<List<ImageLetter>>(LINES);
+            for (int i = 0; i < LINES; i++) letterLines.add(new ArrayList<>());
+
+            for (int i = 0; i < LINES; i++) {
+                var line = letterLines.get(i);
+                int y = i * LINE_HEIGHT + 10;
+
+                for (int j = 0; j < LETTERS; j++) {
+                    int x = j * 12;
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            line.add(createLetter('a', x, y, 8, 12));
+                            break;
+                        case 1:
+                            line.add(createLetter('l', x, y - 4, 8, 16));
+                            (i > 0 && random.nextBoolean() ? letterLines.get(i - 1) : line).add(createLetter('.', x + 2, y - 10, 4, 3));
+                            this.dots++;
+                            break;
+                        case 2:
+                            line.add(createLetter('\'', x + 4, y - 4, 2, 5));
+                            line.add(createLetter('\'', x + 8, y - 4, 2, 5));
+                            this.quotes++;
+                            break;
+                        case 3:
+                            line.add(createLetter('-', x, y + 2, 8, 2));
+                            line.add(createLetter('-', x, y + 7, 8, 2));
+                            this.equals++;
+                            break;
+                        default:
+                            line.add(createLetter('l', x, y - 4, 8, 16));
+                    }
+                }
+            }
+
+            for (int i = 0; i < LINES; i++) {
+                var line = letterLines.get(i);
+                line.sort(Comparator.comparingInt(ImageLetter::getX));
+                this.lines.put(i * LINE_HEIGHT + 16, line);
+            }
+        }
+
+        private static ImageLetter createLetter(char letter, int x, int y, int width, int height) {
+            var coordinates = new ArrayList<IntPair>(width * height);
+            for (int dy = 0; dy < height; dy++) {
+                for (int dx = 0; dx < width; dx++) coordinates.add(new IntPair(x + dx, y + dy));
+            }
+
+            return new ImageLetter(letter, 0, x, y, width, height, width, height, (double) width / height, coordinates);
+        }
+    }
+
+    /**
+     * Merges a dot right above an l into an i.
+     */
+    private static class DotRule extends MergeRule {
+
+        private DotRule(DatabaseManager databaseManager, SimilarityManager similarityManager) {
+            super(databaseManager, similarityManager);
+        }
+
+        @Override
+        public boolean isHorizontal() {
+            return false;
+        }
+
+        @Override
+        public MergePriority getPriority() {
+            return MergePriority.HIGH;
+        }
+
+        @Override
+        public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
+            return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+        }
+
+        @Override
+        public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+            int aboveIndex = letterData.previous(index);
+            if (target.getLetter() != 'l' || aboveIndex < 0) return Optional.empty();
+
+            var above = letterData.get(aboveIndex);
+            if (above.getLetter() != '.' || above.getAmountOfMerges() > 0 || target.getAmountOfMerges() > 0) return Optional.empty();
+            if (target.getY() - (above.getY() + above.getHeight()) > 4) return Optional.empty();
+
+            target.merge(above);
+            target.setLetter('i');
+            return Optional.of(List.of(above));
+        }
+    }
+
+    /**
+     * Merges two apostrophes next to each other into a quote.
+     */
+    private static class QuoteRule extends MergeRule {
+
+        private QuoteRule(DatabaseManager databaseManager, SimilarityManager similarityManager) {
+            super(databaseManager, similarityManager);
+        }
+
+        @Override
+        public boolean isHorizontal() {
+            return true;
+        }
+
+        @Override
+        public MergePriority getPriority() {
+            return MergePriority.NORMAL;
+        }
+
+        @Override
+        public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
+            return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+        }
+
+        @Override
+        public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+            int nextIndex = letterData.next(index);
+            if (target.getLetter() != '\'' || nextIndex < 0) return Optional.empty();
+
+            var next = letterData.get(nextIndex);
+            if (next.getLetter() != '\'' || next.getX() - (target.getX() + target.getWidth()) > 4) return Optional.empty();
+
+            target.merge(next);
+            target.setLetter('"');
+            return Optional.of(List.of(next));
+        }
+    }
+
+    /**
+     * Merges two dashes right above each other into an equals sign.
+     */
+    private static class EqualRule extends MergeRule {
+
+        private EqualRule(DatabaseManager databaseManager, SimilarityManager similarityManager) {
+            super(databaseManager, similarityManager);
+        }
+
+        @Override
+        public boolean isHorizontal() {
+            return false;
+        }
+
+        @Override
+        public MergePriority getPriority() {
+            return MergePriority.LOW;
+        }
+
+        @Override
+        public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, List<ImageLetter> letterData) {
+            return mergeCharacters(target, letterData.indexOf(target), LetterView.of(letterData));
+        }
+
+        @Override
+        public Optional<List<ImageLetter>> mergeCharacters(ImageLetter target, int index, LetterView letterData) {
+            int belowIndex = letterData.next(index);
+            if (target.getLetter() != '-' || belowIndex < 0) return Optional.empty();
+
+            var below = letterData.get(belowIndex);
+            if (below.getLetter() != '-' || below.getY() - (target.getY() + target.getHeight()) > 4) return Optional.empty();
+
+            target.merge(below);
+            target.setLetter('=');
+            return Optional.of(List.of(below));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.uddernetworks.newocr.train;
+
+import com.uddernetworks.newocr.utils.IntPair;
+import com.uddernetworks.newocr.utils.OCRUtils;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GlyphLineRendererTest {
+
+    private static final int MAX_FONT_SIZE = 40;
+    private static final int MIN_FONT_SIZE = 20;
+
+    @ParameterizedTest
+    @CsvSource({"false, 1, 0, 0", "true, 1, 0, 0", "false, 1.1, 3, 5", "true, 0.9, 7, 2", "true, 1.05, 1, 6"})
+    public void matchesGeneratedImage(boolean antiAliasing, double scale, int xOffset, int yOffset) {
+        var options = new TrainGeneratorOptions()
+                .setFontFamily("Monospaced")
+                .setMaxFontSize(MAX_FONT_SIZE)
+                .setMinFontSize(MIN_FONT_SIZE)
+                .setAntiAliasing(antiAliasing)
+                .setScale(scale)
+                .setXOffset(xOffset)
+                .setYOffset(yOffset);
+
+        var image = new ComputerTrainGenerator().generateTrainingImage(options);
+        var values = OCRUtils.createGrid(image);
+        OCRUtils.toGrid(OCRUtils.filter(image).orElseThrow(), values);
+
+        // The generated image is too small for some lines, clipping its smallest sizes at the bottom and, at some
+        // scales, the last character of its largest sizes at the right, so only the lines clear of its edges are compared
+        var lines = getLines(values);
+        var renderer = new GlyphLineRenderer();
+        int compared = 0;
+
+        for (int i = 0; i < lines.size(); i++) {
+            var line = lines.get(i);
+            if (line.getValue() >= values.length - 1 || touchesRight(values, line.getKey(), line.getValue())) continue;
+            compared++;
+
+            var expected = crop(values, line.getKey(), line.getValue());
+            var rendered = renderer.render(options, MAX_FONT_SIZE - i).getValues();
+            assertEquals(expected, crop(rendered, 0, rendered.length), "Font size " + (MAX_FONT_SIZE - i));
+        }
+
+        assertTrue(compared > 1, "No complete lines in the generated image");
+    }
+
+    /**
+     * Gets the top and bottom (Exclusive) rows of every run of rows containing black pixels.
+     */
+    private List<IntPair> getLines(boolean[][] values) {
+        var lines = new ArrayList<IntPair>();
+        int top = -1;
+
+        for (int y = 0; y <= values.length; y++) {
+            boolean empty = y == values.length || isEmpty(values[y]);
+            if (!empty && top == -1) {
+                top = y;
+            } else if (empty && top != -1) {
+                lines.add(new IntPair(top, y));
+                top = -1;
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Gets the black pixels of the given rows cropped to their bounds, with a row per line.
+     */
+    private String crop(boolean[][] values, int fromY, int toY) {
+        int minX = Integer.MAX_VALUE, maxX = -1, minY = Integer.MAX_VALUE, maxY = -1;
+        for (int y = fromY; y < toY; y++) {
+            for (int x = 0; x < values[y].length; x++) {
+                if (!values[y][x]) continue;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+
+        var rows = new ArrayList<String>();
+        for (int y = minY; y <= maxY; y++) {
+            var row = new StringBuilder();
+            for (int x = minX; x <= maxX; x++) row.append(values[y][x] ? '#' : '.');
+            rows.add(row.toString());
+        }
+
+        return rows.stream().collect(Collectors.joining("\n"));
+    }
+
+    private boolean touchesRight(boolean[][] values, int fromY, int toY) {
+        for (int y = fromY; y < toY; y++) {
+            if (values[y][values[y].length - 1]) return true;
+        }
+
+        return false;
+    }
+
+    private boolean isEmpty(boolean[] row) {
+        for (boolean value : row) {
+            if (value) return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package com.uddernetworks.newocr.train;
+
+import com.uddernetworks.newocr.character.SearchCharacter;
+import com.uddernetworks.newocr.recognition.OCRScan;
+import com.uddernetworks.newocr.utils.IntPair;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SegmentationMethodTest {
+
+    @ParameterizedTest
+    @EnumSource(value = SegmentationMethod.class, names = "STREAMED", mode = EnumSource.Mode.EXCLUDE)
+    public void matchesStreamedOnRandomShapes(SegmentationMethod method) {
+        var random = new Random(1);
+
+        // Every small size, including single rows and columns, then larger ones up to the largest trained font size
+        for (int height = 1; height <= 12; height++) {
+            for (int width = 1; width <= 12; width++) {
+                assertSameSegments(method, createShape(random, width, height, 0.5));
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            assertSameSegments(method, createShape(random, 1 + random.nextInt(120), 1 + random.nextInt(120), random.nextDouble()));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = SegmentationMethod.class, names = "STREAMED", mode = EnumSource.Mode.EXCLUDE)
+    public void matchesStreamedOnRenderedCharacters(SegmentationMethod method) {
+        for (int fontSize : new int[]{10, 31, 90}) {
+            for (char letter : OCRScan.RAW_STRING.toCharArray()) {
+                if (letter == ' ') continue;
+                for (var coordinates : renderCharacter(letter, fontSize)) {
+                    assertSameSegments(method, coordinates);
+                }
+            }
+        }
+    }
+
+    private void assertSameSegments(SegmentationMethod method, List<IntPair> coordinates) {
+        if (coordinates.isEmpty()) return;
+
+        var expected = new SearchCharacter(coordinates);
+        SegmentationMethod.STREAMED.accept(expected);
+
+        var actual = new SearchCharacter(coordinates);
+        method.accept(actual);
+
+        assertEquals(17, expected.getSegmentPercentages().length);
+        // Doubles are compared by their bits, so the percentages must be identical rather than close
+        assertArrayEquals(expected.getSegmentPercentages(), actual.getSegmentPercentages(), "Character " + expected.getWidth() + "x" + expected.getHeight());
+    }
+
+    /**
+     * Creates a shape of the given size with its corners filled, so its bounds are the given size.
+     */
+    private List<IntPair> createShape(Random random, int width, int height, double density) {
+        var coordinates = new ArrayList<IntPair>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean corner = (x == 0 || x == width - 1) && (y == 0 || y == height - 1);
+                if (corner || random.nextDouble() < density) coordinates.add(new IntPair(x, y));
+            }
+        }
+
+        return coordinates;
+    }
+
+    /**
+     * Renders a character and gets the pixels of each of its pieces, split by blank rows like the dot of an i.
+     */
+    private List<List<IntPair>> renderCharacter(char letter, int fontSize) {
+        var image = new BufferedImage(fontSize * 2, fontSize * 2, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        graphics.setPaint(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setPaint(Color.BLACK);
+        graphics.setFont(new Font("Monospaced", Font.PLAIN, fontSize));
+        graphics.drawString(String.valueOf(letter), fontSize / 2, fontSize * 3 / 2);
+        graphics.dispose();
+
+        var pieces = new ArrayList<List<IntPair>>();
+        var piece = new ArrayList<IntPair>();
+        for (int y = 0; y < image.getHeight(); y++) {
+            int before = piece.size();
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xFFFFFF) == 0) piece.add(new IntPair(x, y));
+            }
+
+            if (piece.size() == before && !piece.isEmpty()) {
+                pieces.add(piece);
+                piece = new ArrayList<>();
+            }
+        }
+
+        if (!piece.isEmpty()) pieces.add(piece);
+        return pieces;
+    }
+}